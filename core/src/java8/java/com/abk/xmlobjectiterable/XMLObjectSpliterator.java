@@ -0,0 +1,266 @@
+package com.abk.xmlobjectiterable;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Spliterator} over the POJOs of an {@link XMLObjectIterable}, for use
+ * with java.util.stream.
+ * <p/>
+ * Iterables built from a File with a parser factory and a transformer factory
+ * split by file region: the file is scanned for record boundaries and each half
+ * of the remaining chunks is parsed with its own parser and transformer.  Other
+ * iterables split by handing batches of already parsed POJOs to the new
+ * spliterator.
+ * <p/>
+ * Built from the java8 source set into the separate "java8" artifact, so
+ * that the main jar stays on Java 7 and Android API 9.  The rest of the
+ * library does not depend on this class.
+ * <p/>
+ * Spliterators report {@link Spliterator#ORDERED} unless the iterable parses
+ * in parallel without ordering.
+ *
+ * @param <T> type of POJO
+ */
+public final class XMLObjectSpliterator<T> implements Spliterator<T> {
+
+    /** Assumed size of a record when estimating the count from the input length. */
+    private static final int ESTIMATED_RECORD_SIZE = 256;
+    private static final int BATCH_UNIT = 1 << 10;
+    private static final int MAX_BATCH = 1 << 25;
+
+    /**
+     * Chunks of a file shared by all spliterators split from the same root.
+     * The file is closed once every spliterator is exhausted.
+     */
+    private static final class Regions<T> {
+        private final XMLObjectIterable<T> source;
+        private final RecordChunks chunks;
+        private final List<RecordChunks.Chunk> list;
+        private final AtomicInteger open = new AtomicInteger(1);
+
+        private Regions(final XMLObjectIterable<T> source, final RecordChunks chunks, final List<RecordChunks.Chunk> list) {
+            this.source = source;
+            this.chunks = chunks;
+            this.list = list;
+        }
+
+        private Iterator<T> parse(final int index) {
+            try {
+                return chunks.parse(list.get(index), source.newParser(), source.newTransformer(),
+                        source.transformerPool(), source.parserPool()).iterator();
+            } catch (final IOException | XmlPullParserException e) {
+                throw new RuntimeException("Error while parsing XML.", e);
+            }
+        }
+
+        private void release() {
+            if (open.decrementAndGet() == 0) {
+                chunks.close();
+            }
+        }
+    }
+
+    private final XMLObjectIterable<T> source;
+    private final int characteristics;
+    private Iterator<T> iterator;
+    private Regions<T> regions;
+    private int lo;
+    private int hi;
+    private long estimate;
+    private int batch;
+    private boolean released;
+
+    private XMLObjectSpliterator(final XMLObjectIterable<T> source, final long estimate) {
+        this.source = source;
+        this.characteristics = source.isOrdered() ? Spliterator.ORDERED | Spliterator.NONNULL : Spliterator.NONNULL;
+        this.estimate = estimate;
+    }
+
+    private XMLObjectSpliterator(final Regions<T> regions, final Iterator<T> iterator, final int lo, final int hi,
+                                 final int characteristics) {
+        this.source = regions.source;
+        this.characteristics = characteristics;
+        this.regions = regions;
+        this.iterator = iterator;
+        this.lo = lo;
+        this.hi = hi;
+        this.estimate = records(regions, lo, hi);
+    }
+
+    /**
+     * @param iterable source of POJOs
+     * @param <T>      type of POJO
+     * @return spliterator over the POJOs of the iterable
+     */
+    public static <T> XMLObjectSpliterator<T> of(final XMLObjectIterable<T> iterable) {
+        final long length = iterable.inputLength();
+
+        return new XMLObjectSpliterator<>(iterable, length < 0 ? Long.MAX_VALUE : length / ESTIMATED_RECORD_SIZE);
+    }
+
+    /**
+     * @param iterable source of POJOs
+     * @param parallel true for a parallel stream
+     * @param <T>      type of POJO
+     * @return stream of the POJOs of the iterable
+     */
+    public static <T> Stream<T> stream(final XMLObjectIterable<T> iterable, final boolean parallel) {
+        final XMLObjectSpliterator<T> spliterator = of(iterable);
+
+        return StreamSupport.stream(spliterator, parallel).onClose(new Runnable() {
+            @Override
+            public void run() {
+                spliterator.close();
+            }
+        });
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        while (iterator == null || !iterator.hasNext()) {
+            if (regions == null) {
+                if (iterator != null) {
+                    return false;
+                }
+                iterator = source.iterator();
+            } else if (lo < hi) {
+                iterator = regions.parse(lo++);
+            } else {
+                release();
+                return false;
+            }
+        }
+
+        if (estimate > 0 && estimate != Long.MAX_VALUE) {
+            estimate--;
+        }
+        action.accept(iterator.next());
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (regions == null && iterator == null && source.isSplittable()) {
+            scan();
+        }
+
+        if (regions != null && hi - lo >= 2) {
+            final int mid = lo + (hi - lo) / 2;
+            regions.open.incrementAndGet();
+            final XMLObjectSpliterator<T> prefix = new XMLObjectSpliterator<>(regions, iterator, lo, mid, characteristics);
+
+            iterator = null;
+            lo = mid;
+            estimate = records(regions, lo, hi);
+            return prefix;
+        }
+
+        return splitBatch();
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+
+    /**
+     * Scan the whole file into chunks, sized so that each
+     * worker of the common pool gets several.
+     */
+    private void scan() {
+        final long chunkSize = source.inputLength() / (ForkJoinPool.getCommonPoolParallelism() * 4L);
+
+        try {
+            final RecordChunks chunks = source.openChunks(chunkSize);
+            regions = new Regions<>(source, chunks, chunks.remaining());
+        } catch (final IOException e) {
+            throw new RuntimeException("Error while scanning XML.", e);
+        }
+
+        lo = 0;
+        hi = regions.list.size();
+        estimate = records(regions, lo, hi);
+    }
+
+    /**
+     * Hand a batch of parsed POJOs to a new spliterator, growing the batch on each call.
+     */
+    private Spliterator<T> splitBatch() {
+        if (iterator == null) {
+            if (regions != null) {
+                if (lo >= hi) {
+                    return null;
+                }
+                iterator = regions.parse(lo++);
+            } else {
+                iterator = source.iterator();
+            }
+        }
+
+        if (!iterator.hasNext()) {
+            return null;
+        }
+
+        batch = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+        final Object[] records = new Object[batch];
+        int count = 0;
+        do {
+            records[count++] = iterator.next();
+        } while (count < batch && iterator.hasNext());
+
+        if (estimate != Long.MAX_VALUE) {
+            estimate = Math.max(0, estimate - count);
+        }
+        return Spliterators.spliterator(records, 0, count, characteristics);
+    }
+
+    /**
+     * Close the iterator over the source and the file shared with all
+     * spliterators split from this one.
+     */
+    private void close() {
+        if (iterator instanceof Closeable) {
+            try {
+                ((Closeable) iterator).close();
+            } catch (final IOException e) {
+                throw new RuntimeException("Failed to close XML.", e);
+            }
+        }
+
+        if (regions != null) {
+            regions.chunks.close();
+        }
+    }
+
+    private void release() {
+        if (regions != null && !released) {
+            released = true;
+            regions.release();
+        }
+    }
+
+    private static long records(final Regions<?> regions, final int lo, final int hi) {
+        long records = 0;
+        for (int i = lo; i < hi; ++i) {
+            records += regions.list.get(i).records();
+        }
+        return records;
+    }
+}
@@ -0,0 +1,161 @@
+package benchmarks;
+
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTokenizer;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.google.common.base.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses synthetic documents of each shape and size with each parser.
+ * <p/>
+ * parseAll measures throughput over a whole document, firstRecord the latency
+ * until the first POJO is available.  Run with the GC profiler (-prof gc, or the
+ * main method) to also report the allocation rate.  Narrow the matrix with -p,
+ * for example -p size=256M -p parser=builtin.
+ */
+@State(Scope.Benchmark)
+public class DocumentBenchmarks {
+
+    @Param({"16K", "1M", "32M", "256M"})
+    public String size;
+
+    @Param({"FLAT", "DEEP", "ATTRIBUTES", "TEXT", "MIXED"})
+    public SyntheticDocuments.Shape shape;
+
+    @Param({"xpp3", "kxml2", "builtin"})
+    public String parser;
+
+    private XmlPullParserFactory factory;
+    private File document;
+
+    @Setup
+    public void setUp() throws IOException, XmlPullParserException {
+        factory = parserFactory(parser);
+        document = SyntheticDocuments.get(shape, size);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void parseAll(final Blackhole blackhole) throws Exception {
+        try (InputStream is = new FileInputStream(document)) {
+            for (Integer record : iterable(is)) {
+                blackhole.consume(record);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Integer firstRecord() throws Exception {
+        try (InputStream is = new FileInputStream(document)) {
+            final Iterator<Integer> records = iterable(is).iterator();
+            return records.next();
+        }
+    }
+
+    private XMLObjectIterable<Integer> iterable(final InputStream is) throws XmlPullParserException {
+        return new XMLObjectIterable.Builder<Integer>()
+                .from(is)
+                .withParser(factory.newPullParser())
+                .withTransform(new ChecksumTransformer())
+                .onNodes(shape.path())
+                .create();
+    }
+
+    /**
+     * @param name xpp3, kxml2 or builtin
+     * @return a factory that creates parsers of the named implementation, even with
+     * several implementations on the classpath.
+     */
+    static XmlPullParserFactory parserFactory(final String name) throws XmlPullParserException {
+        final XmlPullParserFactory factory;
+        switch (name) {
+            case "xpp3":
+                factory = XmlPullParserFactory.newInstance("org.xmlpull.mxp1.MXParser", null);
+                break;
+            case "kxml2":
+                factory = XmlPullParserFactory.newInstance("org.kxml2.io.KXmlParser", null);
+                break;
+            case "builtin":
+                factory = new XMLTokenizer.Factory();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown parser: " + name);
+        }
+        factory.setNamespaceAware(false);
+        return factory;
+    }
+
+    /**
+     * Reads every value and attribute of a record, so that lazily
+     * materialized data is included in the measurement.
+     */
+    private static final class ChecksumTransformer implements XMLTransformer<Integer> {
+        private int checksum;
+        private boolean complete;
+
+        @Override
+        public Optional<Integer> transform() {
+            return Optional.of(checksum);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            if (node.getValue() != null) {
+                checksum = 31 * checksum + node.getValue().length();
+            }
+            for (int i = 0; i < node.getAttributeCount(); ++i) {
+                checksum = 31 * checksum + node.getAttributeValue(i).length();
+            }
+            complete = node.getName().equals("record");
+        }
+
+        @Override
+        public void reset() {
+            checksum = 0;
+            complete = false;
+        }
+
+        @Override
+        public boolean canTransform() {
+            return complete;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+                .include(DocumentBenchmarks.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -1,7 +1,10 @@
 package benchmarks;
 
 
+import com.abk.xmlobjectiterable.ParserPool;
+import com.abk.xmlobjectiterable.XMLElement;
 import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTransformer;
 import com.abk.xmlobjectiterable.transformers.RSSBookmarkItem;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
@@ -11,6 +14,7 @@ import org.junit.Test;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
@@ -29,11 +33,53 @@ import static org.junit.Assert.assertTrue;
 @State(Scope.Benchmark)
 public class ParsingTransformBenchmarks {
 
+    /** Number of wrapper elements above the record element in the deep document. */
+    private static final int DEEP_PATH_LENGTH = 24;
+    /** Number of nested elements inside each record of the deep document. */
+    private static final int DEEP_RECORD_DEPTH = 32;
+    private static final int DEEP_RECORD_COUNT = 500;
+
+    private XmlPullParserFactory factory;
+    private ParserPool parserPool;
+    private String deepXml;
+    private String deepPath;
+
+    @Setup
+    public void setUp() throws XmlPullParserException {
+        factory = DocumentBenchmarks.parserFactory("xpp3");
+        parserPool = new ParserPool(factory);
+
+        final StringBuilder path = new StringBuilder();
+        final StringBuilder open = new StringBuilder();
+        final StringBuilder close = new StringBuilder();
+        for (int i = 0; i < DEEP_PATH_LENGTH; ++i) {
+            path.append("level").append(i).append('/');
+            open.append("<level").append(i).append('>');
+            close.insert(0, "</level" + i + '>');
+        }
+        path.append("record");
+
+        final StringBuilder xml = new StringBuilder(open);
+        for (int r = 0; r < DEEP_RECORD_COUNT; ++r) {
+            xml.append("<record id=\"").append(r).append("\">");
+            for (int d = 0; d < DEEP_RECORD_DEPTH; ++d) {
+                xml.append("<nested>");
+            }
+            xml.append("value").append(r);
+            for (int d = 0; d < DEEP_RECORD_DEPTH; ++d) {
+                xml.append("</nested>");
+            }
+            xml.append("</record>");
+        }
+        xml.append(close);
+
+        deepXml = xml.toString();
+        deepPath = path.toString();
+    }
+
 
     @Benchmark
     public void testReadRSSItems() throws Exception {
-        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
-        factory.setNamespaceAware(false);
         XmlPullParser parser = factory.newPullParser();
 
         InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("rss-opml.xml");
@@ -42,7 +88,7 @@ public class ParsingTransformBenchmarks {
 
         XMLObjectIterable<RSSBookmarkItem> xitr = new XMLObjectIterable.Builder<RSSBookmarkItem>()
                 .from(inputStream)
-                .withTransform(RSSBookmarkItem.TRANSFORMER)
+                .withTransform(RSSBookmarkItem.SUPPLIER)
                 .withParser(parser)
                 .onNodes(RSSBookmarkItem.PATH)
                 .create();
@@ -51,4 +97,65 @@ public class ParsingTransformBenchmarks {
 
         assertTrue("Contains elements.", !samples.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Benchmark
+    public void testReadRSSItemsPooledParser() throws Exception {
+        InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("rss-opml.xml");
+
+        assertNotNull("InputStream cannot be null.", inputStream);
+
+        XMLObjectIterable<RSSBookmarkItem> xitr = new XMLObjectIterable.Builder<RSSBookmarkItem>()
+                .from(inputStream)
+                .withTransform(RSSBookmarkItem.SUPPLIER)
+                .withParserPool(parserPool)
+                .onNodes(RSSBookmarkItem.PATH)
+                .create();
+
+        List<RSSBookmarkItem> samples = Lists.newArrayList(xitr);
+
+        assertTrue("Contains elements.", !samples.isEmpty());
+    }
+
+    @Benchmark
+    public void testReadDeeplyNestedRecords() throws Exception {
+        XMLObjectIterable<String> xitr = new XMLObjectIterable.Builder<String>()
+                .from(deepXml)
+                .withTransform(new NestedValueTransformer())
+                .withParser(factory.newPullParser())
+                .onNodes(deepPath)
+                .create();
+
+        List<String> samples = Lists.newArrayList(xitr);
+
+        assertTrue("Contains all records.", samples.size() == DEEP_RECORD_COUNT);
+    }
+
+    /**
+     * Collects the innermost value of each record in the deep document.
+     */
+    private static final class NestedValueTransformer implements XMLTransformer<String> {
+        private String value;
+
+        @Override
+        public Optional<String> transform() {
+            return Optional.fromNullable(value);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            if (value == null && node.getValue() != null) {
+                value = node.getValue();
+            }
+        }
+
+        @Override
+        public void reset() {
+            value = null;
+        }
+
+        @Override
+        public boolean canTransform() {
+            return value != null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package benchmarks;
+
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLRouter;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Extracts the items and the channel links of an RSS feed, with one
+ * {@link XMLObjectIterable} per path or with one {@link XMLRouter}.
+ */
+@State(Scope.Benchmark)
+public class RouterBenchmarks {
+
+    private static final String LINK_PATH = "rss/channel/link";
+
+    private XmlPullParserFactory factory;
+    private byte[] xml;
+
+    @Setup
+    public void setUp() throws Exception {
+        factory = DocumentBenchmarks.parserFactory("xpp3");
+
+        try (InputStream is = this.getClass().getClassLoader().getResourceAsStream("rss.xml")) {
+            xml = ByteStreams.toByteArray(is);
+        }
+    }
+
+    @Benchmark
+    public void separatePasses(final Blackhole blackhole) throws Exception {
+        for (RSSItem item : new XMLObjectIterable.Builder<RSSItem>()
+                .from(new ByteArrayInputStream(xml))
+                .withTransform(RSSItem.SUPPLIER)
+                .withParser(factory.newPullParser())
+                .onNodes(RSSItem.RSS_PATH)
+                .create()) {
+            blackhole.consume(item);
+        }
+
+        for (String link : new XMLObjectIterable.Builder<String>()
+                .from(new ByteArrayInputStream(xml))
+                .withTransform(new TextTransformer())
+                .withParser(factory.newPullParser())
+                .onNodes(LINK_PATH)
+                .create()) {
+            blackhole.consume(link);
+        }
+    }
+
+    @Benchmark
+    public void routed(final Blackhole blackhole) throws Exception {
+        final XMLRouter router = new XMLRouter.Builder()
+                .route(RSSItem.RSS_PATH, RSSItem.SUPPLIER.get())
+                .route(LINK_PATH, new TextTransformer())
+                .from(new ByteArrayInputStream(xml))
+                .withParser(factory.newPullParser())
+                .create();
+
+        for (XMLRouter.Record<?> record : router) {
+            blackhole.consume(record.getValue());
+        }
+    }
+
+    /**
+     * Returns the text of the matched element.
+     */
+    private static final class TextTransformer implements XMLTransformer<String> {
+        private String text;
+
+        @Override
+        public Optional<String> transform() {
+            return Optional.fromNullable(text);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            text = node.getValue();
+        }
+
+        @Override
+        public void reset() {
+            text = null;
+        }
+
+        @Override
+        public boolean canTransform() {
+            return text != null;
+        }
+    }
+}
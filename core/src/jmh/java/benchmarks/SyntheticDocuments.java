@@ -0,0 +1,164 @@
+package benchmarks;
+
+import com.google.common.base.Charsets;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Generates record-oriented XML documents of a given shape and approximate size.
+ * <p/>
+ * Documents are written to the temp directory and reused by later forks and runs,
+ * since the largest ones take a while to generate.
+ */
+public final class SyntheticDocuments {
+
+    /** Number of wrapper elements above the records of a deep document. */
+    private static final int DEEP_PATH_LENGTH = 24;
+    /** Number of nested elements inside each record of a deep document. */
+    private static final int DEEP_RECORD_DEPTH = 16;
+    private static final int ATTRIBUTE_COUNT = 12;
+    private static final String WORDS = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do "
+            + "eiusmod tempor incididunt ut labore et dolore magna aliqua &amp; enim ad minim veniam ";
+
+    /**
+     * Layout of the records of a document.
+     */
+    public enum Shape {
+        /** Records with a few short child elements. */
+        FLAT("root/records/record"),
+        /** Records under a long path, with deeply nested children. */
+        DEEP(deepPath()),
+        /** Empty records carrying many attributes. */
+        ATTRIBUTES("root/records/record"),
+        /** Records with one long text element. */
+        TEXT("root/records/record"),
+        /** Records with text interleaved with inline elements, CDATA and comments. */
+        MIXED("root/records/record");
+
+        private final String path;
+
+        Shape(final String path) {
+            this.path = path;
+        }
+
+        /**
+         * @return root node path of the records
+         */
+        String path() {
+            return path;
+        }
+    }
+
+    private SyntheticDocuments() {
+    }
+
+    /**
+     * @param shape record layout
+     * @param size  approximate document size, such as "16K", "1M" or "256M"
+     * @return file holding the document
+     * @throws IOException if the document cannot be written
+     */
+    static File get(final Shape shape, final String size) throws IOException {
+        final long bytes = parseSize(size);
+        final File file = new File(System.getProperty("java.io.tmpdir"),
+                "xmlobjectiterable-" + shape.name().toLowerCase(Locale.US) + "-" + size + ".xml");
+
+        if (!file.isFile() || file.length() < bytes) {
+            final File partial = new File(file.getPath() + ".tmp");
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(partial), Charsets.UTF_8))) {
+                write(out, shape, bytes);
+            }
+            if (!partial.renameTo(file)) {
+                throw new IOException("Failed to create " + file);
+            }
+        }
+
+        return file;
+    }
+
+    static long parseSize(final String size) {
+        final char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        final long multiplier = unit == 'K' ? 1L << 10 : unit == 'M' ? 1L << 20 : unit == 'G' ? 1L << 30 : 1;
+        return Long.parseLong(multiplier == 1 ? size : size.substring(0, size.length() - 1)) * multiplier;
+    }
+
+    private static void write(final Writer out, final Shape shape, final long bytes) throws IOException {
+        final StringBuilder open = new StringBuilder();
+        final StringBuilder close = new StringBuilder();
+        final String[] path = shape.path().split("/");
+        for (int i = 0; i < path.length - 1; ++i) {
+            open.append('<').append(path[i]).append(i == 0 ? " version=\"1.0\">\n" : ">\n");
+            close.insert(0, "</" + path[i] + ">\n");
+        }
+
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write(open.toString());
+
+        final StringBuilder record = new StringBuilder();
+        long written = open.length();
+        for (int r = 0; written < bytes; ++r) {
+            record.setLength(0);
+            record(record, shape, r);
+            out.write(record.toString());
+            written += record.length();
+        }
+
+        out.write(close.toString());
+    }
+
+    private static void record(final StringBuilder xml, final Shape shape, final int r) {
+        switch (shape) {
+            case FLAT:
+                xml.append("<record id=\"").append(r).append("\"><name>record ").append(r)
+                        .append("</name><value>").append(r * 31).append("</value><flag>")
+                        .append(r % 2 == 0).append("</flag></record>\n");
+                break;
+            case DEEP:
+                xml.append("<record id=\"").append(r).append("\">");
+                for (int d = 0; d < DEEP_RECORD_DEPTH; ++d) {
+                    xml.append("<nested>");
+                }
+                xml.append("value ").append(r);
+                for (int d = 0; d < DEEP_RECORD_DEPTH; ++d) {
+                    xml.append("</nested>");
+                }
+                xml.append("</record>\n");
+                break;
+            case ATTRIBUTES:
+                xml.append("<record id=\"").append(r).append('"');
+                for (int a = 0; a < ATTRIBUTE_COUNT; ++a) {
+                    xml.append(" attribute").append(a).append("=\"value ").append(r).append(" &amp; ").append(a).append('"');
+                }
+                xml.append("/>\n");
+                break;
+            case TEXT:
+                xml.append("<record id=\"").append(r).append("\"><body>");
+                for (int w = 0; w < 16; ++w) {
+                    xml.append(WORDS);
+                }
+                xml.append("</body></record>\n");
+                break;
+            case MIXED:
+                xml.append("<record id=\"").append(r).append("\"><p>Text ").append(r)
+                        .append(" <b>bold</b> more <i>italic &lt;tag&gt;</i> tail<![CDATA[ <raw> ]]>")
+                        .append("<!-- comment --> end</p><p>").append(WORDS).append("</p></record>\n");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+    }
+
+    private static String deepPath() {
+        final StringBuilder path = new StringBuilder();
+        for (int i = 0; i < DEEP_PATH_LENGTH; ++i) {
+            path.append("level").append(i).append('/');
+        }
+        return path.append("record").toString();
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTokenizer;
+import com.abk.xmlobjectiterable.transformers.RSSBookmarkItem;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Compares the built-in {@link XMLTokenizer} with xpp3 on the OPML documents.
+ */
+@State(Scope.Benchmark)
+public class TokenizerBenchmarks {
+
+    @Param({"xpp3", "builtin"})
+    public String parser;
+
+    @Param({"rss-opml.xml", "sources-opml.xml"})
+    public String document;
+
+    private XmlPullParserFactory factory;
+    private byte[] xml;
+
+    @Setup
+    public void setUp() throws Exception {
+        factory = DocumentBenchmarks.parserFactory(parser);
+
+        try (InputStream is = this.getClass().getClassLoader().getResourceAsStream(document)) {
+            xml = ByteStreams.toByteArray(is);
+        }
+    }
+
+    @Benchmark
+    public List<RSSBookmarkItem> testReadBookmarks() throws Exception {
+        XMLObjectIterable<RSSBookmarkItem> xitr = new XMLObjectIterable.Builder<RSSBookmarkItem>()
+                .from(new ByteArrayInputStream(xml))
+                .withTransform(RSSBookmarkItem.SUPPLIER)
+                .withParser(factory.newPullParser())
+                .onNodes(RSSBookmarkItem.PATH)
+                .create();
+
+        return Lists.newArrayList(xitr);
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import com.abk.xmlobjectiterable.MappedTransformerFactory;
+import com.abk.xmlobjectiterable.XMLMapping;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Compares the hand-written {@link RSSItem#SUPPLIER} transformer with one built by
+ * {@link MappedTransformerFactory} from an equivalent mapping.
+ */
+@State(Scope.Benchmark)
+public class TransformerBenchmarks {
+
+    private static final XMLMapping<RSSItem> RSS_MAPPING = new XMLMapping.Builder<>(RSSItem.class)
+            .onNodes(RSSItem.RSS_PATH)
+            .withArgument("title", true)
+            .withArgument("link", true)
+            .withArgument("pubDate", true)
+            .withArgument("comments", true)
+            .withArgument("description", true)
+            .create();
+
+    private XmlPullParserFactory factory;
+    private XMLTransformer<RSSItem> handWritten;
+    private XMLTransformer<RSSItem> mapped;
+    private byte[] xml;
+
+    @Setup
+    public void setUp() throws Exception {
+        factory = DocumentBenchmarks.parserFactory("xpp3");
+        handWritten = RSSItem.SUPPLIER.get();
+        mapped = MappedTransformerFactory.forMapping(RSS_MAPPING).get();
+
+        try (InputStream is = this.getClass().getClassLoader().getResourceAsStream("rss.xml")) {
+            xml = ByteStreams.toByteArray(is);
+        }
+    }
+
+    @Benchmark
+    public void handWritten(final Blackhole blackhole) throws Exception {
+        read(handWritten, blackhole);
+    }
+
+    @Benchmark
+    public void mapped(final Blackhole blackhole) throws Exception {
+        read(mapped, blackhole);
+    }
+
+    private void read(final XMLTransformer<RSSItem> transformer, final Blackhole blackhole) throws Exception {
+        final XMLObjectIterable<RSSItem> items = new XMLObjectIterable.Builder<RSSItem>()
+                .from(new ByteArrayInputStream(xml))
+                .withTransform(transformer)
+                .withParser(factory.newPullParser())
+                .onNodes(RSSItem.RSS_PATH)
+                .create();
+
+        for (RSSItem item : items) {
+            blackhole.consume(item);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.abk.xmlobjectiterable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads regions of a file with positional channel reads.
+ */
+final class ChannelRegionSource implements RegionSource {
+    private final FileChannel channel;
+    private ByteBuffer scanBuffer;
+
+    /**
+     * @param channel file to read, closed with this source
+     */
+    ChannelRegionSource(final FileChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public long length() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public int scan(final RecordScanner scanner, final int maxBytes) throws IOException {
+        if (scanBuffer == null || scanBuffer.capacity() < maxBytes) {
+            scanBuffer = ByteBuffer.allocate(maxBytes);
+        }
+
+        scanBuffer.clear().limit(maxBytes);
+        final int read = channel.read(scanBuffer, scanner.position());
+        if (read > 0) {
+            scanner.feed(scanBuffer.array(), 0, read);
+        }
+        return read;
+    }
+
+    @Override
+    public InputStream open(final long start, final long end) {
+        return new RegionInputStream(channel, start, end);
+    }
+
+    @Override
+    public byte[] read(final long start, final long end) throws IOException {
+        return RegionInputStream.readFully(channel, start, end);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
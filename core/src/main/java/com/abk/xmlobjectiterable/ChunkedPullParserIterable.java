@@ -0,0 +1,196 @@
+package com.abk.xmlobjectiterable;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Iterates over a record-oriented XML file by parsing chunks of records concurrently.
+ * <p/>
+ * The iterating thread scans the file for record boundaries and submits
+ * chunks of consecutive records to the pool, see {@link RecordChunks}.
+ *
+ * @param <T> type of POJO
+ */
+final class ChunkedPullParserIterable<T> implements Iterable<T> {
+
+    private static final int CHUNKS_PER_WORKER = 8;
+
+    private final XMLObjectIterable<T> source;
+    private final ForkJoinPool pool;
+    private final boolean ordered;
+
+    /**
+     * @param source  splittable iterable that supplies the file, parsers and transformers
+     * @param pool    pool that parses the chunks
+     * @param ordered true to return POJOs in document order
+     */
+    ChunkedPullParserIterable(final XMLObjectIterable<T> source, final ForkJoinPool pool, final boolean ordered) {
+        this.source = source;
+        this.pool = pool;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        try {
+            return new ChunkIterator();
+        } catch (final IOException e) {
+            throw new RuntimeException("Failed to read file.", e);
+        }
+    }
+
+    /**
+     * Iterator over the POJOs that can be closed before the end of the file.
+     */
+    private final class ChunkIterator implements Iterator<T>, Closeable {
+        private final RecordChunks chunks;
+        private final int maxInFlight;
+        private final Deque<Future<List<T>>> orderedResults = new ArrayDeque<>();
+        private final CompletionService<List<T>> unorderedResults = new ExecutorCompletionService<>(pool);
+        private final Set<Future<List<T>>> unorderedPending = new HashSet<>();
+
+        private int inFlight;
+        private boolean closed;
+        private Iterator<T> current = Collections.<T>emptyList().iterator();
+
+        private ChunkIterator() throws IOException {
+            this.chunks = source.openChunks(source.inputLength() / (pool.getParallelism() * CHUNKS_PER_WORKER));
+            this.maxInFlight = pool.getParallelism() * 2;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (closed) {
+                    return false;
+                }
+
+                submitChunks();
+
+                if (inFlight == 0) {
+                    close();
+                    return false;
+                }
+
+                current = takeResult().iterator();
+            }
+
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No data.");
+            }
+
+            return current.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new RuntimeException("Unsupported operation.");
+        }
+
+        /**
+         * Cancel the chunks still parsing and close the file.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = Collections.<T>emptyList().iterator();
+
+            for (Future<List<T>> future : orderedResults) {
+                future.cancel(true);
+            }
+            for (Future<List<T>> future : unorderedPending) {
+                future.cancel(true);
+            }
+            orderedResults.clear();
+            unorderedPending.clear();
+            inFlight = 0;
+
+            chunks.close();
+        }
+
+        /**
+         * Scan ahead and keep up to maxInFlight chunks parsing on the pool.
+         */
+        private void submitChunks() {
+            try {
+                while (inFlight < maxInFlight) {
+                    final RecordChunks.Chunk chunk = chunks.next();
+                    if (chunk == null) {
+                        return;
+                    }
+
+                    final Callable<List<T>> task = parseTask(chunk);
+                    if (ordered) {
+                        orderedResults.add(pool.submit(task));
+                    } else {
+                        unorderedPending.add(unorderedResults.submit(task));
+                    }
+                    inFlight++;
+                }
+            } catch (final IOException e) {
+                close();
+                throw new RuntimeException("Error while scanning XML.", e);
+            }
+        }
+
+        private List<T> takeResult() {
+            try {
+                inFlight--;
+                if (ordered) {
+                    return orderedResults.poll().get();
+                }
+
+                final Future<List<T>> result = unorderedResults.take();
+                unorderedPending.remove(result);
+                return result.get();
+            } catch (final InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while parsing XML.", e);
+            } catch (final ExecutionException e) {
+                close();
+                throw new RuntimeException("Error while parsing XML.", e.getCause());
+            }
+        }
+
+        private Callable<List<T>> parseTask(final RecordChunks.Chunk chunk) {
+            return new Callable<List<T>>() {
+                @Override
+                public List<T> call() throws IOException, XmlPullParserException {
+                    final List<T> records = new ArrayList<>(chunk.records());
+                    final Iterable<T> parsed = chunks.parse(chunk, source.newParser(), source.newTransformer(),
+                            source.transformerPool(), source.parserPool());
+                    for (T record : parsed) {
+                        records.add(record);
+                    }
+                    return records;
+                }
+            };
+        }
+    }
+}
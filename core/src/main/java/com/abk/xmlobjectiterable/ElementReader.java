@@ -0,0 +1,202 @@
+package com.abk.xmlobjectiterable;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pull parsing loop shared by the iterators over one document.
+ * <p/>
+ * Tracks the name path of the open elements, skips the subtrees that leave
+ * every path of interest, and collects the text of the elements at or inside
+ * a path.  Subclasses decide which elements match, build the elements, and
+ * act on end tags.
+ */
+abstract class ElementReader {
+
+    final XmlPullParser parser;
+    final SymbolTable symbols;
+    final XMLPath nodeNamePath;
+    final Deque<XMLElement> nodeValueStack = new ArrayDeque<>();
+    final TextBuffer text = new TextBuffer();
+
+    /**
+     * @param parser  pull parser initialized with input.
+     * @param symbols table that canonicalizes element and attribute names
+     */
+    ElementReader(final XmlPullParser parser, final SymbolTable symbols) {
+        this.parser = parser;
+        this.symbols = symbols;
+        this.nodeNamePath = new XMLPath(symbols);
+    }
+
+    /**
+     * Parse until {@link #isReady()} or the end of the document.
+     *
+     * @return false if the end of the document was reached
+     */
+    final boolean read() {
+        try {
+            int nextTokenType;
+            while ((nextTokenType = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                switch (nextTokenType) {
+                    case XmlPullParser.START_TAG:
+                        final int nameId = symbols.id(parser.getName());
+                        final String name = nameId >= 0 ? symbols.name(nameId) : parser.getName();
+
+                        // An element that leaves every path can never contain a match.
+                        if (!enter(name)) {
+                            skipSubtree(parser);
+                            break;
+                        }
+
+                        nodeNamePath.push(name, nameId);
+                        // Only materialize elements once at or inside a path.
+                        if (isMatched()) {
+                            start(name, nameId);
+                        }
+                        break;
+                    case XmlPullParser.TEXT:
+                        if (isMatched()) {
+                            if (text.isStreamed()) {
+                                streamText(nodeValueStack.peekLast().getName(), text.view(parser));
+                            } else {
+                                text.append(parser);
+                            }
+                        }
+                        break;
+                    case XmlPullParser.END_TAG:
+                        end();
+                        break;
+                }
+
+                if (isReady()) {
+                    return true;
+                }
+            }
+        } catch (XmlPullParserException | IOException e) {
+            throw new RuntimeException("Error while parsing XML.", e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Enter the element at the parser's start tag in the path cursors.
+     *
+     * @param name canonical name of the element
+     * @return false if the element leaves every path, in which case no cursor moved.
+     */
+    abstract boolean enter(String name);
+
+    /**
+     * @return true if the current element is at or inside a path.
+     */
+    abstract boolean isMatched();
+
+    /**
+     * Build the element at the parser's start tag, which is at or inside a path
+     * and has been pushed on the name path.
+     *
+     * @param name   canonical name of the element
+     * @param nameId symbol id of the name, or -1
+     */
+    abstract void start(String name, int nameId) throws XmlPullParserException, IOException;
+
+    /**
+     * Leave the element at the parser's end tag, and pop it off the name path.
+     */
+    abstract void end();
+
+    /**
+     * @return true to stop parsing after the current event
+     */
+    abstract boolean isReady();
+
+    /**
+     * Receive the text of an element opened as streamed.
+     *
+     * @param name name of the element
+     * @param text text of the event, valid until the parser moves on
+     */
+    void streamText(final String name, final CharSequence text) {
+        throw new IllegalStateException("Element does not stream text: " + name);
+    }
+
+    /**
+     * Push an element and open its text.
+     *
+     * @param node     element at the parser's start tag
+     * @param streamed true to pass its text to {@link #streamText} rather than collect it
+     */
+    final void open(final XMLElement node, final boolean streamed) {
+        nodeValueStack.addLast(node);
+        text.open(streamed);
+    }
+
+    /**
+     * @return the innermost element, popped and completed with its text
+     */
+    final XMLElement closeElement() {
+        final XMLElement node = nodeValueStack.removeLast();
+        node.setValue(text.close());
+        return node;
+    }
+
+    /**
+     * Advance the parser past the end of the current element
+     * without building any element state for its children.
+     *
+     * @param parser parser positioned at a START_TAG
+     */
+    static void skipSubtree(final XmlPullParser parser) throws XmlPullParserException, IOException {
+        skipLevels(parser, 1);
+    }
+
+    /**
+     * Advance the parser past the end tags of the given number of open elements.
+     *
+     * @param parser parser inside the innermost element
+     * @param levels number of open elements to leave
+     */
+    static void skipLevels(final XmlPullParser parser, final int levels) throws XmlPullParserException, IOException {
+        int level = levels;
+
+        while (level > 0) {
+            switch (parser.next()) {
+                case XmlPullParser.START_TAG:
+                    level++;
+                    break;
+                case XmlPullParser.END_TAG:
+                    level--;
+                    break;
+                case XmlPullParser.END_DOCUMENT:
+                    throw new XmlPullParserException("Unexpected end of document.", parser, null);
+            }
+        }
+    }
+
+    /**
+     * Load an XML element's attributes into a packed array.
+     *
+     * @param parser  parser at node start
+     * @param symbols table that canonicalizes the attribute names
+     * @return names and values of the attributes, alternating, or null if there are none
+     */
+    static String[] loadAttribs(final XmlPullParser parser, final SymbolTable symbols) {
+        final int attribCount = parser.getAttributeCount();
+        if (attribCount <= 0) {
+            return null;
+        }
+
+        final String[] attribs = new String[attribCount * 2];
+        for (int index = 0; index < attribCount; ++index) {
+            attribs[index * 2] = symbols.intern(parser.getAttributeName(index));
+            attribs[index * 2 + 1] = parser.getAttributeValue(index);
+        }
+        return attribs;
+    }
+}
@@ -0,0 +1,205 @@
+package com.abk.xmlobjectiterable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads regions of a memory-mapped file.
+ * <p/>
+ * The file is mapped read-only in segments of at most 1 GB.  Scanning reads
+ * the mapped bytes in place and streams read straight from the mapping, so no
+ * bytes are copied through intermediate stream buffers or read syscalls.
+ */
+final class MappedRegionSource implements RegionSource {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private final boolean closeChannel;
+    private final long length;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * @param channel      file to map
+     * @param closeChannel true if the channel is closed with this source
+     * @throws IOException if the file cannot be mapped
+     */
+    MappedRegionSource(final FileChannel channel, final boolean closeChannel) throws IOException {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.length = channel.size();
+        this.segments = new MappedByteBuffer[(int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+
+        for (int i = 0; i < segments.length; ++i) {
+            final long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, length - start));
+        }
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public int scan(final RecordScanner scanner, final int maxBytes) {
+        final long position = scanner.position();
+        if (position >= length) {
+            return -1;
+        }
+
+        final ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+        final int offset = (int) (position & (SEGMENT_SIZE - 1));
+        final int count = Math.min(maxBytes, segment.limit() - offset);
+
+        scanner.feed(segment, offset, count);
+        return count;
+    }
+
+    @Override
+    public InputStream open(final long start, final long end) throws IOException {
+        checkRegion(start, end);
+        return new MappedInputStream(start, end);
+    }
+
+    @Override
+    public byte[] read(final long start, final long end) throws IOException {
+        final InputStream is = open(start, end);
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("Range [" + start + ", " + end + ") is too long to read into an array.");
+        }
+        final byte[] bytes = new byte[(int) (end - start)];
+        int pos = 0;
+        while (pos < bytes.length) {
+            final int read = is.read(bytes, pos, bytes.length - pos);
+            if (read == -1) {
+                throw new EOFException("Unexpected end of file.");
+            }
+            pos += read;
+        }
+        return bytes;
+    }
+
+    /**
+     * Read a big-endian long in place.  May be called from any thread.
+     *
+     * @param position offset of the first byte
+     * @return the long at the offset
+     * @throws IOException on read failure
+     */
+    long getLong(final long position) throws IOException {
+        return bytes(position, 8).getLong();
+    }
+
+    /**
+     * Read a big-endian int in place.  May be called from any thread.
+     *
+     * @param position offset of the first byte
+     * @return the int at the offset
+     * @throws IOException on read failure
+     */
+    int getInt(final long position) throws IOException {
+        return bytes(position, 4).getInt();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return view of the bytes at the position, or a copy if they straddle two segments.
+     */
+    private ByteBuffer bytes(final long position, final int count) throws IOException {
+        checkRegion(position, position + count);
+        final ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+        final int offset = (int) (position & (SEGMENT_SIZE - 1));
+        if (offset + count > segment.limit()) {
+            return ByteBuffer.wrap(read(position, position + count));
+        }
+
+        final ByteBuffer view = segment.duplicate();
+        view.position(offset);
+        return view;
+    }
+
+    /**
+     * @throws EOFException if the range is not within the file, as for a truncated or corrupt index
+     */
+    private void checkRegion(final long start, final long end) throws EOFException {
+        if (start < 0 || end < start || end > length) {
+            throw new EOFException("Range [" + start + ", " + end + ") is outside the file of " + length + " bytes.");
+        }
+    }
+
+    /**
+     * Streams a range of the mapping.  Each stream reads its own
+     * view of the segments, so streams may be used concurrently.
+     */
+    private final class MappedInputStream extends InputStream {
+        private final long end;
+        private long position;
+        private ByteBuffer segment;
+
+        private MappedInputStream(final long start, final long end) {
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            if (position >= end) {
+                return -1;
+            }
+
+            final int b = view().get() & 0xFF;
+            position++;
+
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (position >= end) {
+                return -1;
+            }
+
+            final ByteBuffer view = view();
+            final int count = (int) Math.min(Math.min(len, view.remaining()), end - position);
+            view.get(b, off, count);
+            position += count;
+
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final long count = Math.max(0, Math.min(n, end - position));
+            position += count;
+            segment = null;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        /**
+         * @return view of the current segment positioned at the stream position.
+         */
+        private ByteBuffer view() {
+            if (segment == null || !segment.hasRemaining()) {
+                segment = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+                segment.position((int) (position & (SEGMENT_SIZE - 1)));
+            }
+            return segment;
+        }
+    }
+}
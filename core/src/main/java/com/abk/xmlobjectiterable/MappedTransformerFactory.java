@@ -0,0 +1,348 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Defaults;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.primitives.Primitives;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates transformers for an {@link XMLMapping}.
+ * <p/>
+ * The POJO's constructor and setters are looked up once per mapping and bound
+ * to {@link MethodHandle}s with the String conversions of their arguments folded
+ * in, so transforming a record costs a handful of handle invocations rather than
+ * reflective calls.  Factories are cached by mapping, and each factory can be
+ * passed to {@link XMLObjectIterable.Builder#withTransform(Supplier)} as is.
+ * <p/>
+ * Requires java.lang.invoke, which is available on Java 7 and Android API 26.
+ * The rest of the library does not depend on this class.
+ *
+ * @param <T> type of POJO
+ */
+public final class MappedTransformerFactory<T> implements Supplier<XMLTransformer<T>> {
+
+    private static final int CACHE_SIZE = 256;
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+    private static final MethodHandle TRIM;
+    /** (String)boolean, true for a missing value. */
+    private static final MethodHandle IS_NULL;
+    /** (IllegalArgumentException, String)Object, throws a {@link ConversionException}. */
+    private static final MethodHandle CONVERSION_FAILED;
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TRIM = LOOKUP.findVirtual(String.class, "trim", MethodType.methodType(String.class));
+            IS_NULL = lookup.findStatic(MappedTransformerFactory.class, "isNull",
+                    MethodType.methodType(boolean.class, String.class));
+            CONVERSION_FAILED = lookup.findStatic(MappedTransformerFactory.class, "conversionFailed",
+                    MethodType.methodType(Object.class, IllegalArgumentException.class, String.class));
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * A value that does not convert to the type of its parameter.
+     */
+    private static final class ConversionException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private ConversionException(final String value, final IllegalArgumentException cause) {
+            super("Cannot convert \"" + value + "\".", cause);
+        }
+    }
+
+    private static final LoadingCache<XMLMapping<?>, MappedTransformerFactory<?>> FACTORIES = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build(new CacheLoader<XMLMapping<?>, MappedTransformerFactory<?>>() {
+                @Override
+                public MappedTransformerFactory<?> load(final XMLMapping<?> mapping) {
+                    return new MappedTransformerFactory<>(mapping);
+                }
+            });
+
+    private final XMLMapping<T> mapping;
+    /** Bindings of constructor arguments first, then of setters. */
+    private final XMLMapping.Binding[] bindings;
+    /** Indexes into bindings by element name; bindings of the record itself are under its name. */
+    private final Map<String, int[]> byName;
+    private final int[] required;
+    /** (String[])Object, spreading the argument values into the constructor. */
+    private final MethodHandle constructor;
+    /** (Object, String)void for each setter. */
+    private final MethodHandle[] setters;
+
+    private MappedTransformerFactory(final XMLMapping<T> mapping) {
+        this.mapping = mapping;
+
+        final List<XMLMapping.Binding> all = new ArrayList<>(mapping.arguments());
+        all.addAll(mapping.setters());
+        this.bindings = all.toArray(new XMLMapping.Binding[all.size()]);
+
+        final String recordName = mapping.recordName();
+        final Map<String, int[]> names = new HashMap<>();
+        final List<Integer> requiredIndexes = new ArrayList<>();
+        for (int i = 0; i < bindings.length; ++i) {
+            final String name = bindings[i].elementName() == null ? recordName : bindings[i].elementName();
+            final int[] indexes = names.get(name);
+            final int[] grown = indexes == null ? new int[1] : Arrays.copyOf(indexes, indexes.length + 1);
+            grown[grown.length - 1] = i;
+            names.put(name, grown);
+            if (bindings[i].required) {
+                requiredIndexes.add(i);
+            }
+        }
+        this.byName = names;
+        this.required = new int[requiredIndexes.size()];
+        for (int i = 0; i < required.length; ++i) {
+            required[i] = requiredIndexes.get(i);
+        }
+
+        try {
+            this.constructor = constructorHandle(mapping.getType(), mapping.arguments().size());
+            this.setters = new MethodHandle[mapping.setters().size()];
+            for (int i = 0; i < setters.length; ++i) {
+                setters[i] = setterHandle(mapping.getType(), mapping.setters().get(i).setter);
+            }
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot bind " + mapping, e);
+        }
+    }
+
+    /**
+     * @param mapping mapping of records to POJOs
+     * @param <T>     type of POJO
+     * @return factory for the mapping, shared with equal mappings
+     * @throws IllegalArgumentException if the POJO has no public constructor or
+     *                                  setter matching the mapping
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> MappedTransformerFactory<T> forMapping(final XMLMapping<T> mapping) {
+        try {
+            return (MappedTransformerFactory<T>) FACTORIES.getUnchecked(mapping);
+        } catch (final UncheckedExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * @return mapping of this factory
+     */
+    public XMLMapping<T> getMapping() {
+        return mapping;
+    }
+
+    /**
+     * @return a new transformer.  Transformers hold the state of one record and
+     * are not thread-safe.
+     */
+    @Override
+    public XMLTransformer<T> get() {
+        return new MappedTransformer<>(this);
+    }
+
+    private static MethodHandle constructorHandle(final Class<?> type, final int arity) throws ReflectiveOperationException {
+        Constructor<?> match = null;
+        for (Constructor<?> candidate : type.getConstructors()) {
+            if (candidate.getParameterTypes().length == arity && (match == null || allStrings(candidate.getParameterTypes()))) {
+                match = candidate;
+            }
+        }
+        if (match == null) {
+            throw new NoSuchMethodException("No public constructor of " + type.getName() + " takes " + arity + " arguments.");
+        }
+
+        MethodHandle handle = LOOKUP.unreflectConstructor(match);
+        final Class<?>[] parameters = match.getParameterTypes();
+        for (int i = 0; i < parameters.length; ++i) {
+            final MethodHandle converter = converter(parameters[i]);
+            if (converter != null) {
+                handle = MethodHandles.filterArguments(handle, i, converter);
+            }
+        }
+
+        final Class<?>[] strings = new Class<?>[arity];
+        Arrays.fill(strings, String.class);
+        return handle.asType(MethodType.methodType(Object.class, strings)).asSpreader(String[].class, arity);
+    }
+
+    private static MethodHandle setterHandle(final Class<?> type, final String name) throws ReflectiveOperationException {
+        Method match = null;
+        for (Method candidate : type.getMethods()) {
+            if (candidate.getName().equals(name) && candidate.getParameterTypes().length == 1
+                    && (match == null || allStrings(candidate.getParameterTypes()))) {
+                match = candidate;
+            }
+        }
+        if (match == null) {
+            throw new NoSuchMethodException("No public method " + type.getName() + "." + name + " takes one argument.");
+        }
+
+        MethodHandle handle = LOOKUP.unreflect(match);
+        final MethodHandle converter = converter(match.getParameterTypes()[0]);
+        if (converter != null) {
+            handle = MethodHandles.filterArguments(handle, 1, converter);
+        }
+        return handle.asType(MethodType.methodType(void.class, Object.class, String.class));
+    }
+
+    /**
+     * @return (String)type converting a trimmed value, or null if Strings are accepted as they are.
+     * A missing value converts to the type's default, such as 0 or null, and a value that does
+     * not convert throws {@link ConversionException}.
+     */
+    private static MethodHandle converter(final Class<?> type) throws ReflectiveOperationException {
+        if (type.isAssignableFrom(String.class)) {
+            return null;
+        }
+
+        final Class<?> boxed = Primitives.wrap(type);
+        MethodHandle handle;
+        try {
+            handle = LOOKUP.findStatic(boxed, "valueOf", MethodType.methodType(boxed, String.class));
+        } catch (final NoSuchMethodException e) {
+            handle = LOOKUP.findConstructor(boxed, MethodType.methodType(void.class, String.class));
+        }
+
+        final MethodType converterType = MethodType.methodType(type, String.class);
+        final MethodHandle convert = MethodHandles.catchException(
+                MethodHandles.filterArguments(handle, 0, TRIM).asType(converterType),
+                IllegalArgumentException.class,
+                CONVERSION_FAILED.asType(MethodType.methodType(type, IllegalArgumentException.class, String.class)));
+        final MethodHandle missing = MethodHandles.dropArguments(
+                MethodHandles.constant(type, Defaults.defaultValue(type)), 0, String.class);
+        return MethodHandles.guardWithTest(IS_NULL, missing, convert);
+    }
+
+    private static boolean isNull(final String value) {
+        return value == null;
+    }
+
+    private static Object conversionFailed(final IllegalArgumentException e, final String value) {
+        throw new ConversionException(value, e);
+    }
+
+    private static boolean allStrings(final Class<?>[] types) {
+        for (Class<?> type : types) {
+            if (type != String.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the values of one record and builds the POJO from them.
+     */
+    private static final class MappedTransformer<T> implements XMLTransformer<T> {
+        private final MappedTransformerFactory<T> factory;
+        private final String[] values;
+        private final String[] arguments;
+        private boolean complete;
+
+        private MappedTransformer(final MappedTransformerFactory<T> factory) {
+            this.factory = factory;
+            this.values = new String[factory.bindings.length];
+            this.arguments = new String[factory.mapping.arguments().size()];
+        }
+
+        @Override
+        public Optional<T> transform() {
+            if (!canTransform()) {
+                return Optional.absent();
+            }
+
+            System.arraycopy(values, 0, arguments, 0, arguments.length);
+            try {
+                final Object pojo = (Object) factory.constructor.invokeExact(arguments);
+                for (int i = 0; i < factory.setters.length; ++i) {
+                    final String value = values[arguments.length + i];
+                    if (value != null) {
+                        factory.setters[i].invokeExact(pojo, value);
+                    }
+                }
+                return Optional.of(factory.mapping.getType().cast(pojo));
+            } catch (final ConversionException e) {
+                // A value that does not convert to its parameter skips the record.
+                return Optional.absent();
+            } catch (final Throwable t) {
+                Throwables.propagateIfPossible(t);
+                throw new RuntimeException("Failed to create " + factory.mapping.getType().getName(), t);
+            }
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            if (complete) {
+                // The previous record was not transformed.
+                reset();
+            }
+
+            final int depth = path.size() - factory.mapping.rootDepth();
+            final int[] indexes = factory.byName.get(node.getName());
+            if (indexes != null) {
+                for (int index : indexes) {
+                    final XMLMapping.Binding binding = factory.bindings[index];
+                    if (matches(binding.path, depth, path)) {
+                        final String value = binding.attribute == null ? node.getValue() : node.getAttribute(binding.attribute);
+                        if (value != null) {
+                            values[index] = value;
+                        }
+                    }
+                }
+            }
+
+            complete = depth == 0;
+        }
+
+        private boolean matches(final String[] bindingPath, final int depth, final List<String> path) {
+            if (bindingPath.length != depth) {
+                return false;
+            }
+            final int rootDepth = factory.mapping.rootDepth();
+            for (int i = 0; i < bindingPath.length - 1; ++i) {
+                if (!bindingPath[i].equals(path.get(rootDepth + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void reset() {
+            Arrays.fill(values, null);
+            complete = false;
+        }
+
+        @Override
+        public boolean canTransform() {
+            if (!complete) {
+                return false;
+            }
+            for (int index : factory.required) {
+                if (values[index] == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Leases parsers created by a configured factory and keeps them per thread
+ * for reuse, so that parsing many small documents does not pay for factory
+ * discovery and parser setup each time.
+ * <p/>
+ * Pass the pool to {@link XMLObjectIterable.Builder#withParserPool(ParserPool)}.
+ * A parser is leased when an iterator or parallel chunk starts and is returned
+ * to the pool of the thread that reaches the end of the document.  Returned
+ * parsers are reset by setting a null input, which keeps the features they
+ * were created with.  Parsers of iterations that are abandoned before the end
+ * are left to the garbage collector.
+ */
+public final class ParserPool {
+
+    private static final int DEFAULT_MAX_IDLE = 4;
+
+    private final XmlPullParserFactory factory;
+    private final int maxIdle;
+    private final ThreadLocal<Deque<XmlPullParser>> idle = new ThreadLocal<Deque<XmlPullParser>>() {
+        @Override
+        protected Deque<XmlPullParser> initialValue() {
+            return new ArrayDeque<>();
+        }
+    };
+
+    /**
+     * @param factory configured factory that creates parsers when a thread has none idle
+     */
+    public ParserPool(final XmlPullParserFactory factory) {
+        this(factory, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param factory configured factory that creates parsers when a thread has none idle
+     * @param maxIdle maximum number of idle parsers kept per thread
+     */
+    public ParserPool(final XmlPullParserFactory factory, final int maxIdle) {
+        this.factory = Preconditions.checkNotNull(factory, "XmlPullParserFactory cannot be null.");
+        Preconditions.checkArgument(maxIdle > 0, "Pool size must be positive.");
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Discover the default XmlPullParserFactory once and pool its parsers.
+     *
+     * @param namespaceAware true to report names without namespace prefix
+     * @return parser pool
+     * @throws XmlPullParserException if no factory can be found
+     */
+    public static ParserPool newInstance(final boolean namespaceAware) throws XmlPullParserException {
+        final XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(namespaceAware);
+        return new ParserPool(factory);
+    }
+
+    /**
+     * @return factory the pool creates parsers with
+     */
+    public XmlPullParserFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * @return an idle parser of the calling thread, or a new one
+     * @throws XmlPullParserException if the factory fails to create a parser
+     */
+    public XmlPullParser lease() throws XmlPullParserException {
+        final XmlPullParser parser = idle.get().pollLast();
+        return parser != null ? parser : factory.newPullParser();
+    }
+
+    /**
+     * Reset a parser obtained from {@link #lease()} and keep it for reuse
+     * by the calling thread.  The parser must not be used afterwards.
+     * Parsers that fail to reset are dropped.
+     *
+     * @param parser parser to return
+     */
+    public void release(final XmlPullParser parser) {
+        try {
+            parser.setInput((Reader) null);
+        } catch (final XmlPullParserException | RuntimeException e) {
+            return;
+        }
+
+        final Deque<XmlPullParser> parsers = idle.get();
+        if (parsers.size() < maxIdle) {
+            parsers.addLast(parser);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+import org.xmlpull.v1.XmlPullParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiled form of the root node path passed to
+ * {@link XMLObjectIterable.Builder#onNodes(String)}.
+ * <p/>
+ * Paths are a subset of XPath: steps separated by '/', where a step is an
+ * element name or '*' followed by any number of attribute predicates such as
+ * [@xmlUrl] or [@type='rss'], and '//' lets the next step match at any depth
+ * below the previous one.  Paths are absolute whether or not they start with '/'.
+ * <p/>
+ * The path is compiled into a nondeterministic automaton with one state per
+ * step.  A {@link Cursor} keeps the set of active states of every open element
+ * as a bit mask, so each start tag costs one pass over the active steps and
+ * each end tag a single pop.  Elements inside a matched record are not matched
+ * again, so records never nest.
+ */
+final class PathMatcher {
+
+    static final int DEPTH_OUTSIDE = 0;
+    static final int DEPTH_AT_ROOT = 1;
+    static final int DEPTH_INSIDE = 2;
+
+    /** Steps are states of a 64 bit mask, including the accepting state. */
+    private static final int MAX_STEPS = 63;
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * One location step: an element name test and attribute predicates.
+     */
+    private static final class Step {
+        /** Element name, or null for '*'. */
+        private final String name;
+        /** True if the step may match at any depth below the previous one. */
+        private final boolean descendant;
+        /** Attribute names of the predicates. */
+        private final String[] attributes;
+        /** Required values of the predicates, null if the attribute only has to be present. */
+        private final String[] values;
+
+        private Step(final String name, final boolean descendant, final List<String> attributes, final List<String> values) {
+            this.name = name.equals("*") ? null : name;
+            this.descendant = descendant;
+            this.attributes = attributes.toArray(new String[attributes.size()]);
+            this.values = values.toArray(new String[values.size()]);
+        }
+
+        private boolean matches(final String elementName, final XmlPullParser parser) {
+            if (name != null && !name.equals(elementName)) {
+                return false;
+            }
+
+            for (int i = 0; i < attributes.length; ++i) {
+                Preconditions.checkState(parser != null, "Attribute predicates need a parser.");
+                final String value = attribute(parser, attributes[i]);
+                if (value == null || (values[i] != null && !values[i].equals(value))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static String attribute(final XmlPullParser parser, final String name) {
+            for (int i = 0; i < parser.getAttributeCount(); ++i) {
+                if (name.equals(parser.getAttributeName(i))) {
+                    return parser.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Step[] steps;
+    private final boolean fixed;
+
+    private PathMatcher(final Step[] steps) {
+        this.steps = steps;
+
+        boolean fixed = true;
+        for (Step step : steps) {
+            fixed &= !step.descendant && step.attributes.length == 0;
+        }
+        this.fixed = fixed;
+    }
+
+    /**
+     * @param path list of xml elements which define root of node to transform, each
+     *             a step that may be '*' or carry predicates.
+     * @return compiled matcher
+     */
+    static PathMatcher compile(final List<String> path) {
+        Preconditions.checkNotNull(path, "Path cannot be null.");
+        Preconditions.checkArgument(!path.isEmpty(), "Path must contain at least one element.");
+
+        final List<Step> steps = new ArrayList<>();
+        for (String step : path) {
+            final Parser parser = new Parser(step.trim());
+            steps.add(parser.step(false));
+            Preconditions.checkArgument(parser.atEnd(), "Invalid path step: " + step);
+        }
+        return create(steps);
+    }
+
+    /**
+     * @param path path expression such as "opml/body//outline[@type='rss']"
+     * @return compiled matcher
+     */
+    static PathMatcher compile(final String path) {
+        Preconditions.checkNotNull(path, "Path cannot be null.");
+
+        final Parser parser = new Parser(path.trim());
+        final List<Step> steps = new ArrayList<>();
+        while (!parser.atEnd()) {
+            final int separator = parser.separator();
+            parser.check(steps.isEmpty() || separator != Parser.NONE, "missing '/'");
+            if (separator == Parser.CHILD && parser.atEnd()) {
+                // Trailing '/'.
+                break;
+            }
+            steps.add(parser.step(separator == Parser.DESCENDANT));
+        }
+        Preconditions.checkArgument(!steps.isEmpty(), "Path must contain at least one element.");
+        return create(steps);
+    }
+
+    private static PathMatcher create(final List<Step> steps) {
+        Preconditions.checkArgument(steps.size() <= MAX_STEPS, "Path cannot have more than " + MAX_STEPS + " steps.");
+        return new PathMatcher(steps.toArray(new Step[steps.size()]));
+    }
+
+    /**
+     * @return number of steps in the root path, which is the depth of every
+     * record if the path is fixed.
+     */
+    int length() {
+        return steps.length;
+    }
+
+    /**
+     * @return true if records can only be at the depth of the path and matching
+     * needs no attributes, as required to scan raw bytes for records.
+     */
+    boolean isFixed() {
+        return fixed;
+    }
+
+    /**
+     * @return a new cursor positioned at the start of the document.
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Tracks the position of a parser relative to the root path.
+     */
+    final class Cursor {
+        private final long accept = 1L << steps.length;
+        /** Active states of each open element, index 0 is the document. */
+        private long[] states = new long[INITIAL_DEPTH];
+        private int depth;
+        /** Depth of the current record, 0 outside of records. */
+        private int recordDepth;
+
+        private Cursor() {
+            states[0] = 1L;
+        }
+
+        /**
+         * Descend into an element whose path cannot depend on attribute predicates.
+         *
+         * @param name element name
+         * @return false if no record can be at or inside the element, in which
+         * case the cursor is unchanged and the element's subtree can be skipped.
+         */
+        boolean enter(final String name) {
+            return enter(name, null);
+        }
+
+        /**
+         * Descend into an element.
+         *
+         * @param name   element name
+         * @param parser parser positioned at the element's start tag, for predicates
+         * @return false if no record can be at or inside the element, in which
+         * case the cursor is unchanged and the element's subtree can be skipped.
+         */
+        boolean enter(final String name, final XmlPullParser parser) {
+            long next = 0;
+            if (recordDepth == 0) {
+                for (long active = states[depth]; active != 0; active &= active - 1) {
+                    final int state = Long.numberOfTrailingZeros(active);
+                    final Step step = steps[state];
+                    if (step.descendant) {
+                        next |= 1L << state;
+                    }
+                    if (step.matches(name, parser)) {
+                        next |= 1L << (state + 1);
+                    }
+                }
+
+                if (next == 0) {
+                    return false;
+                }
+            }
+
+            push(next);
+            if ((next & accept) != 0) {
+                recordDepth = depth;
+            }
+            return true;
+        }
+
+        /**
+         * Descend into an element rejected by {@link #enter(String)} that is
+         * still parsed for another path.  Nothing inside it matches.
+         */
+        void enterUnmatched() {
+            push(0);
+        }
+
+        private void push(final long next) {
+            if (++depth == states.length) {
+                states = Arrays.copyOf(states, depth * 2);
+            }
+            states[depth] = next;
+        }
+
+        /**
+         * Ascend out of the current element.
+         */
+        void exit() {
+            if (recordDepth == depth) {
+                recordDepth = 0;
+            }
+            depth--;
+        }
+
+        /**
+         * @return number of elements entered and not yet exited.
+         */
+        int depth() {
+            return depth;
+        }
+
+        /**
+         * @return true if the current element is at or inside a record.
+         */
+        boolean isMatched() {
+            return recordDepth != 0;
+        }
+
+        /**
+         * @return position of the current element relative to the root path.
+         */
+        int position() {
+            if (recordDepth == 0) {
+                return DEPTH_OUTSIDE;
+            }
+
+            return depth == recordDepth ? DEPTH_AT_ROOT : DEPTH_INSIDE;
+        }
+    }
+
+    /**
+     * Reads steps from a path expression.
+     */
+    private static final class Parser {
+        private static final int NONE = 0;
+        private static final int CHILD = 1;
+        private static final int DESCENDANT = 2;
+
+        private final String path;
+        private int pos;
+
+        private Parser(final String path) {
+            this.path = path;
+        }
+
+        private boolean atEnd() {
+            return pos == path.length();
+        }
+
+        /**
+         * @return NONE, CHILD for '/' or DESCENDANT for '//'
+         */
+        private int separator() {
+            if (pos == path.length() || path.charAt(pos) != '/') {
+                return NONE;
+            }
+            pos++;
+            if (pos < path.length() && path.charAt(pos) == '/') {
+                pos++;
+                return DESCENDANT;
+            }
+            return CHILD;
+        }
+
+        private Step step(final boolean descendant) {
+            final int start = pos;
+            while (pos < path.length() && path.charAt(pos) != '/' && path.charAt(pos) != '[') {
+                pos++;
+            }
+            final String name = path.substring(start, pos).trim();
+            check(!name.isEmpty(), "missing element name");
+
+            final List<String> attributes = new ArrayList<>();
+            final List<String> values = new ArrayList<>();
+            while (pos < path.length() && path.charAt(pos) == '[') {
+                pos++;
+                skipWhitespace();
+                check(pos < path.length() && path.charAt(pos) == '@', "only attribute predicates are supported");
+                pos++;
+
+                final int nameStart = pos;
+                while (pos < path.length() && path.charAt(pos) != '=' && path.charAt(pos) != ']') {
+                    pos++;
+                }
+                final String attribute = path.substring(nameStart, pos).trim();
+                check(!attribute.isEmpty(), "missing attribute name");
+
+                String value = null;
+                if (pos < path.length() && path.charAt(pos) == '=') {
+                    pos++;
+                    skipWhitespace();
+                    check(pos < path.length() && (path.charAt(pos) == '\'' || path.charAt(pos) == '"'),
+                            "attribute value must be quoted");
+                    final char quote = path.charAt(pos++);
+                    final int end = path.indexOf(quote, pos);
+                    check(end >= 0, "unterminated attribute value");
+                    value = path.substring(pos, end);
+                    pos = end + 1;
+                    skipWhitespace();
+                }
+                check(pos < path.length() && path.charAt(pos) == ']', "missing ']'");
+                pos++;
+
+                attributes.add(attribute);
+                values.add(value);
+            }
+            skipWhitespace();
+
+            return new Step(name, descendant, attributes, values);
+        }
+
+        private void skipWhitespace() {
+            while (pos < path.length() && Character.isWhitespace(path.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private void check(final boolean condition, final String message) {
+            Preconditions.checkArgument(condition, "Invalid path \"%s\" at %s: %s", path, pos, message);
+        }
+    }
+}
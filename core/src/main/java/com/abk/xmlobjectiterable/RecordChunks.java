@@ -0,0 +1,216 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.io.Closeables;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Groups the records of a file into chunks of consecutive records, each of
+ * which can be parsed on its own as a small standalone document.
+ * <p/>
+ * A chunk document is made of the prolog, the start tags of the ancestors of
+ * its first record, the chunk bytes and the end tags of the ancestors of its
+ * last record.
+ */
+final class RecordChunks implements RecordScanner.Listener {
+
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * A run of consecutive records.
+     */
+    static final class Chunk {
+        private final RecordScanner.Ancestors first;
+        private final long start;
+        private RecordScanner.Ancestors last;
+        private long end;
+        private int records;
+
+        private Chunk(final RecordScanner.Ancestors first, final long start) {
+            this.first = first;
+            this.start = start;
+        }
+
+        /**
+         * @return number of records in the chunk
+         */
+        int records() {
+            return records;
+        }
+
+        /**
+         * @return number of bytes in the chunk
+         */
+        long length() {
+            return end - start;
+        }
+    }
+
+    private final RegionSource source;
+    private final PathMatcher rootNodePath;
+    private final SymbolTable symbols;
+    private final boolean textViews;
+    private final boolean reuseElements;
+    private final RecordScanner scanner;
+    private final long chunkSize;
+    private final Deque<Chunk> pending = new ArrayDeque<>();
+
+    private Chunk open;
+    private boolean scanned;
+
+    private byte[] prolog;
+    private RecordScanner.Ancestors prefixAncestors;
+    private byte[] prefix;
+
+    /**
+     * @param source         document to chunk, closed with the chunker
+     * @param rootNodePath   compiled path of the records
+     * @param symbols        table that canonicalizes names of parsed elements
+     * @param textViews      true to pass element text as views, see {@link XMLObjectIterable.Builder#withTextViews(boolean)}
+     * @param reuseElements  true to reuse elements, see {@link XMLObjectIterable.Builder#withReusedElements(boolean)}
+     * @param namespaceAware true if the parser reports names without namespace prefix
+     * @param chunkSize      minimum number of bytes per chunk
+     */
+    RecordChunks(final RegionSource source, final PathMatcher rootNodePath, final SymbolTable symbols,
+                 final boolean textViews, final boolean reuseElements, final boolean namespaceAware,
+                 final long chunkSize) {
+        this.source = source;
+        this.rootNodePath = rootNodePath;
+        this.symbols = symbols;
+        this.textViews = textViews;
+        this.reuseElements = reuseElements;
+        this.scanner = new RecordScanner(rootNodePath, namespaceAware, this);
+        this.chunkSize = Math.max(MIN_CHUNK_SIZE, chunkSize);
+    }
+
+    @Override
+    public void onRecord(final RecordScanner.Ancestors ancestors, final long start, final long end) {
+        if (open == null) {
+            open = new Chunk(ancestors, start);
+        }
+        open.last = ancestors;
+        open.end = end;
+        open.records++;
+
+        if (open.length() >= chunkSize) {
+            pending.add(open);
+            open = null;
+        }
+    }
+
+    /**
+     * Scan ahead to the next chunk.
+     *
+     * @return next chunk or null at the end of the file.
+     * @throws IOException on read failure
+     */
+    Chunk next() throws IOException {
+        while (pending.isEmpty() && !scanned) {
+            if (source.scan(scanner, SCAN_BUFFER_SIZE) == -1) {
+                scanned = true;
+                if (open != null) {
+                    pending.add(open);
+                    open = null;
+                }
+            }
+        }
+
+        return pending.poll();
+    }
+
+    /**
+     * Scan the rest of the file.
+     *
+     * @return all remaining chunks
+     * @throws IOException on read failure
+     */
+    List<Chunk> remaining() throws IOException {
+        final List<Chunk> chunks = new ArrayList<>();
+        for (Chunk chunk = next(); chunk != null; chunk = next()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Open a chunk as a standalone document.  May be
+     * called from any thread.
+     *
+     * @param chunk chunk returned by next()
+     * @return document bytes
+     * @throws IOException on read failure
+     */
+    InputStream open(final Chunk chunk) throws IOException {
+        return new SequenceInputStream(
+                new ByteArrayInputStream(prefix(chunk.first)),
+                new SequenceInputStream(
+                        source.open(chunk.start, chunk.end),
+                        new ByteArrayInputStream(chunk.last.closingTags())));
+    }
+
+    /**
+     * Parse the records of a chunk.  May be called from any thread.
+     *
+     * @param chunk       chunk returned by next()
+     * @param parser      parser to read the chunk with
+     * @param transformer transformer for the chunk's records
+     * @param transformers pool to return the transformer to after the chunk, or null
+     * @param parsers     pool to return the parser to after the chunk, or null
+     * @param <T>         type of POJO
+     * @return lazily parsed POJOs
+     * @throws IOException            on read failure
+     * @throws XmlPullParserException if the parser rejects the input
+     */
+    <T> Iterable<T> parse(final Chunk chunk, final XmlPullParser parser, final XMLTransformer<T> transformer,
+                          final TransformerPool<T> transformers, final ParserPool parsers)
+            throws IOException, XmlPullParserException {
+        final InputStream is = open(chunk);
+        parser.setInput(is, null);
+
+        return new XMLObjectIterable.PullParserIterable<>(parser, is, rootNodePath, symbols, textViews,
+                reuseElements, transformer, transformers, parsers);
+    }
+
+    /**
+     * Close the underlying file.
+     */
+    void close() {
+        try {
+            Closeables.close(source, true);
+        } catch (final IOException e) {
+            // Swallowed by Closeables.
+        }
+    }
+
+    /**
+     * @return the prolog followed by the start tags of the ancestors.
+     */
+    private synchronized byte[] prefix(final RecordScanner.Ancestors ancestors) throws IOException {
+        if (ancestors == prefixAncestors) {
+            return prefix;
+        }
+
+        if (prolog == null) {
+            prolog = source.read(0, ancestors.prologEnd);
+        }
+
+        final byte[] tags = ancestors.startTags(source);
+        final byte[] bytes = Arrays.copyOf(prolog, prolog.length + tags.length);
+        System.arraycopy(tags, 0, bytes, prolog.length, tags.length);
+
+        prefixAncestors = ancestors;
+        prefix = bytes;
+        return prefix;
+    }
+}
@@ -0,0 +1,502 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Scans raw XML bytes for the boundaries of elements matching the root path,
+ * without decoding text or building any element state.
+ * <p/>
+ * The scanner is a push-driven state machine: bytes may be fed in chunks of
+ * any size and partial tokens are carried across calls.  Only ASCII-compatible
+ * encodings (such as UTF-8 and ISO-8859-1) are supported.
+ */
+final class RecordScanner {
+
+    /**
+     * Receives the byte range of every matched record.
+     */
+    interface Listener {
+        /**
+         * @param ancestors open path elements enclosing the record
+         * @param start     offset of the '<' of the record start tag
+         * @param end       offset just past the '>' of the record end tag
+         */
+        void onRecord(Ancestors ancestors, long start, long end);
+    }
+
+    /**
+     * Location of the prolog and of the start tags of the path elements that
+     * enclose a record.  Instances are shared by all records with the same
+     * ancestors and never change once handed to a listener.
+     */
+    static final class Ancestors {
+        /** Offset of the document element, the end of the prolog. */
+        final long prologEnd;
+        final long[] tagStarts;
+        final long[] tagEnds;
+        final byte[][] names;
+
+        private Ancestors(final long prologEnd, final long[] tagStarts, final long[] tagEnds, final byte[][] names) {
+            this.prologEnd = prologEnd;
+            this.tagStarts = tagStarts;
+            this.tagEnds = tagEnds;
+            this.names = names;
+        }
+
+        /**
+         * @return number of ancestor elements
+         */
+        int size() {
+            return names.length;
+        }
+
+        /**
+         * @param source document the ancestors were scanned from
+         * @return the start tags of the ancestors, outermost first.
+         * @throws IOException on read failure
+         */
+        byte[] startTags(final RegionSource source) throws IOException {
+            final byte[][] tags = new byte[names.length][];
+            int length = 0;
+            for (int i = 0; i < tags.length; ++i) {
+                tags[i] = source.read(tagStarts[i], tagEnds[i]);
+                length += tags[i].length;
+            }
+
+            final byte[] bytes = new byte[length];
+            int pos = 0;
+            for (byte[] tag : tags) {
+                System.arraycopy(tag, 0, bytes, pos, tag.length);
+                pos += tag.length;
+            }
+            return bytes;
+        }
+
+        /**
+         * @return the end tags that close the ancestors, innermost first.
+         */
+        byte[] closingTags() {
+            int length = 0;
+            for (byte[] name : names) {
+                length += name.length + 3;
+            }
+
+            final byte[] tags = new byte[length];
+            int pos = 0;
+            for (int i = names.length - 1; i >= 0; --i) {
+                tags[pos++] = '<';
+                tags[pos++] = '/';
+                System.arraycopy(names[i], 0, tags, pos, names[i].length);
+                pos += names[i].length;
+                tags[pos++] = '>';
+            }
+            return tags;
+        }
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int S_TEXT = 0;
+    private static final int S_LT = 1;
+    private static final int S_START_NAME = 2;
+    private static final int S_IN_TAG = 3;
+    private static final int S_ATTR_DQ = 4;
+    private static final int S_ATTR_SQ = 5;
+    private static final int S_END_TAG = 6;
+    private static final int S_PI = 7;
+    private static final int S_PI_Q = 8;
+    private static final int S_BANG = 9;
+    private static final int S_COMMENT_START = 10;
+    private static final int S_COMMENT = 11;
+    private static final int S_CDATA_OPEN = 12;
+    private static final int S_CDATA = 13;
+    private static final int S_DECL = 14;
+    private static final int S_DECL_DQ = 15;
+    private static final int S_DECL_SQ = 16;
+
+    private final PathMatcher.Cursor cursor;
+    private final int pathLength;
+    private final boolean namespaceAware;
+    private final Listener listener;
+    private final NameTable names = new NameTable();
+
+    private final long[] ancestorStarts;
+    private final long[] ancestorEnds;
+    private final byte[][] ancestorNames;
+    private Ancestors ancestors;
+
+    private int state = S_TEXT;
+    private long position;
+    private long tagStart;
+    private long prologEnd = -1;
+    private long recordStart = -1;
+    private int skipLevel;
+    private int counter;
+    private boolean slash;
+
+    private byte[] name = new byte[32];
+    private int nameLength;
+
+    /**
+     * @param rootNodePath   compiled path of the records
+     * @param namespaceAware true if names should be matched without their namespace prefix
+     * @param listener       receives record boundaries
+     */
+    RecordScanner(final PathMatcher rootNodePath, final boolean namespaceAware, final Listener listener) {
+        Preconditions.checkArgument(rootNodePath.isFixed(), "Records can only be scanned on a path without '//' or predicates.");
+        this.cursor = rootNodePath.cursor();
+        this.pathLength = rootNodePath.length();
+        this.namespaceAware = namespaceAware;
+        this.listener = listener;
+        this.ancestorStarts = new long[pathLength - 1];
+        this.ancestorEnds = new long[pathLength - 1];
+        this.ancestorNames = new byte[pathLength - 1][];
+    }
+
+    /**
+     * @return number of bytes consumed so far
+     */
+    long position() {
+        return position;
+    }
+
+    /**
+     * Scan the next bytes of the document.
+     *
+     * @param buffer bytes
+     * @param offset start of data in buffer
+     * @param length number of bytes
+     */
+    void feed(final byte[] buffer, final int offset, final int length) {
+        if (position == 0 && length > 1) {
+            checkEncoding(buffer[offset], buffer[offset + 1]);
+        }
+
+        final int end = offset + length;
+        for (int i = offset; i < end; ++i) {
+            scan(buffer[i]);
+            position++;
+        }
+    }
+
+    /**
+     * Scan the next bytes of the document in place.
+     *
+     * @param buffer bytes, read with absolute gets
+     * @param offset index of first byte in buffer
+     * @param length number of bytes
+     */
+    void feed(final ByteBuffer buffer, final int offset, final int length) {
+        if (position == 0 && length > 1) {
+            checkEncoding(buffer.get(offset), buffer.get(offset + 1));
+        }
+
+        final int end = offset + length;
+        for (int i = offset; i < end; ++i) {
+            scan(buffer.get(i));
+            position++;
+        }
+    }
+
+    private void scan(final byte b) {
+        switch (state) {
+            case S_TEXT:
+                if (b == '<') {
+                    tagStart = position;
+                    state = S_LT;
+                }
+                break;
+            case S_LT:
+                if (b == '/') {
+                    state = S_END_TAG;
+                } else if (b == '?') {
+                    state = S_PI;
+                } else if (b == '!') {
+                    state = S_BANG;
+                } else {
+                    nameLength = 0;
+                    appendName(b);
+                    state = S_START_NAME;
+                }
+                break;
+            case S_START_NAME:
+                if (isNameEnd(b)) {
+                    slash = false;
+                    state = S_IN_TAG;
+                    scan(b);
+                } else {
+                    appendName(b);
+                }
+                break;
+            case S_IN_TAG:
+                if (b == '>') {
+                    state = S_TEXT;
+                    startTag(slash);
+                } else if (b == '"') {
+                    state = S_ATTR_DQ;
+                } else if (b == '\'') {
+                    state = S_ATTR_SQ;
+                } else if (b == '/') {
+                    slash = true;
+                } else if (!isWhitespace(b)) {
+                    slash = false;
+                }
+                break;
+            case S_ATTR_DQ:
+                if (b == '"') {
+                    slash = false;
+                    state = S_IN_TAG;
+                }
+                break;
+            case S_ATTR_SQ:
+                if (b == '\'') {
+                    slash = false;
+                    state = S_IN_TAG;
+                }
+                break;
+            case S_END_TAG:
+                if (b == '>') {
+                    state = S_TEXT;
+                    endTag();
+                }
+                break;
+            case S_PI:
+                if (b == '?') {
+                    state = S_PI_Q;
+                }
+                break;
+            case S_PI_Q:
+                if (b == '>') {
+                    state = S_TEXT;
+                } else if (b != '?') {
+                    state = S_PI;
+                }
+                break;
+            case S_BANG:
+                if (b == '-') {
+                    state = S_COMMENT_START;
+                } else if (b == '[') {
+                    state = S_CDATA_OPEN;
+                } else {
+                    counter = 0;
+                    state = S_DECL;
+                    scan(b);
+                }
+                break;
+            case S_COMMENT_START:
+                counter = 0;
+                state = S_COMMENT;
+                break;
+            case S_COMMENT:
+                if (b == '-') {
+                    counter++;
+                } else if (b == '>' && counter >= 2) {
+                    state = S_TEXT;
+                } else {
+                    counter = 0;
+                }
+                break;
+            case S_CDATA_OPEN:
+                if (b == '[') {
+                    counter = 0;
+                    state = S_CDATA;
+                }
+                break;
+            case S_CDATA:
+                if (b == ']') {
+                    counter++;
+                } else if (b == '>' && counter >= 2) {
+                    state = S_TEXT;
+                } else {
+                    counter = 0;
+                }
+                break;
+            case S_DECL:
+                if (b == '[') {
+                    counter++;
+                } else if (b == ']') {
+                    counter--;
+                } else if (b == '"') {
+                    state = S_DECL_DQ;
+                } else if (b == '\'') {
+                    state = S_DECL_SQ;
+                } else if (b == '>' && counter == 0) {
+                    state = S_TEXT;
+                }
+                break;
+            case S_DECL_DQ:
+                if (b == '"') {
+                    state = S_DECL;
+                }
+                break;
+            case S_DECL_SQ:
+                if (b == '\'') {
+                    state = S_DECL;
+                }
+                break;
+        }
+    }
+
+    private void startTag(final boolean empty) {
+        final long tagEnd = position + 1;
+
+        if (prologEnd < 0) {
+            prologEnd = tagStart;
+        }
+
+        if (skipLevel > 0) {
+            if (!empty) {
+                skipLevel++;
+            }
+            return;
+        }
+
+        if (!cursor.enter(localName())) {
+            if (!empty) {
+                skipLevel = 1;
+            }
+            return;
+        }
+
+        final int depth = cursor.depth();
+        if (!cursor.isMatched()) {
+            // A path element above the record level.
+            ancestorStarts[depth - 1] = tagStart;
+            ancestorEnds[depth - 1] = tagEnd;
+            ancestorNames[depth - 1] = Arrays.copyOf(name, nameLength);
+            ancestors = null;
+        } else if (cursor.position() == PathMatcher.DEPTH_AT_ROOT) {
+            recordStart = tagStart;
+        }
+
+        if (empty) {
+            endTag();
+        }
+    }
+
+    private void endTag() {
+        if (skipLevel > 0) {
+            skipLevel--;
+            return;
+        }
+
+        if (cursor.position() == PathMatcher.DEPTH_AT_ROOT) {
+            if (ancestors == null) {
+                ancestors = new Ancestors(prologEnd,
+                        ancestorStarts.clone(), ancestorEnds.clone(), ancestorNames.clone());
+            }
+            listener.onRecord(ancestors, recordStart, position + 1);
+        }
+        cursor.exit();
+    }
+
+    private String localName() {
+        int start = 0;
+        if (namespaceAware) {
+            for (int i = nameLength - 1; i >= 0; --i) {
+                if (name[i] == ':') {
+                    start = i + 1;
+                    break;
+                }
+            }
+        }
+        return names.get(name, start, nameLength - start);
+    }
+
+    private void appendName(final byte b) {
+        if (nameLength == name.length) {
+            name = Arrays.copyOf(name, nameLength * 2);
+        }
+        name[nameLength++] = b;
+    }
+
+    private static boolean isNameEnd(final byte b) {
+        return b == '>' || b == '/' || isWhitespace(b);
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static void checkEncoding(final byte first, final byte second) {
+        if ((first == (byte) 0xFE && second == (byte) 0xFF)
+                || (first == (byte) 0xFF && second == (byte) 0xFE)
+                || first == 0 || (first == '<' && second == 0)) {
+            throw new IllegalStateException("Record scanning requires an ASCII-compatible encoding.");
+        }
+    }
+
+    /**
+     * Decodes element names, returning the same String instance
+     * for repeated names so that scanning does not allocate per tag.
+     */
+    private static final class NameTable {
+        private byte[][] keys = new byte[64][];
+        private String[] values = new String[64];
+        private int size;
+
+        String get(final byte[] bytes, final int offset, final int length) {
+            int hash = 0;
+            for (int i = offset; i < offset + length; ++i) {
+                hash = 31 * hash + bytes[i];
+            }
+
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                if (equals(keys[slot], bytes, offset, length)) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            final String value = new String(bytes, offset, length, UTF_8);
+            keys[slot] = Arrays.copyOfRange(bytes, offset, offset + length);
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+            return value;
+        }
+
+        private void rehash() {
+            final byte[][] oldKeys = keys;
+            final String[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            values = new String[oldValues.length * 2];
+
+            final int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldKeys[i] != null) {
+                    int hash = 0;
+                    for (byte b : oldKeys[i]) {
+                        hash = 31 * hash + b;
+                    }
+                    int slot = hash & mask;
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static boolean equals(final byte[] key, final byte[] bytes, final int offset, final int length) {
+            if (key.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; ++i) {
+                if (key[i] != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.abk.xmlobjectiterable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a byte range of a file with positional reads, so that
+ * several streams may read the same channel concurrently.
+ */
+final class RegionInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    /**
+     * @param channel file to read
+     * @param start   offset of first byte
+     * @param end     offset just past the last byte
+     */
+    RegionInputStream(final FileChannel channel, final long start, final long end) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+
+        final int count = (int) Math.min(len, end - position);
+        final int read = channel.read(ByteBuffer.wrap(b, off, count), position);
+        if (read == -1) {
+            return -1;
+        }
+        position += read;
+
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    /**
+     * Read a byte range of a file fully.
+     *
+     * @param channel file to read
+     * @param start   offset of first byte
+     * @param end     offset just past the last byte
+     * @return bytes
+     * @throws IOException on read failure
+     */
+    static byte[] readFully(final FileChannel channel, final long start, final long end) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        long position = start;
+
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read == -1) {
+                throw new IOException("Unexpected end of file.");
+            }
+            position += read;
+        }
+
+        return buffer.array();
+    }
+}
@@ -0,0 +1,48 @@
+package com.abk.xmlobjectiterable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Random access to the bytes of an XML document, used to
+ * scan for records and to read byte ranges of the document.
+ */
+interface RegionSource extends Closeable {
+
+    /**
+     * @return number of bytes in the document
+     * @throws IOException on read failure
+     */
+    long length() throws IOException;
+
+    /**
+     * Feed the bytes that follow the scanner's position to the scanner.
+     *
+     * @param scanner  scanner to feed
+     * @param maxBytes maximum number of bytes to feed
+     * @return number of bytes fed, or -1 at the end of the document
+     * @throws IOException on read failure
+     */
+    int scan(RecordScanner scanner, int maxBytes) throws IOException;
+
+    /**
+     * Open a byte range as a stream.  May be called from any thread.
+     *
+     * @param start offset of first byte
+     * @param end   offset just past the last byte
+     * @return stream of the range
+     * @throws IOException on read failure
+     */
+    InputStream open(long start, long end) throws IOException;
+
+    /**
+     * Read a byte range fully.  May be called from any thread.
+     *
+     * @param start offset of first byte
+     * @param end   offset just past the last byte
+     * @return bytes of the range
+     * @throws IOException on read failure
+     */
+    byte[] read(long start, long end) throws IOException;
+}
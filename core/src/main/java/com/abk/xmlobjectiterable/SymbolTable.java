@@ -0,0 +1,359 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Canonicalizes element and attribute names to shared String instances and
+ * assigns each distinct name a small integer id.
+ * <p/>
+ * The first instance of a name added to the table is its canonical instance,
+ * so names returned by the same table can be compared with {@code ==}, and
+ * transformers can compare {@link XMLElement#getNameId()} with an id obtained
+ * from {@link #id(String)} before parsing.
+ * <p/>
+ * Paths of elements get ids as well, see {@link #pathId(String)} and
+ * {@link XMLPath#id()}.
+ * <p/>
+ * Tables shared by many documents only grow up to their capacity, so that a
+ * long-running process does not keep every name it has parsed.  Names beyond
+ * the capacity are not canonicalized and have no id, and paths beyond it share
+ * the id {@link #NO_PATH}.
+ * <p/>
+ * Lookups do not lock and may run on any thread; adding a name or path locks the table.
+ */
+public final class SymbolTable {
+
+    /**
+     * Id of paths that did not fit in the table, and of their descendants.
+     */
+    public static final int NO_PATH = -2;
+
+    /**
+     * Default maximum number of names, and of paths.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * A canonical name and its id.  The fields are final, so a symbol read
+     * from the slots without locking is always fully constructed.
+     */
+    private static final class Symbol {
+        private final String name;
+        private final int id;
+
+        private Symbol(final String name, final int id) {
+            this.name = name;
+            this.id = id;
+        }
+    }
+
+    /**
+     * A path id and its key, packed from the parent's path id and the name id.
+     */
+    private static final class PathSymbol {
+        private final long key;
+        private final int id;
+
+        private PathSymbol(final long key, final int id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    private final int capacity;
+
+    private volatile Symbol[] slots = new Symbol[INITIAL_CAPACITY];
+    private volatile String[] names = new String[INITIAL_CAPACITY / 2];
+    private volatile int size;
+
+    private volatile PathSymbol[] pathSlots = new PathSymbol[INITIAL_CAPACITY];
+    // Guarded by this.
+    private int pathCount;
+
+    /**
+     * Create a table of up to {@link #DEFAULT_CAPACITY} names and paths.
+     */
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity maximum number of names, and of paths, in the table
+     */
+    public SymbolTable(final int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive.");
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param name name to canonicalize
+     * @return the canonical instance of the name, or the name itself if the table is full
+     */
+    public String intern(final String name) {
+        final Symbol symbol = find(slots, name);
+        if (symbol != null) {
+            return symbol.name;
+        }
+
+        final int id = add(name);
+        return id >= 0 ? name(id) : name;
+    }
+
+    /**
+     * @param chars  buffer holding the name
+     * @param offset start of the name
+     * @param length length of the name
+     * @return the canonical instance of the name, or a new String if the table is full
+     */
+    public String intern(final char[] chars, final int offset, final int length) {
+        final Symbol symbol = find(slots, chars, offset, length);
+        if (symbol != null) {
+            return symbol.name;
+        }
+
+        final String name = new String(chars, offset, length);
+        final int id = add(name);
+        return id >= 0 ? name(id) : name;
+    }
+
+    /**
+     * @param name name to look up, added if not present
+     * @return id of the name, from 0 to {@link #size()} - 1, or -1 if the table is full
+     */
+    public int id(final String name) {
+        Preconditions.checkNotNull(name, "Name cannot be null.");
+
+        final Symbol symbol = find(slots, name);
+        return symbol != null ? symbol.id : add(name);
+    }
+
+    /**
+     * @param name name to look up
+     * @return id of the name, or -1 if the name has not been added
+     */
+    public int lookup(final String name) {
+        Symbol symbol = find(slots, name);
+        if (symbol == null) {
+            // May have been added by another thread since.
+            synchronized (this) {
+                symbol = find(slots, name);
+            }
+        }
+        return symbol != null ? symbol.id : -1;
+    }
+
+    /**
+     * @param id id returned by {@link #id(String)}
+     * @return the canonical name with the id
+     */
+    public String name(final int id) {
+        Preconditions.checkElementIndex(id, size, "Unknown symbol id.");
+
+        final String[] current = names;
+        String name = id < current.length ? current[id] : null;
+        if (name == null) {
+            synchronized (this) {
+                name = names[id];
+            }
+        }
+        return name;
+    }
+
+    /**
+     * @param parentId id of the parent's path, or -1 for the document element
+     * @param nameId   id of the element name, or -1 if the name has none
+     * @return id of the path of the element, added if not present, or {@link #NO_PATH}
+     * if the table is full, the name has no id or the parent's path has none
+     */
+    public int pathId(final int parentId, final int nameId) {
+        if (parentId < -1 || nameId < 0) {
+            return NO_PATH;
+        }
+
+        final long key = ((long) parentId << 32) | (nameId & 0xffffffffL);
+        final PathSymbol path = find(pathSlots, key);
+        return path != null ? path.id : addPath(key);
+    }
+
+    /**
+     * @param path element names from the document element, separated by '/', such as "rss/channel/item"
+     * @return id of the path, to compare with {@link XMLPath#id()} while parsing
+     * @throws IllegalStateException if the table is full
+     */
+    public int pathId(final String path) {
+        int id = -1;
+        for (String name : path.split("/")) {
+            if (!name.isEmpty()) {
+                id = pathId(id, id(name));
+            }
+        }
+
+        Preconditions.checkArgument(id != -1, "Path cannot be empty.");
+        Preconditions.checkState(id != NO_PATH, "Symbol table is full.");
+        return id;
+    }
+
+    /**
+     * @return number of names in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a name, unless another thread added it first.
+     *
+     * @return id of the name, or -1 if the table is full
+     */
+    private synchronized int add(final String name) {
+        Symbol[] current = slots;
+        final Symbol existing = find(current, name);
+        if (existing != null) {
+            return existing.id;
+        }
+        if (size == capacity) {
+            return -1;
+        }
+
+        final int id = size;
+        final Symbol symbol = new Symbol(name, id);
+
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+        }
+        names[id] = symbol.name;
+
+        if ((id + 1) * 2 > current.length) {
+            final Symbol[] grown = new Symbol[current.length * 2];
+            for (Symbol s : current) {
+                if (s != null) {
+                    grown[free(grown, s.name.hashCode())] = s;
+                }
+            }
+            current = grown;
+        }
+        current[free(current, symbol.name.hashCode())] = symbol;
+        slots = current;
+        size = id + 1;
+
+        return id;
+    }
+
+    /**
+     * Add a path, unless another thread added it first.
+     *
+     * @return id of the path, or {@link #NO_PATH} if the table is full
+     */
+    private synchronized int addPath(final long key) {
+        PathSymbol[] current = pathSlots;
+        final PathSymbol existing = find(current, key);
+        if (existing != null) {
+            return existing.id;
+        }
+        if (pathCount == capacity) {
+            return NO_PATH;
+        }
+
+        final PathSymbol path = new PathSymbol(key, pathCount);
+        if ((pathCount + 1) * 2 > current.length) {
+            final PathSymbol[] grown = new PathSymbol[current.length * 2];
+            for (PathSymbol p : current) {
+                if (p != null) {
+                    grown[free(grown, hash(p.key))] = p;
+                }
+            }
+            current = grown;
+        }
+        current[free(current, hash(key))] = path;
+        pathSlots = current;
+        pathCount++;
+
+        return path.id;
+    }
+
+    private static PathSymbol find(final PathSymbol[] slots, final long key) {
+        final int mask = slots.length - 1;
+
+        int slot = hash(key) & mask;
+        PathSymbol path;
+        while ((path = slots[slot]) != null) {
+            if (path.key == key) {
+                return path;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static Symbol find(final Symbol[] slots, final String name) {
+        final int mask = slots.length - 1;
+        final int hash = name.hashCode();
+
+        int slot = hash & mask;
+        Symbol symbol;
+        while ((symbol = slots[slot]) != null) {
+            final String value = symbol.name;
+            if (value == name || (value.hashCode() == hash && value.equals(name))) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static Symbol find(final Symbol[] slots, final char[] chars, final int offset, final int length) {
+        final int mask = slots.length - 1;
+        final int hash = hash(chars, offset, length);
+
+        int slot = hash & mask;
+        Symbol symbol;
+        while ((symbol = slots[slot]) != null) {
+            if (symbol.name.hashCode() == hash && matches(symbol.name, chars, offset, length)) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int free(final Object[] slots, final int hash) {
+        final int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(final long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * @return the same hash as {@link String#hashCode()} of the chars.
+     */
+    private static int hash(final char[] chars, final int offset, final int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; ++i) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    private static boolean matches(final String value, final char[] chars, final int offset, final int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+package com.abk.xmlobjectiterable;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Collects the text of the open elements of a record in one reusable buffer.
+ * <p/>
+ * Text events of an element are appended, so text split by comments, entity
+ * references, CDATA sections or child elements is kept whole.  Each open
+ * element remembers where its text starts; when it closes its text is cut
+ * off the end of the buffer, so a parent continues with its own text and
+ * only the direct text of each element ends up in its value.
+ * <p/>
+ * Elements opened as streamed do not collect text, their text events are
+ * passed on as views of the parser's buffer instead.
+ * <p/>
+ * The text of the innermost element can also be read through a view of the
+ * buffer, which stays valid until the element is closed.
+ */
+final class TextBuffer {
+
+    private static final int STREAMED = -1;
+
+    // Buffers grown by one large text are dropped at the end of the record.
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private final int[] holder = new int[2];
+    private final Window window = new Window();
+    private StringBuilder text = new StringBuilder();
+    private int[] starts = new int[8];
+    private int depth;
+
+    /**
+     * Open an element.
+     *
+     * @param streamed true to pass its text on rather than collect it
+     */
+    void open(final boolean streamed) {
+        if (depth == starts.length) {
+            starts = Arrays.copyOf(starts, depth * 2);
+        }
+        starts[depth++] = streamed ? STREAMED : text.length();
+    }
+
+    /**
+     * @return true if the innermost open element is streamed
+     */
+    boolean isStreamed() {
+        return starts[depth - 1] == STREAMED;
+    }
+
+    /**
+     * Append the text of the parser's TEXT event to the innermost open element.
+     *
+     * @param parser parser at a TEXT event
+     */
+    void append(final XmlPullParser parser) {
+        final char[] chars = parser.getTextCharacters(holder);
+        if (chars != null) {
+            text.append(chars, holder[0], holder[1]);
+        } else {
+            text.append(parser.getText());
+        }
+    }
+
+    /**
+     * @param parser parser at a TEXT event
+     * @return the text of the event, valid until the parser moves on
+     */
+    CharSequence view(final XmlPullParser parser) {
+        final char[] chars = parser.getTextCharacters(holder);
+        return chars != null ? CharBuffer.wrap(chars, holder[0], holder[1]) : parser.getText();
+    }
+
+    /**
+     * @return view of the text of the innermost open element, valid until it
+     * is closed, or null if it has none or is streamed
+     */
+    CharSequence peek() {
+        final int start = starts[depth - 1];
+        if (start == STREAMED || text.length() == start) {
+            return null;
+        }
+
+        window.start = start;
+        window.end = text.length();
+        return window;
+    }
+
+    /**
+     * Close the innermost open element.
+     *
+     * @return its text, or null if it has none or is streamed
+     */
+    String close() {
+        final int start = starts[depth - 1];
+        final String value = start != STREAMED && text.length() > start ? text.substring(start) : null;
+
+        discard();
+        return value;
+    }
+
+    /**
+     * Close the innermost open element without building its text.
+     */
+    void discard() {
+        final int start = starts[--depth];
+        if (start != STREAMED) {
+            text.setLength(start);
+        }
+
+        if (depth == 0 && text.capacity() > MAX_RETAINED_CAPACITY) {
+            text = new StringBuilder();
+        }
+    }
+
+    /**
+     * Close all open elements, discarding their text.
+     */
+    void clear() {
+        depth = 0;
+        text.setLength(0);
+    }
+
+    /**
+     * Read-only view of a range of the buffer.
+     */
+    private final class Window implements CharSequence {
+        private int start;
+        private int end;
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", length: " + (end - start));
+            }
+            return text.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int from, final int to) {
+            if (from < 0 || to > end - start || from > to) {
+                throw new IndexOutOfBoundsException("Range: " + from + ".." + to + ", length: " + (end - start));
+            }
+            return text.substring(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return text.substring(start, end);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Supplies transformers from a per-thread pool, so that iterations on any
+ * number of threads each get their own instance without allocating one per
+ * document.
+ * <p/>
+ * Pass the pool to {@link XMLObjectIterable.Builder#withTransform(Supplier)}.
+ * A transformer is leased when an iterator or parallel chunk starts and is
+ * reset and returned to the pool of the thread that finishes the iteration.
+ * Transformers of iterations that are abandoned before the end are left to
+ * the garbage collector.
+ *
+ * @param <T> type of POJO
+ */
+public final class TransformerPool<T> implements Supplier<XMLTransformer<T>> {
+
+    private static final int DEFAULT_MAX_IDLE = 4;
+
+    private final Supplier<? extends XMLTransformer<T>> factory;
+    private final int maxIdle;
+    private final ThreadLocal<Deque<XMLTransformer<T>>> idle = new ThreadLocal<Deque<XMLTransformer<T>>>() {
+        @Override
+        protected Deque<XMLTransformer<T>> initialValue() {
+            return new ArrayDeque<>();
+        }
+    };
+
+    /**
+     * @param factory creates transformers when a thread has none idle
+     */
+    public TransformerPool(final Supplier<? extends XMLTransformer<T>> factory) {
+        this(factory, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param factory creates transformers when a thread has none idle
+     * @param maxIdle maximum number of idle transformers kept per thread
+     */
+    public TransformerPool(final Supplier<? extends XMLTransformer<T>> factory, final int maxIdle) {
+        this.factory = Preconditions.checkNotNull(factory, "Transformer factory cannot be null.");
+        Preconditions.checkArgument(maxIdle > 0, "Pool size must be positive.");
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @return an idle transformer of the calling thread, or a new one
+     */
+    @Override
+    public XMLTransformer<T> get() {
+        final XMLTransformer<T> transformer = idle.get().pollLast();
+        return transformer != null ? transformer : factory.get();
+    }
+
+    /**
+     * Reset a transformer obtained from {@link #get()} and keep it for reuse
+     * by the calling thread.  The transformer must not be used afterwards.
+     *
+     * @param transformer transformer to return
+     */
+    public void release(final XMLTransformer<T> transformer) {
+        transformer.reset();
+
+        final Deque<XMLTransformer<T>> transformers = idle.get();
+        if (transformers.size() < maxIdle) {
+            transformers.addLast(transformer);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.abk.xmlobjectiterable;
+
+/**
+ * How parsing continues after {@link XMLControlTransformer#start(String, java.util.List)}.
+ */
+public enum XMLControl {
+    /** Build and visit the element as usual. */
+    CONTINUE,
+    /**
+     * Skip the element and its descendants without building or visiting them.
+     * For the record element itself this is the same as SKIP_RECORD.
+     */
+    SKIP_SUBTREE,
+    /**
+     * Skip the rest of the record.  The element and the open elements
+     * enclosing it are visited, innermost first, without any further text or
+     * children, and then the record is transformed.
+     */
+    FINISH_RECORD,
+    /** Skip the rest of the record and drop it; the transformer is reset. */
+    SKIP_RECORD,
+    /** Drop the record and end the iteration, closing the input. */
+    STOP_DOCUMENT
+}
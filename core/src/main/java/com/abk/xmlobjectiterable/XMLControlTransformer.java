@@ -0,0 +1,27 @@
+package com.abk.xmlobjectiterable;
+
+import java.util.List;
+
+/**
+ * A transformer that steers parsing of its records.
+ * <p/>
+ * {@link #visit(XMLElement, List)} is called at end tags, once an element is
+ * complete, which is too late to avoid parsing it.  start() is called at the
+ * start tag of the record and of each element inside it, before the element is
+ * built, so that the transformer can skip subtrees it does not need, finish a
+ * record as soon as it has what it needs, drop a record or stop the document.
+ * <p/>
+ * Controls apply to {@link XMLObjectIterable}, including each chunk of a parallel
+ * parse; {@link XMLRouter} parses every element and ignores them.
+ *
+ * @param <T> type of POJO
+ */
+public interface XMLControlTransformer<T> extends XMLTransformer<T> {
+
+    /**
+     * @param name element name
+     * @param path node path, including the element
+     * @return how to continue parsing
+     */
+    XMLControl start(String name, List<String> path);
+}
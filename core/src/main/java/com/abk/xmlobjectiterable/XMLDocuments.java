@@ -0,0 +1,485 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Transforms the records of many documents concurrently and merges their
+ * POJOs into one iterator.
+ * <p/>
+ * Each document is parsed by its own task with its own parser and Transformer.
+ * By default tasks run on virtual threads when the JVM has them, and otherwise
+ * on a pool of daemon threads; at most withMaxConcurrency() documents are open
+ * at a time.  POJOs are handed to the iterating thread through a bounded queue,
+ * so tasks wait while the consumer is behind.  POJOs of one document keep their
+ * order, POJOs of different documents are interleaved as they are parsed.
+ * <p/>
+ * A document that fails to parse ends the iteration with a RuntimeException,
+ * or with the Error its task threw.
+ * Iterators are {@link Closeable}, to stop the remaining tasks early.
+ *
+ * @param <T> type of POJO
+ */
+public final class XMLDocuments<T> implements Iterable<T> {
+
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    /**
+     * Builder for XMLDocuments
+     *
+     * @param <T> type of POJO
+     */
+    public static final class Builder<T> {
+        private final List<Source> sources = new ArrayList<>();
+        private String xmlPath;
+        private Supplier<? extends XMLTransformer<T>> transformerSupplier;
+        private XmlPullParserFactory parserFactory;
+        private ParserPool parserPool;
+        private SymbolTable symbols;
+        private ExecutorService executor;
+        private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+        private int queueSize = DEFAULT_QUEUE_SIZE;
+
+        /**
+         * Add files to read.  At least one document is required.
+         *
+         * @param files XML files
+         * @return builder
+         */
+        public Builder<T> fromFiles(final Iterable<File> files) {
+            for (File file : files) {
+                sources.add(new FileSource(Preconditions.checkNotNull(file, "File cannot be null.")));
+            }
+            return this;
+        }
+
+        /**
+         * Add memory-mapped files to read.  At least one document is required.
+         *
+         * @param paths XML files
+         * @return builder
+         */
+        public Builder<T> fromPaths(final Iterable<Path> paths) {
+            for (Path path : paths) {
+                sources.add(new PathSource(Preconditions.checkNotNull(path, "Path cannot be null.")));
+            }
+            return this;
+        }
+
+        /**
+         * Add streams to read, each opened by its task when the document is
+         * parsed.  At least one document is required.
+         *
+         * @param streams suppliers of the XML streams
+         * @return builder
+         */
+        public Builder<T> fromStreams(final Iterable<? extends Supplier<? extends InputStream>> streams) {
+            for (Supplier<? extends InputStream> stream : streams) {
+                sources.add(new StreamSource(Preconditions.checkNotNull(stream, "Stream supplier cannot be null.")));
+            }
+            return this;
+        }
+
+        /**
+         * Required.
+         *
+         * @param xmlPath path expression of the records, see {@link XMLObjectIterable.Builder#onNodes(String)}
+         * @return builder
+         */
+        public Builder<T> onNodes(final String xmlPath) {
+            PathMatcher.compile(xmlPath);
+            this.xmlPath = xmlPath;
+            return this;
+        }
+
+        /**
+         * Required.  A Transformer is requested for each document; pass a
+         * {@link TransformerPool} to reuse them.
+         *
+         * @param transformers Transformer factory
+         * @return builder
+         */
+        public Builder<T> withTransform(final Supplier<? extends XMLTransformer<T>> transformers) {
+            this.transformerSupplier = transformers;
+            return this;
+        }
+
+        /**
+         * @param factory configured parser factory
+         * @return builder
+         */
+        public Builder<T> withParserFactory(final XmlPullParserFactory factory) {
+            this.parserFactory = factory;
+            this.parserPool = null;
+            return this;
+        }
+
+        /**
+         * @param pool parser pool that parsers are leased from for each document
+         * @return builder
+         */
+        public Builder<T> withParserPool(final ParserPool pool) {
+            this.parserPool = Preconditions.checkNotNull(pool, "ParserPool cannot be null.");
+            this.parserFactory = null;
+            return this;
+        }
+
+        /**
+         * @param symbols table that canonicalizes the names of all documents
+         * @return builder
+         */
+        public Builder<T> withSymbols(final SymbolTable symbols) {
+            this.symbols = Preconditions.checkNotNull(symbols, "SymbolTable cannot be null.");
+            return this;
+        }
+
+        /**
+         * Run the documents on the given executor instead of on virtual or
+         * daemon threads.  The executor is not shut down by the iterator.
+         *
+         * @param executor executor for the document tasks
+         * @return builder
+         */
+        public Builder<T> withExecutor(final ExecutorService executor) {
+            this.executor = Preconditions.checkNotNull(executor, "ExecutorService cannot be null.");
+            return this;
+        }
+
+        /**
+         * @param maxConcurrency maximum number of documents parsed at a time,
+         *                       the number of processors by default
+         * @return builder
+         */
+        public Builder<T> withMaxConcurrency(final int maxConcurrency) {
+            Preconditions.checkArgument(maxConcurrency > 0, "Concurrency must be positive.");
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * @param queueSize maximum number of POJOs waiting for the iterating thread
+         * @return builder
+         */
+        public Builder<T> withQueueSize(final int queueSize) {
+            Preconditions.checkArgument(queueSize > 0, "Queue size must be positive.");
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        /**
+         * @return XMLDocuments
+         */
+        public XMLDocuments<T> create() {
+            Preconditions.checkState(!sources.isEmpty(), "Must add documents to builder.");
+            Preconditions.checkNotNull(xmlPath, "Must call onNodes() on builder.");
+            Preconditions.checkNotNull(transformerSupplier, "Must call withTransform() on builder.");
+            Preconditions.checkState(parserFactory != null || parserPool != null,
+                    "Must call withParserFactory() or withParserPool() on builder.");
+
+            return new XMLDocuments<>(this);
+        }
+    }
+
+    /**
+     * A document to parse, named by its toString().
+     */
+    private abstract static class Source {
+        /**
+         * Set the document's input on the builder.
+         */
+        abstract void addTo(XMLObjectIterable.Builder<?> builder);
+    }
+
+    private static final class FileSource extends Source {
+        private final File file;
+
+        private FileSource(final File file) {
+            this.file = file;
+        }
+
+        @Override
+        void addTo(final XMLObjectIterable.Builder<?> builder) {
+            builder.from(file);
+        }
+
+        @Override
+        public String toString() {
+            return file.toString();
+        }
+    }
+
+    private static final class PathSource extends Source {
+        private final Path path;
+
+        private PathSource(final Path path) {
+            this.path = path;
+        }
+
+        @Override
+        void addTo(final XMLObjectIterable.Builder<?> builder) {
+            builder.from(path);
+        }
+
+        @Override
+        public String toString() {
+            return path.toString();
+        }
+    }
+
+    private static final class StreamSource extends Source {
+        private final Supplier<? extends InputStream> stream;
+
+        private StreamSource(final Supplier<? extends InputStream> stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        void addTo(final XMLObjectIterable.Builder<?> builder) {
+            builder.from(stream.get());
+        }
+
+        @Override
+        public String toString() {
+            return stream.toString();
+        }
+    }
+
+    /**
+     * End of a document in the queue, with the failure that ended it, if any.
+     */
+    private static final class End {
+        private final Source source;
+        private final Throwable failure;
+
+        private End(final Source source, final Throwable failure) {
+            this.source = source;
+            this.failure = failure;
+        }
+    }
+
+    private final List<Source> sources;
+    private final String xmlPath;
+    private final Supplier<? extends XMLTransformer<T>> transformerSupplier;
+    private final XmlPullParserFactory parserFactory;
+    private final ParserPool parserPool;
+    private final SymbolTable symbols;
+    private final ExecutorService executor;
+    private final int maxConcurrency;
+    private final int queueSize;
+
+    private XMLDocuments(final Builder<T> builder) {
+        this.sources = new ArrayList<>(builder.sources);
+        this.xmlPath = builder.xmlPath;
+        this.transformerSupplier = builder.transformerSupplier;
+        this.parserFactory = builder.parserFactory;
+        this.parserPool = builder.parserPool;
+        this.symbols = builder.symbols != null ? builder.symbols : new SymbolTable();
+        this.executor = builder.executor;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.queueSize = builder.queueSize;
+    }
+
+    /**
+     * Start parsing all documents.
+     *
+     * @return iterator over the POJOs of all documents, which is {@link Closeable}
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new MergeIterator();
+    }
+
+    /**
+     * @return iterable over the records of one document
+     */
+    private XMLObjectIterable<T> open(final Source source) {
+        final XMLObjectIterable.Builder<T> builder = new XMLObjectIterable.Builder<T>()
+                .onNodes(xmlPath)
+                .withTransform(transformerSupplier)
+                .withSymbols(symbols);
+
+        if (parserPool != null) {
+            builder.withParserPool(parserPool);
+        } else {
+            builder.withParserFactory(parserFactory);
+        }
+
+        source.addTo(builder);
+        return builder.create();
+    }
+
+    /**
+     * @return an executor that starts a virtual thread per task if the JVM
+     * supports them, else a pool of maxConcurrency daemon threads.
+     */
+    private ExecutorService newExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxConcurrency, new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("xml-documents-%d")
+                    .build());
+        }
+    }
+
+    private final class MergeIterator implements Iterator<T>, Closeable {
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueSize);
+        private final Semaphore permits = new Semaphore(maxConcurrency);
+        private final ExecutorService tasks;
+        private final List<Future<?>> futures = new ArrayList<>();
+
+        private volatile boolean closed;
+        private int ended;
+        private T next;
+
+        private MergeIterator() {
+            this.tasks = executor != null ? executor : newExecutor();
+            for (final Source source : sources) {
+                futures.add(tasks.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        parse(source);
+                    }
+                }));
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            while (next == null) {
+                if (ended == sources.size()) {
+                    close();
+                    return false;
+                }
+
+                final Object value = take();
+                if (value instanceof End) {
+                    ended++;
+
+                    final End end = (End) value;
+                    if (end.failure != null) {
+                        close();
+                        Throwables.propagateIfInstanceOf(end.failure, Error.class);
+                        throw new RuntimeException("Failed to parse " + end.source + ".", end.failure);
+                    }
+                } else {
+                    next = (T) value;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No data.");
+            }
+
+            final T value = next;
+            next = null;
+
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new RuntimeException("Unsupported operation.");
+        }
+
+        /**
+         * Stop the remaining tasks and discard their POJOs.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            next = null;
+
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            queue.clear();
+
+            if (executor == null) {
+                tasks.shutdownNow();
+            }
+        }
+
+        private Object take() {
+            Preconditions.checkState(!closed, "Iterator is closed.");
+
+            try {
+                return queue.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new RuntimeException("Interrupted while waiting for documents.", e);
+            }
+        }
+
+        /**
+         * Parse one document into the queue, followed by its End.
+         */
+        private void parse(final Source source) {
+            Throwable failure = null;
+
+            try {
+                permits.acquire();
+                try {
+                    final Iterator<T> records = open(source).iterator();
+                    try {
+                        while (!closed && records.hasNext()) {
+                            queue.put(records.next());
+                        }
+                    } finally {
+                        if (records instanceof Closeable) {
+                            ((Closeable) records).close();
+                        }
+                    }
+                } finally {
+                    permits.release();
+                }
+            } catch (final InterruptedException e) {
+                // Closed by the iterating thread.
+                return;
+            } catch (final IOException e) {
+                failure = new RuntimeException("Failed to close document.", e);
+            } catch (final RuntimeException | Error e) {
+                // Errors end the document too, so that the iterating thread does not wait for it.
+                failure = e;
+            }
+
+            try {
+                queue.put(new End(source, failure));
+            } catch (final InterruptedException e) {
+                // Closed by the iterating thread.
+            }
+        }
+    }
+}
@@ -1,30 +1,151 @@
 package com.abk.xmlobjectiterable;
 
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Captures the local data of a given node.
+ * <p/>
+ * Attributes are kept as a packed array of alternating names and values.
+ * {@link #getAttribute(String)} scans the array directly and {@link #getAttribs()}
+ * creates a read-only Map view of it on first use.
+ * <p/>
+ * Elements of an iterable built with text views, see
+ * {@link XMLObjectIterable.Builder#withTextViews(boolean)}, hold their text as
+ * a view of the parse buffer, which is only valid during visit().
+ * {@link #getText()} and the getValueAs methods read it without creating a
+ * String; getValue() creates one on first call.
+ * <p/>
+ * Iterables built with reused elements, see
+ * {@link XMLObjectIterable.Builder#withReusedElements(boolean)}, pass the same
+ * instance for every element at a given depth, so an element is only valid
+ * during visit().
  */
 public class XMLElement {
-    private final String name;
+    private static final String[] NO_ATTRIBUTES = new String[0];
+
+    private String name;
+    private int nameId;
     private String value;
-    private final Map<String, String> attribs;
+    private CharSequence text;
+    private String[] attributes;
+    // Number of used entries of attributes.
+    private int attributeLength;
+    private Map<String, String> attribs;
 
+    /**
+     * @param name    element name
+     * @param value   text of the element
+     * @param attribs attributes, copied so that later changes to the map do not affect the element
+     */
     public XMLElement(String name, String value, Map<String, String> attribs) {
+        this(name, -1, value, pack(attribs));
+    }
+
+    /**
+     * @param name       canonical name from a {@link SymbolTable}
+     * @param nameId     id of the name in the symbol table
+     * @param value      text of the element
+     * @param attributes alternating attribute names and values, not copied
+     */
+    public XMLElement(String name, int nameId, String value, String[] attributes) {
         this.name = name;
+        this.nameId = nameId;
         this.value = value;
-        this.attribs = attribs;
+        this.attributes = attributes != null ? attributes : NO_ATTRIBUTES;
+        this.attributeLength = this.attributes.length;
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * @return id of the name in the iterable's {@link SymbolTable}, or -1 if
+     * the element was not created by an iterable or its name did not fit in the table.
+     */
+    public int getNameId() {
+        return nameId;
+    }
+
     public String getValue() {
+        if (value == null && text != null) {
+            value = text.toString();
+        }
         return value;
     }
 
+    /**
+     * @return text of the element without creating a String, or null
+     */
+    public CharSequence getText() {
+        return value != null ? value : text;
+    }
+
+    /**
+     * @return text of the element as a decimal int, ignoring surrounding whitespace
+     * @throws NumberFormatException if the element has no text or it is not an int
+     */
+    public int getValueAsInt() {
+        return parseInt(getText());
+    }
+
+    /**
+     * @return text of the element as a double, ignoring surrounding whitespace
+     * @throws NumberFormatException if the element has no text or it is not a number
+     */
+    public double getValueAsDouble() {
+        return parseDouble(getText());
+    }
+
+    /**
+     * @param name attribute name
+     * @return value of the attribute or null if the element has no such attribute
+     */
+    public String getAttribute(String name) {
+        final int index = indexOf(name);
+        return index < 0 ? null : attributes[index + 1];
+    }
+
+    /**
+     * @return number of attributes
+     */
+    public int getAttributeCount() {
+        return attributeLength / 2;
+    }
+
+    /**
+     * @param index from 0 to getAttributeCount() - 1
+     * @return name of the attribute
+     */
+    public String getAttributeName(int index) {
+        Preconditions.checkElementIndex(index, attributeLength / 2);
+        return attributes[index * 2];
+    }
+
+    /**
+     * @param index from 0 to getAttributeCount() - 1
+     * @return value of the attribute
+     */
+    public String getAttributeValue(int index) {
+        Preconditions.checkElementIndex(index, attributeLength / 2);
+        return attributes[index * 2 + 1];
+    }
+
+    /**
+     * @return attributes by name.  Elements created by an iterable
+     * return a read-only view.
+     */
     public Map<String, String> getAttribs() {
+        if (attribs == null) {
+            attribs = new AttributeMap();
+        }
         return attribs;
     }
 
@@ -32,12 +153,263 @@ public class XMLElement {
         this.value = value;
     }
 
+    /**
+     * Make this element another one, keeping its attribute array for reuse.
+     *
+     * @param name       canonical name from a {@link SymbolTable}
+     * @param nameId     id of the name in the symbol table
+     * @param attributes alternating attribute names and values, not copied
+     * @param length     number of used entries of attributes
+     */
+    void reset(String name, int nameId, String[] attributes, int length) {
+        this.name = name;
+        this.nameId = nameId;
+        this.value = null;
+        this.text = null;
+        this.attributes = attributes;
+        this.attributeLength = length;
+    }
+
+    /**
+     * @return attribute array for reuse by {@link #reset(String, int, String[], int)}
+     */
+    String[] attributeArray() {
+        return attributes;
+    }
+
+    /**
+     * @param text view of the text, or null to drop it
+     */
+    void setText(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Parse like Integer.parseInt() without copying the text.
+     */
+    static int parseInt(final CharSequence chars) {
+        if (chars == null) {
+            throw new NumberFormatException("null");
+        }
+
+        int index = skipSpace(chars, 0);
+        final int end = trimSpace(chars, index);
+        boolean negative = false;
+
+        if (index < end && (chars.charAt(index) == '-' || chars.charAt(index) == '+')) {
+            negative = chars.charAt(index) == '-';
+            index++;
+        }
+        if (index == end) {
+            throw new NumberFormatException("For input string: \"" + chars + "\"");
+        }
+
+        // Accumulate negatively, as Integer.parseInt() does, to reach MIN_VALUE.
+        final int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; index < end; ++index) {
+            final int digit = chars.charAt(index) - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit) {
+                throw new NumberFormatException("For input string: \"" + chars + "\"");
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parse like Double.parseDouble().  Plain decimals with up to 15 digits
+     * and a small exponent are converted exactly without copying the text,
+     * anything else is handed to Double.parseDouble().
+     */
+    static double parseDouble(final CharSequence chars) {
+        if (chars == null) {
+            throw new NumberFormatException("null");
+        }
+
+        int index = skipSpace(chars, 0);
+        final int end = trimSpace(chars, index);
+        boolean negative = false;
+
+        if (index < end && (chars.charAt(index) == '-' || chars.charAt(index) == '+')) {
+            negative = chars.charAt(index) == '-';
+            index++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean seen = false;
+        for (; index < end; ++index) {
+            final char c = chars.charAt(index);
+            if (c >= '0' && c <= '9') {
+                seen = true;
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) {
+                    scale--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+
+        if (index < end && seen && (chars.charAt(index) == 'e' || chars.charAt(index) == 'E')) {
+            index++;
+            boolean negativeExponent = false;
+            if (index < end && (chars.charAt(index) == '-' || chars.charAt(index) == '+')) {
+                negativeExponent = chars.charAt(index) == '-';
+                index++;
+            }
+
+            int exponent = 0;
+            final int start = index;
+            for (; index < end && index - start < 4; ++index) {
+                final char c = chars.charAt(index);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                exponent = exponent * 10 + (c - '0');
+            }
+            if (index == start) {
+                seen = false;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        // Both the mantissa and the power of ten are exact doubles, so one
+        // multiplication or division rounds correctly.
+        if (seen && index == end && digits <= 15 && scale >= -22 && scale <= 22) {
+            final double value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+            return negative ? -value : value;
+        }
+
+        return Double.parseDouble(chars.toString());
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static int skipSpace(final CharSequence chars, final int start) {
+        int index = start;
+        while (index < chars.length() && chars.charAt(index) <= ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static int trimSpace(final CharSequence chars, final int start) {
+        int end = chars.length();
+        while (end > start && chars.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static String[] pack(Map<String, String> attribs) {
+        if (attribs == null || attribs.isEmpty()) {
+            return NO_ATTRIBUTES;
+        }
+
+        final String[] packed = new String[attribs.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> entry : attribs.entrySet()) {
+            packed[i++] = entry.getKey();
+            packed[i++] = entry.getValue();
+        }
+        return packed;
+    }
+
+    /**
+     * @return index of the name in the packed array, or -1.
+     */
+    private int indexOf(Object name) {
+        // Names are usually canonical, so try identity before equals.
+        for (int i = 0; i < attributeLength; i += 2) {
+            if (attributes[i] == name) {
+                return i;
+            }
+        }
+        for (int i = 0; i < attributeLength; i += 2) {
+            if (attributes[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     @Override
     public String toString() {
         return "XmlNodeValue{" +
                 "name='" + name + '\'' +
-                ", value='" + value + '\'' +
-                ", attribs=" + attribs +
+                ", value='" + getValue() + '\'' +
+                ", attribs=" + getAttribs() +
                 '}';
     }
+
+    /**
+     * Read-only Map view of the packed attributes.
+     */
+    private final class AttributeMap extends AbstractMap<String, String> {
+        @Override
+        public String get(Object key) {
+            final int index = indexOf(key);
+            return index < 0 ? null : attributes[index + 1];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return attributeLength / 2;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < attributeLength;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final Entry<String, String> entry =
+                                    new SimpleImmutableEntry<>(attributes[index], attributes[index + 1]);
+                            index += 2;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException("Attributes are read-only.");
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return attributeLength / 2;
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,351 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Transforms a record-oriented document whose bytes are pushed in as they
+ * arrive, for non-blocking sources such as NIO channels and asynchronous
+ * HTTP clients.
+ * <p/>
+ * {@link #feed(ByteBuffer)} never waits for input.  Bytes are scanned for the
+ * boundaries of the elements matching the path, see {@link RecordScanner},
+ * with partial tokens carried over to the next call.  The records completed
+ * by a call are parsed and transformed before it returns and their POJOs are
+ * handed to the sink, on the feeding thread.  Bytes are buffered from the end
+ * of the last complete record, so memory use is bounded by the size of a
+ * record and what lies between records.
+ * <p/>
+ * Requires a path without '//' or predicates and an ASCII-compatible encoding.
+ * A feeder reads one document and is not thread-safe; use one per stream.
+ *
+ * @param <T> type of POJO
+ */
+public final class XMLFeeder<T> implements Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Builder for the XMLFeeder
+     *
+     * @param <T> type of POJO
+     */
+    public static final class Builder<T> {
+        private PathMatcher rootNodePath;
+        private XMLTransformer<T> transformer;
+        private Supplier<? extends XMLTransformer<T>> transformerSupplier;
+        private XmlPullParserFactory parserFactory;
+        private ParserPool parserPool;
+        private SymbolTable symbols;
+        private XMLRouter.Sink<? super T> sink;
+
+        /**
+         * Path of the records, such as "rss/channel/item".
+         * <p/>
+         * Required.
+         *
+         * @param xmlPath path without '//' or predicates
+         * @return builder
+         */
+        public Builder<T> onNodes(final String xmlPath) {
+            this.rootNodePath = PathMatcher.compile(xmlPath);
+            return this;
+        }
+
+        /**
+         * One of the withTransform() methods is required.
+         *
+         * @param transformer Transformer used by this feeder only
+         * @return builder
+         */
+        public Builder<T> withTransform(final XMLTransformer<T> transformer) {
+            this.transformer = transformer;
+            this.transformerSupplier = null;
+            return this;
+        }
+
+        /**
+         * One of the withTransform() methods is required.  A pooled transformer
+         * is returned to its {@link TransformerPool} when the feeder is closed.
+         *
+         * @param transformers Transformer factory
+         * @return builder
+         */
+        public Builder<T> withTransform(final Supplier<? extends XMLTransformer<T>> transformers) {
+            this.transformerSupplier = transformers;
+            this.transformer = null;
+            return this;
+        }
+
+        /**
+         * @param factory configured parser factory
+         * @return builder
+         */
+        public Builder<T> withParserFactory(final XmlPullParserFactory factory) {
+            this.parserFactory = factory;
+            this.parserPool = null;
+            return this;
+        }
+
+        /**
+         * Lease a parser from the pool, returned when the feeder is closed.
+         *
+         * @param pool parser pool
+         * @return builder
+         */
+        public Builder<T> withParserPool(final ParserPool pool) {
+            this.parserPool = Preconditions.checkNotNull(pool, "ParserPool cannot be null.");
+            this.parserFactory = pool.getFactory();
+            return this;
+        }
+
+        /**
+         * @param symbols table that canonicalizes element and attribute names
+         * @return builder
+         */
+        public Builder<T> withSymbols(final SymbolTable symbols) {
+            this.symbols = Preconditions.checkNotNull(symbols, "SymbolTable cannot be null.");
+            return this;
+        }
+
+        /**
+         * Required.
+         *
+         * @param sink receives the POJOs on the thread that feeds the bytes
+         * @return builder
+         */
+        public Builder<T> to(final XMLRouter.Sink<? super T> sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * @return XMLFeeder
+         */
+        public XMLFeeder<T> create() {
+            Preconditions.checkNotNull(rootNodePath, "Must call onNodes() on builder.");
+            Preconditions.checkState(rootNodePath.isFixed(), "Feeding requires a path without '//' or predicates.");
+            Preconditions.checkState(transformer != null || transformerSupplier != null,
+                    "Must call withTransform() on builder.");
+            Preconditions.checkState(parserFactory != null, "Must call withParserFactory() or withParserPool() on builder.");
+            Preconditions.checkNotNull(sink, "Must call to() on builder.");
+
+            return new XMLFeeder<>(this);
+        }
+    }
+
+    private final PathMatcher rootNodePath;
+    private final XMLTransformer<T> transformer;
+    private final TransformerPool<T> transformers;
+    private final XmlPullParserFactory parserFactory;
+    private final ParserPool parserPool;
+    private final SymbolTable symbols;
+    private final XMLRouter.Sink<? super T> sink;
+    private final RecordScanner scanner;
+
+    // Unconsumed bytes; buffer[0] is at document offset base.
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+    private long base;
+
+    // Records completed by the current feed.
+    private RecordScanner.Ancestors firstAncestors;
+    private RecordScanner.Ancestors lastAncestors;
+    private long firstStart = -1;
+    private long lastEnd;
+
+    // Prolog and ancestor start tags, kept once their bytes are discarded.
+    private byte[] prolog;
+    private long[] tagStarts;
+    private byte[][] tags;
+    private RecordScanner.Ancestors prefixAncestors;
+    private byte[] prefix;
+
+    private XmlPullParser parser;
+    private boolean closed;
+
+    @SuppressWarnings("unchecked")
+    private XMLFeeder(final Builder<T> builder) {
+        this.rootNodePath = builder.rootNodePath;
+        this.transformers = builder.transformerSupplier instanceof TransformerPool
+                ? (TransformerPool<T>) builder.transformerSupplier : null;
+        this.transformer = builder.transformer != null ? builder.transformer : builder.transformerSupplier.get();
+        this.parserFactory = builder.parserFactory;
+        this.parserPool = builder.parserPool;
+        this.symbols = builder.symbols != null ? builder.symbols : new SymbolTable();
+        this.sink = builder.sink;
+        this.scanner = new RecordScanner(rootNodePath, parserFactory.isNamespaceAware(), new RecordScanner.Listener() {
+            @Override
+            public void onRecord(final RecordScanner.Ancestors ancestors, final long start, final long end) {
+                if (firstStart < 0) {
+                    firstAncestors = ancestors;
+                    firstStart = start;
+                }
+                lastAncestors = ancestors;
+                lastEnd = end;
+            }
+        });
+    }
+
+    /**
+     * Consume the remaining bytes of the buffer, transforming the records they complete.
+     *
+     * @param bytes next bytes of the document
+     */
+    public void feed(final ByteBuffer bytes) {
+        final int count = bytes.remaining();
+        final int offset = reserve(count);
+        bytes.get(buffer, offset, count);
+        scan(offset, count);
+    }
+
+    /**
+     * Consume bytes, transforming the records they complete.
+     *
+     * @param bytes  next bytes of the document
+     * @param offset start of data in bytes
+     * @param count  number of bytes
+     */
+    public void feed(final byte[] bytes, final int offset, final int count) {
+        final int start = reserve(count);
+        System.arraycopy(bytes, offset, buffer, start, count);
+        scan(start, count);
+    }
+
+    /**
+     * End of input.  Bytes of an incomplete record are dropped, and a pooled
+     * parser and transformer are returned.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer = null;
+
+        if (parser != null && parserPool != null) {
+            parserPool.release(parser);
+        }
+        parser = null;
+
+        if (transformers != null) {
+            transformers.release(transformer);
+        }
+    }
+
+    /**
+     * Make room for count more bytes, dropping consumed ones.
+     *
+     * @return index to write the bytes at
+     */
+    private int reserve(final int count) {
+        Preconditions.checkState(!closed, "Feeder is closed.");
+
+        if (length + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+        }
+
+        final int offset = length;
+        length += count;
+        return offset;
+    }
+
+    private void scan(final int offset, final int count) {
+        scanner.feed(buffer, offset, count);
+
+        if (firstStart >= 0) {
+            try {
+                transformRecords();
+            } finally {
+                firstStart = -1;
+            }
+
+            // Keep the bytes after the last record, which may hold start tags of new ancestors.
+            final int consumed = (int) (lastEnd - base);
+            System.arraycopy(buffer, consumed, buffer, 0, length - consumed);
+            length -= consumed;
+            base = lastEnd;
+        }
+    }
+
+    /**
+     * Parse the records completed by the current feed as one document.
+     */
+    private void transformRecords() {
+        final InputStream is = new SequenceInputStream(
+                new ByteArrayInputStream(prefix(firstAncestors)),
+                new SequenceInputStream(
+                        new ByteArrayInputStream(buffer, (int) (firstStart - base), (int) (lastEnd - firstStart)),
+                        new ByteArrayInputStream(lastAncestors.closingTags())));
+
+        try {
+            if (parser == null) {
+                parser = parserPool != null ? parserPool.lease() : parserFactory.newPullParser();
+            }
+            parser.setInput(is, null);
+        } catch (final XmlPullParserException e) {
+            throw new RuntimeException("Failed to read stream.", e);
+        }
+
+        for (T value : new XMLObjectIterable.PullParserIterable<>(parser, is, rootNodePath, symbols, false,
+                false, transformer, null, null)) {
+            sink.accept(value);
+        }
+    }
+
+    /**
+     * @return the prolog followed by the start tags of the ancestors.
+     */
+    private byte[] prefix(final RecordScanner.Ancestors ancestors) {
+        if (ancestors == prefixAncestors) {
+            return prefix;
+        }
+
+        if (prolog == null) {
+            prolog = copy(0, ancestors.prologEnd);
+            tagStarts = new long[ancestors.size()];
+            tags = new byte[ancestors.size()][];
+        }
+
+        // Tags of ancestors that changed follow the last record, so they are still buffered.
+        int size = prolog.length;
+        for (int i = 0; i < ancestors.size(); ++i) {
+            if (tags[i] == null || tagStarts[i] != ancestors.tagStarts[i]) {
+                tagStarts[i] = ancestors.tagStarts[i];
+                tags[i] = copy(ancestors.tagStarts[i], ancestors.tagEnds[i]);
+            }
+            size += tags[i].length;
+        }
+
+        final byte[] bytes = new byte[size];
+        System.arraycopy(prolog, 0, bytes, 0, prolog.length);
+        int pos = prolog.length;
+        for (byte[] tag : tags) {
+            System.arraycopy(tag, 0, bytes, pos, tag.length);
+            pos += tag.length;
+        }
+
+        prefixAncestors = ancestors;
+        prefix = bytes;
+        return prefix;
+    }
+
+    /**
+     * @return copy of the buffered bytes between two document offsets
+     */
+    private byte[] copy(final long start, final long end) {
+        Preconditions.checkState(start >= base, "Bytes already consumed.");
+        return Arrays.copyOfRange(buffer, (int) (start - base), (int) (end - base));
+    }
+}
@@ -0,0 +1,540 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the records of a large XML file, kept in a sidecar file, for
+ * random access to single records by number or by key.
+ * <p/>
+ * {@link #write(XMLObjectIterable, File, Function)} scans the iterable's file
+ * once for the records matching its onNodes() path and writes the byte range
+ * of every record, and optionally its key, to the index file.  {@link #open}
+ * maps the index and parses just the requested record on each lookup:
+ * <pre>
+ *     XMLIndex.write(iterable, indexFile, ITEM_IDS);
+ *
+ *     try (XMLIndex&lt;Item&gt; index = XMLIndex.open(iterable, indexFile)) {
+ *         Optional&lt;Item&gt; item = index.find("42");
+ *     }
+ * </pre>
+ * The iterable must be built from a file with a parser factory, a transformer
+ * factory and a path without '//' or predicates, as for parallel parsing.
+ * A record is parsed as a standalone document made of the prolog, the start
+ * tags of its ancestors, the record and the end tags of its ancestors, so the
+ * transformer sees the same paths as when iterating over the whole file.
+ * Pass a {@link ParserPool} and a {@link TransformerPool} to the builder to
+ * reuse parsers and transformers across lookups.
+ * <p/>
+ * The index starts with a 64 byte header, followed by a 16 byte entry per
+ * record with its offset, length and ancestors, a 16 byte entry per key with
+ * its hash and the location of the key, sorted by hash, the keys and the
+ * prolog and ancestor tags.  Numbers are big-endian.
+ *
+ * @param <T> type of POJO
+ */
+public final class XMLIndex<T> implements Closeable {
+
+    private static final int MAGIC = 0x584F4958;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int ENTRY_SIZE = 16;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final HashFunction KEY_HASH = Hashing.murmur3_128();
+
+    private final XMLObjectIterable<T> source;
+    private final RegionSource document;
+    private final MappedRegionSource index;
+    private final long records;
+    private final long keys;
+    private final long keysOffset;
+    private final long keyBytesOffset;
+    private final byte[] prolog;
+    private final byte[][] startTags;
+    private final byte[][] closingTags;
+
+    private XMLIndex(final XMLObjectIterable<T> source, final RegionSource document, final MappedRegionSource index)
+            throws IOException {
+        this.source = source;
+        this.document = document;
+        this.index = index;
+
+        if (index.length() < HEADER_SIZE || index.getInt(0) != MAGIC) {
+            throw new IOException("Not an XML index.");
+        }
+        if (index.getInt(4) != VERSION) {
+            throw new IOException("Unsupported index version " + index.getInt(4) + ".");
+        }
+        if (index.getLong(8) != document.length()) {
+            throw new IOException("Index does not match the document, which has changed since.");
+        }
+
+        this.records = index.getLong(16);
+        this.keys = index.getLong(24);
+        this.keysOffset = HEADER_SIZE + records * ENTRY_SIZE;
+        this.keyBytesOffset = keysOffset + keys * ENTRY_SIZE;
+
+        long position = index.getLong(32);
+        final int contexts = index.getInt(40);
+        this.prolog = readBytes(index, position);
+        position += 4 + prolog.length;
+        this.startTags = new byte[contexts][];
+        this.closingTags = new byte[contexts][];
+        for (int i = 0; i < contexts; ++i) {
+            startTags[i] = readBytes(index, position);
+            position += 4 + startTags[i].length;
+            closingTags[i] = readBytes(index, position);
+            position += 4 + closingTags[i].length;
+        }
+    }
+
+    /**
+     * Index the records of a file.
+     *
+     * @param source    splittable iterable over the file, see {@link XMLIndex}
+     * @param indexFile file to write the index to, replaced if present
+     * @param <T>       type of POJO
+     * @return number of records indexed
+     * @throws IOException on read or write failure
+     */
+    public static <T> long write(final XMLObjectIterable<T> source, final File indexFile) throws IOException {
+        return write(source, indexFile, null);
+    }
+
+    /**
+     * Index the records of a file and their keys.  Each record is parsed to
+     * get its key, and keys are held in memory until the index is written.
+     *
+     * @param source    splittable iterable over the file, see {@link XMLIndex}
+     * @param indexFile file to write the index to, replaced if present
+     * @param key       returns the key of a POJO, or null if it has none; records
+     *                  that the transformer skips have no key either
+     * @param <T>       type of POJO
+     * @return number of records indexed
+     * @throws IOException on read or write failure
+     */
+    public static <T> long write(final XMLObjectIterable<T> source, final File indexFile,
+                                 final Function<? super T, String> key) throws IOException {
+        Preconditions.checkArgument(source.isSplittable(), "Indexing requires a file, a parser factory, "
+                + "a transformer factory and a path without '//' or predicates.");
+        Preconditions.checkNotNull(indexFile, "Index file cannot be null.");
+
+        final Writer<T> writer = new Writer<>(source, indexFile, key);
+        try {
+            return writer.write();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Open an index written by {@link #write(XMLObjectIterable, File, Function)}.
+     *
+     * @param source    iterable over the indexed file, with the same path
+     * @param indexFile index of the file
+     * @param <T>       type of POJO
+     * @return index that parses records with the iterable's parsers and transformers
+     * @throws IOException if a file cannot be read or the index does not match the file
+     */
+    public static <T> XMLIndex<T> open(final XMLObjectIterable<T> source, final File indexFile) throws IOException {
+        Preconditions.checkArgument(source.isSplittable(), "Indexing requires a file, a parser factory, "
+                + "a transformer factory and a path without '//' or predicates.");
+
+        final MappedRegionSource index = new MappedRegionSource(
+                FileChannel.open(indexFile.toPath(), StandardOpenOption.READ), true);
+        RegionSource document = null;
+        try {
+            document = source.openSource();
+            return new XMLIndex<>(source, document, index);
+        } catch (final IOException | RuntimeException e) {
+            Closeables.close(index, true);
+            Closeables.close(document, true);
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of records in the file
+     */
+    public long size() {
+        return records;
+    }
+
+    /**
+     * Parse a record.  May be called from any thread.
+     *
+     * @param record number of the record, from 0 in document order
+     * @return the POJO of the record, or absent if the transformer skips it
+     */
+    public Optional<T> get(final long record) {
+        if (record < 0 || record >= records) {
+            throw new IndexOutOfBoundsException("Record " + record + " of " + records + ".");
+        }
+
+        try {
+            final long entry = HEADER_SIZE + record * ENTRY_SIZE;
+            final long start = index.getLong(entry);
+            final int context = index.getInt(entry + 12);
+            final InputStream is = document(prolog, startTags[context],
+                    document.open(start, start + index.getInt(entry + 8)), closingTags[context]);
+
+            final XmlPullParser parser = source.newParser();
+            final XMLTransformer<T> transformer = source.newTransformer();
+            try {
+                return parse(source, is, parser, transformer);
+            } finally {
+                if (source.transformerPool() != null) {
+                    source.transformerPool().release(transformer);
+                }
+                if (source.parserPool() != null) {
+                    source.parserPool().release(parser);
+                }
+            }
+        } catch (final IOException | XmlPullParserException e) {
+            throw new RuntimeException("Failed to read record " + record + ".", e);
+        }
+    }
+
+    /**
+     * Parse the first record with a key.  May be called from any thread.
+     *
+     * @param key key of the record
+     * @return the POJO of the record, or absent if no record has the key
+     */
+    public Optional<T> find(final String key) {
+        final long record = indexOf(key);
+        return record >= 0 ? get(record) : Optional.<T>absent();
+    }
+
+    /**
+     * @param key key of a record
+     * @return number of the first record with the key, or -1 if no record has the key
+     */
+    public long indexOf(final String key) {
+        Preconditions.checkNotNull(key, "Key cannot be null.");
+
+        final long hash = KEY_HASH.hashString(key, Charsets.UTF_8).asLong();
+        final byte[] bytes = key.getBytes(Charsets.UTF_8);
+
+        try {
+            // Entries are sorted by hash and then record, so the first equal key is the first record.
+            long lo = 0;
+            long hi = keys;
+            while (lo < hi) {
+                final long mid = (lo + hi) >>> 1;
+                if (index.getLong(keysOffset + mid * ENTRY_SIZE) < hash) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+
+            for (long i = lo; i < keys && index.getLong(keysOffset + i * ENTRY_SIZE) == hash; ++i) {
+                final long position = keyBytesOffset + index.getLong(keysOffset + i * ENTRY_SIZE + 8);
+                final int length = index.getInt(position + 8);
+                if (length == bytes.length && Arrays.equals(bytes, index.read(position + 12, position + 12 + length))) {
+                    return index.getLong(position);
+                }
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Failed to read index.", e);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Close the index and the document.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            index.close();
+        } finally {
+            document.close();
+        }
+    }
+
+    /**
+     * @return bytes preceded by their length at the position.
+     */
+    private static byte[] readBytes(final MappedRegionSource index, final long position) throws IOException {
+        return index.read(position + 4, position + 4 + index.getInt(position));
+    }
+
+    /**
+     * @return the standalone document of a record.
+     */
+    private static InputStream document(final byte[] prolog, final byte[] startTags, final InputStream record,
+                                        final byte[] closingTags) {
+        return new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                new ByteArrayInputStream(prolog),
+                new ByteArrayInputStream(startTags),
+                record,
+                new ByteArrayInputStream(closingTags))));
+    }
+
+    /**
+     * @return the POJO of the first record of a document.
+     */
+    private static <T> Optional<T> parse(final XMLObjectIterable<T> source, final InputStream is,
+                                         final XmlPullParser parser, final XMLTransformer<T> transformer)
+            throws IOException, XmlPullParserException {
+        final Iterator<T> iterator = source.parse(is, parser, transformer).iterator();
+        try {
+            return iterator.hasNext() ? Optional.of(iterator.next()) : Optional.<T>absent();
+        } finally {
+            ((Closeable) iterator).close();
+        }
+    }
+
+    /**
+     * Key of a record, with the hash it is sorted by.
+     */
+    private static final class Key {
+        private final long hash;
+        private final long record;
+        private final byte[] bytes;
+
+        private Key(final long hash, final long record, final byte[] bytes) {
+            this.hash = hash;
+            this.record = record;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final Comparator<Key> KEY_ORDER = new Comparator<Key>() {
+        @Override
+        public int compare(final Key a, final Key b) {
+            final int order = Long.compare(a.hash, b.hash);
+            return order != 0 ? order : Long.compare(a.record, b.record);
+        }
+    };
+
+    /**
+     * Scans the document and writes the index in one pass.  Record entries
+     * are streamed to the index; keys and ancestor tags follow once the scan
+     * ends, and the header is written last.
+     */
+    private static final class Writer<T> implements RecordScanner.Listener {
+        private final XMLObjectIterable<T> source;
+        private final Function<? super T, String> keyFunction;
+        private final RegionSource document;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+        private final Map<RecordScanner.Ancestors, Integer> contexts = new IdentityHashMap<>();
+        private final List<byte[]> startTags = new ArrayList<>();
+        private final List<byte[]> closingTags = new ArrayList<>();
+        private final List<Key> keys = new ArrayList<>();
+        private byte[] prolog;
+
+        private XmlPullParser parser;
+        private XMLTransformer<T> transformer;
+
+        private long records;
+        private IOException failure;
+
+        private Writer(final XMLObjectIterable<T> source, final File indexFile,
+                       final Function<? super T, String> keyFunction) throws IOException {
+            this.source = source;
+            this.keyFunction = keyFunction;
+            this.document = source.openSource();
+            try {
+                this.channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (final IOException e) {
+                Closeables.close(document, true);
+                throw e;
+            }
+        }
+
+        @Override
+        public void onRecord(final RecordScanner.Ancestors ancestors, final long start, final long end) {
+            if (failure != null) {
+                return;
+            }
+
+            try {
+                Preconditions.checkState(end - start <= Integer.MAX_VALUE, "Record at offset %s is too large.", start);
+
+                final int context = context(ancestors);
+                if (buffer.remaining() < ENTRY_SIZE) {
+                    flush();
+                }
+                buffer.putLong(start).putInt((int) (end - start)).putInt(context);
+
+                if (keyFunction != null) {
+                    addKey(context, start, end);
+                }
+                records++;
+            } catch (final IOException e) {
+                failure = e;
+            } catch (final XmlPullParserException e) {
+                failure = new IOException("Failed to parse record at offset " + start + ".", e);
+            }
+        }
+
+        private long write() throws IOException {
+            buffer.position(HEADER_SIZE);
+
+            final RecordScanner scanner = source.newScanner(this);
+            while (failure == null && document.scan(scanner, SCAN_BUFFER_SIZE) != -1) {
+                // The scanner reports records to onRecord().
+            }
+            if (failure != null) {
+                throw failure;
+            }
+
+            Collections.sort(keys, KEY_ORDER);
+            long keyPosition = 0;
+            for (Key key : keys) {
+                putLong(key.hash);
+                putLong(keyPosition);
+                keyPosition += 12 + key.bytes.length;
+            }
+            for (Key key : keys) {
+                putLong(key.record);
+                put(key.bytes);
+            }
+
+            final long contextsOffset = position();
+            put(prolog != null ? prolog : new byte[0]);
+            for (int i = 0; i < startTags.size(); ++i) {
+                put(startTags.get(i));
+                put(closingTags.get(i));
+            }
+            flush();
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putLong(document.length())
+                    .putLong(records)
+                    .putLong(keys.size())
+                    .putLong(contextsOffset)
+                    .putInt(startTags.size());
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            return records;
+        }
+
+        /**
+         * @return index of the ancestors in the index's table of ancestor tags.
+         */
+        private int context(final RecordScanner.Ancestors ancestors) throws IOException {
+            Integer context = contexts.get(ancestors);
+            if (context == null) {
+                if (prolog == null) {
+                    prolog = document.read(0, ancestors.prologEnd);
+                }
+
+                context = startTags.size();
+                contexts.put(ancestors, context);
+                startTags.add(ancestors.startTags(document));
+                closingTags.add(ancestors.closingTags());
+            }
+            return context;
+        }
+
+        private void addKey(final int context, final long start, final long end)
+                throws IOException, XmlPullParserException {
+            if (parser == null) {
+                parser = source.newParser();
+                transformer = source.newTransformer();
+            }
+
+            final Optional<T> pojo = parse(source, document(prolog, startTags.get(context),
+                    document.open(start, end), closingTags.get(context)), parser, transformer);
+            final String key = pojo.isPresent() ? keyFunction.apply(pojo.get()) : null;
+            if (key != null) {
+                keys.add(new Key(KEY_HASH.hashString(key, Charsets.UTF_8).asLong(), records,
+                        key.getBytes(Charsets.UTF_8)));
+            }
+        }
+
+        private long position() throws IOException {
+            return channel.position() + buffer.position();
+        }
+
+        private void putLong(final long value) throws IOException {
+            if (buffer.remaining() < 8) {
+                flush();
+            }
+            buffer.putLong(value);
+        }
+
+        /**
+         * Write bytes preceded by their length.
+         */
+        private void put(final byte[] bytes) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(bytes.length);
+
+            int pos = 0;
+            while (pos < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                final int count = Math.min(buffer.remaining(), bytes.length - pos);
+                buffer.put(bytes, pos, count);
+                pos += count;
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void close() throws IOException {
+            if (parser != null) {
+                if (source.transformerPool() != null) {
+                    source.transformerPool().release(transformer);
+                }
+                if (source.parserPool() != null) {
+                    source.parserPool().release(parser);
+                }
+            }
+
+            try {
+                channel.close();
+            } finally {
+                document.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Describes how the elements of a record are mapped to a POJO, for schemas that
+ * are only known at runtime.  A mapping names the record path, the constructor
+ * arguments and the setters of the POJO; {@link MappedTransformerFactory} compiles
+ * it into transformers.
+ * <p/>
+ * Mappings are values: two mappings built the same way are equal and share
+ * compiled transformers.
+ * <p/>
+ * Value paths are relative to the record element: "title" is the text of a child
+ * element, "title@lang" an attribute of it, "@id" an attribute of the record and
+ * "" the record's own text.
+ *
+ * @param <T> type of POJO
+ */
+public final class XMLMapping<T> {
+
+    /**
+     * A value read from the record and where it goes.
+     */
+    static final class Binding {
+        final String[] path;
+        final String attribute;
+        final String setter;
+        final boolean required;
+
+        private Binding(final String path, final String setter, final boolean required) {
+            Preconditions.checkNotNull(path, "Path cannot be null.");
+
+            final int at = path.lastIndexOf('@');
+            this.path = split(at < 0 ? path : path.substring(0, at));
+            this.attribute = at < 0 ? null : path.substring(at + 1).trim();
+            this.setter = setter;
+            this.required = required;
+
+            Preconditions.checkArgument(attribute == null || !attribute.isEmpty(), "Missing attribute name: " + path);
+        }
+
+        /**
+         * @return name of the element holding the value, null for the record itself
+         */
+        String elementName() {
+            return path.length == 0 ? null : path[path.length - 1];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Binding)) {
+                return false;
+            }
+            final Binding other = (Binding) o;
+            return required == other.required
+                    && Arrays.equals(path, other.path)
+                    && Objects.equal(attribute, other.attribute)
+                    && Objects.equal(setter, other.setter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(Arrays.hashCode(path), attribute, setter, required);
+        }
+
+        @Override
+        public String toString() {
+            return Joiner.on('/').join(path) + (attribute == null ? "" : "@" + attribute)
+                    + (setter == null ? "" : " -> " + setter) + (required ? " (required)" : "");
+        }
+    }
+
+    private final Class<T> type;
+    private final String[] path;
+    private final ImmutableList<Binding> arguments;
+    private final ImmutableList<Binding> setters;
+
+    private XMLMapping(final Class<T> type, final String[] path,
+                       final List<Binding> arguments, final List<Binding> setters) {
+        this.type = type;
+        this.path = path;
+        this.arguments = ImmutableList.copyOf(arguments);
+        this.setters = ImmutableList.copyOf(setters);
+    }
+
+    /**
+     * @return type of POJO
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return path to the records, to pass to {@link XMLObjectIterable.Builder#onNodes(String)}
+     */
+    public String getPath() {
+        return Joiner.on('/').join(path);
+    }
+
+    int rootDepth() {
+        return path.length;
+    }
+
+    String recordName() {
+        return path[path.length - 1];
+    }
+
+    List<Binding> arguments() {
+        return arguments;
+    }
+
+    List<Binding> setters() {
+        return setters;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof XMLMapping)) {
+            return false;
+        }
+        final XMLMapping<?> other = (XMLMapping<?>) o;
+        return type.equals(other.type)
+                && Arrays.equals(path, other.path)
+                && arguments.equals(other.arguments)
+                && setters.equals(other.setters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(type, Arrays.hashCode(path), arguments, setters);
+    }
+
+    @Override
+    public String toString() {
+        return type.getName() + " at " + getPath() + ", arguments " + arguments + ", setters " + setters;
+    }
+
+    private static String[] split(final String path) {
+        final List<String> segments = Splitter.on('/').omitEmptyStrings().trimResults().splitToList(path);
+        return segments.toArray(new String[segments.size()]);
+    }
+
+    /**
+     * Builder for mappings.
+     *
+     * @param <T> type of POJO
+     */
+    public static final class Builder<T> {
+        private final Class<T> type;
+        private final ImmutableList.Builder<Binding> arguments = ImmutableList.builder();
+        private final ImmutableList.Builder<Binding> setters = ImmutableList.builder();
+        private String[] path;
+
+        /**
+         * @param type type of POJO, which must be public along with the constructor
+         *             and setters used.
+         */
+        public Builder(final Class<T> type) {
+            this.type = Preconditions.checkNotNull(type, "Type cannot be null.");
+        }
+
+        /**
+         * Required.
+         *
+         * @param xmlPath path to the records, such as "rss/channel/item"
+         * @return builder
+         */
+        public Builder<T> onNodes(final String xmlPath) {
+            Preconditions.checkNotNull(xmlPath, "Path cannot be null.");
+            this.path = split(xmlPath);
+            Preconditions.checkArgument(path.length > 0, "Path must contain at least one element.");
+            return this;
+        }
+
+        /**
+         * Pass an optional value as the next constructor argument, null when absent.
+         *
+         * @param valuePath value path relative to the record
+         * @return builder
+         */
+        public Builder<T> withArgument(final String valuePath) {
+            return withArgument(valuePath, false);
+        }
+
+        /**
+         * Pass a value as the next constructor argument.  Arguments that are not
+         * Strings are converted with a static valueOf(String) or a String constructor
+         * of their type (or its wrapper), so numbers, booleans, enums and BigDecimal
+         * work as they are.  A missing optional value is passed as null, or as 0
+         * or false to a primitive parameter.  Records with a value that does not
+         * convert are skipped, and exceptions thrown by the POJO propagate.
+         *
+         * @param valuePath value path relative to the record
+         * @param required  true if records without the value are skipped
+         * @return builder
+         */
+        public Builder<T> withArgument(final String valuePath, final boolean required) {
+            arguments.add(new Binding(valuePath, null, required));
+            return this;
+        }
+
+        /**
+         * Pass an optional value to a setter after construction.  The setter is
+         * not called when the value is absent.
+         *
+         * @param valuePath value path relative to the record
+         * @param setter    name of a public method of the POJO taking one argument
+         * @return builder
+         */
+        public Builder<T> withSetter(final String valuePath, final String setter) {
+            return withSetter(valuePath, setter, false);
+        }
+
+        /**
+         * Pass a value to a setter after construction, converted like constructor arguments.
+         *
+         * @param valuePath value path relative to the record
+         * @param setter    name of a public method of the POJO taking one argument
+         * @param required  true if records without the value are skipped
+         * @return builder
+         */
+        public Builder<T> withSetter(final String valuePath, final String setter, final boolean required) {
+            Preconditions.checkNotNull(setter, "Setter cannot be null.");
+            setters.add(new Binding(valuePath, setter, required));
+            return this;
+        }
+
+        /**
+         * @return mapping
+         */
+        public XMLMapping<T> create() {
+            Preconditions.checkState(path != null, "Must call onNodes() on builder.");
+            return new XMLMapping<>(type, path, arguments.build(), setters.build());
+        }
+    }
+}
@@ -2,15 +2,24 @@ package com.abk.xmlobjectiterable;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
 import com.google.common.io.Closeables;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Transform and iterate over XML elements as POJOs.
@@ -26,9 +35,21 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
      */
     public static final class Builder<T> {
         private InputStream is;
+        private File file;
+        private Path path;
+        private FileChannel channel;
         private XMLTransformer<T> transformer;
+        private Supplier<? extends XMLTransformer<T>> transformerSupplier;
         private XmlPullParser pullParser;
-        private List<String> rootNodePath;
+        private XmlPullParserFactory parserFactory;
+        private ParserPool parserPool;
+        private PathMatcher rootNodePath;
+        private SymbolTable symbols;
+        private boolean builtInParser;
+        private boolean textViews;
+        private boolean reuseElements;
+        private ForkJoinPool pool;
+        private boolean ordered;
 
         /**
          * Read XML from an InputStream.
@@ -39,20 +60,28 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
          * @return builder
          */
         public Builder<T> from(final InputStream is) {
+            clearSource();
             this.is = is;
             Preconditions.checkNotNull(this.is, "InputStream cannot be null.");
             return this;
         }
 
+        /**
+         * Path of the elements to transform, such as "rss/channel/item".
+         * <p/>
+         * Steps may be '*', '//' matches the next step at any depth, and
+         * attribute predicates such as "opml/body//outline[@type='rss'][@xmlUrl]"
+         * reject elements before they are built.  Elements inside a matched
+         * element are not matched again.
+         *
+         * @param xmlPath path expression
+         * @return Builder
+         */
         public Builder<T> onNodes(String xmlPath) {
             if (rootNodePath != null) {
                 throw new RuntimeException("Must specify only one xml path or transform predicate.");
             }
-            this.rootNodePath = Splitter
-                    .on('/')
-                    .omitEmptyStrings()
-                    .trimResults()
-                    .splitToList(xmlPath);
+            this.rootNodePath = PathMatcher.compile(xmlPath);
             return this;
         }
 
@@ -65,7 +94,7 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
                 throw new RuntimeException("Must specify only one xml path or transform predicate.");
             }
 
-            this.rootNodePath = path;
+            this.rootNodePath = PathMatcher.compile(path);
             return this;
         }
 
@@ -81,11 +110,62 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
          * @return builder
          */
         public Builder<T> from(final String xml) {
+            clearSource();
             this.is = new ByteArrayInputStream(xml.getBytes());
             Preconditions.checkNotNull(this.is, "InputStream cannot be null.");
             return this;
         }
 
+        /**
+         * Read XML from a file.
+         * <p/>
+         * One call to from() is required.  A file source is
+         * re-opened for each iterator and is required for
+         * parallel parsing.
+         *
+         * @param file XML file
+         * @return builder
+         */
+        public Builder<T> from(final File file) {
+            clearSource();
+            this.file = file;
+            Preconditions.checkNotNull(this.file, "File cannot be null.");
+            return this;
+        }
+
+        /**
+         * Read XML from a memory-mapped file.
+         * <p/>
+         * One call to from() is required.  The file is mapped for each
+         * iterator and the parser reads straight from the mapping.  Record
+         * boundaries for parallel parsing are scanned in place.
+         *
+         * @param path XML file
+         * @return builder
+         */
+        public Builder<T> from(final Path path) {
+            clearSource();
+            this.path = path;
+            Preconditions.checkNotNull(this.path, "Path cannot be null.");
+            return this;
+        }
+
+        /**
+         * Read XML from a memory-mapped file channel.
+         * <p/>
+         * One call to from() is required.  The channel is mapped for
+         * each iterator and is not closed by the iterable.
+         *
+         * @param channel open channel of XML file
+         * @return builder
+         */
+        public Builder<T> from(final FileChannel channel) {
+            clearSource();
+            this.channel = channel;
+            Preconditions.checkNotNull(this.channel, "FileChannel cannot be null.");
+            return this;
+        }
+
         /**
          * Read XML from a classloader.
          * <p/>
@@ -99,11 +179,22 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
          * @return builder
          */
         public Builder<T> from(final Class<?> clazz, final String resourcePath) {
+            clearSource();
             this.is = clazz.getResourceAsStream(resourcePath);
             Preconditions.checkNotNull(this.is, "Failed to load resource: " + resourcePath);
             return this;
         }
 
+        /**
+         * A later call to from() replaces the input of an earlier one.
+         */
+        private void clearSource() {
+            this.is = null;
+            this.file = null;
+            this.path = null;
+            this.channel = null;
+        }
+
         /**
          * Defines the Transformer that will generate
          * POJOs for each matched path element.
@@ -112,6 +203,10 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
          * <p/>
          * NOTE: This data will be ignored if
          * parser passed already has input set.
+         * <p/>
+         * The instance is shared by every iterator of the iterable, so
+         * iterators must not be used concurrently.  Use withTransform(Supplier)
+         * to give each iterator its own Transformer.
          *
          * @param transformer Transformer instance
          * @return builder
@@ -121,6 +216,44 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
             return this;
         }
 
+        /**
+         * Defines a factory of Transformers that will generate
+         * POJOs for each matched path element.  A new Transformer
+         * is requested for each iterator and for each parallel chunk.
+         * Pass a {@link TransformerPool} to reuse Transformers per thread.
+         * <p/>
+         * One of the withTransform() methods is required.
+         *
+         * @param transformers Transformer factory
+         * @return builder
+         */
+        public Builder<T> withTransform(final Supplier<? extends XMLTransformer<T>> transformers) {
+            this.transformerSupplier = transformers;
+            return this;
+        }
+
+        /**
+         * Parse chunks of a record-oriented file concurrently.
+         * <p/>
+         * The file is scanned for the byte ranges of the elements matching
+         * onNodes(), which are grouped into chunks and parsed on the pool,
+         * each with its own parser and Transformer.  Requires a file source,
+         * withParserFactory() or withParserPool(), and withTransform(Supplier).  Transformer
+         * state is not carried between chunks, so the Transformer must build
+         * each POJO from the elements of a single matched node.
+         *
+         * @param pool    pool that parses the chunks
+         * @param ordered true to return POJOs in document order, false to
+         *                return them as chunks complete
+         * @return builder
+         */
+        public Builder<T> withParallelism(final ForkJoinPool pool, final boolean ordered) {
+            this.pool = pool;
+            this.ordered = ordered;
+            Preconditions.checkNotNull(this.pool, "ForkJoinPool cannot be null.");
+            return this;
+        }
+
         /**
          * Creates the iterable.
          * Will throw a RuntimeException if insufficient
@@ -129,16 +262,118 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
          * @return XMLObjectIterable
          */
         public XMLObjectIterable<T> create() {
-            Preconditions.checkNotNull(transformer, "Must call withTransform() on builder.");
-            Preconditions.checkNotNull(pullParser, "Must set a XmlPullParser instance.");
+            Preconditions.checkState(transformer != null || transformerSupplier != null,
+                    "Must call withTransform() on builder.");
+            Preconditions.checkState(pullParser != null || parserFactory != null,
+                    "Must set a XmlPullParser instance.");
+            Preconditions.checkNotNull(rootNodePath, "Must call onNodes() on builder.");
+
+            if (pool != null) {
+                Preconditions.checkState(file != null || path != null || channel != null,
+                        "Parallel parsing requires from(File), from(Path) or from(FileChannel).");
+                Preconditions.checkState(parserFactory != null, "Parallel parsing requires withParserFactory() or withParserPool().");
+                Preconditions.checkState(transformerSupplier != null, "Parallel parsing requires withTransform(Supplier).");
+                Preconditions.checkState(rootNodePath.isFixed(), "Parallel parsing requires a path without '//' or predicates.");
+            }
+
+            return new XMLObjectIterable<>(this);
+        }
+
+        /**
+         * Canonicalize element and attribute names through the given table
+         * rather than a new one, so that a transformer can resolve name ids
+         * with {@link SymbolTable#id(String)} before parsing.
+         *
+         * @param symbols symbol table
+         * @return builder
+         */
+        public Builder<T> withSymbols(final SymbolTable symbols) {
+            this.symbols = Preconditions.checkNotNull(symbols, "SymbolTable cannot be null.");
+            return this;
+        }
 
-            return new XMLObjectIterable<>(pullParser, is, transformer, rootNodePath);
+        /**
+         * Pass the text of elements to visit() as a view of a buffer reused
+         * for the whole document, rather than as a new String per element.
+         * {@link XMLElement#getText()} and the getValueAs methods read the
+         * view directly and getValue() creates the String on first call.
+         * <p/>
+         * The view is only valid during visit(): an element kept after it has
+         * no text, unless getValue() was called.
+         *
+         * @param textViews true to pass text as views
+         * @return builder
+         */
+        public Builder<T> withTextViews(final boolean textViews) {
+            this.textViews = textViews;
+            return this;
+        }
+
+        /**
+         * Pass one reused {@link XMLElement} per depth to visit() rather than a
+         * new element with new attributes for each element of the document.
+         * <p/>
+         * Elements are only valid during visit(): the transformer must copy
+         * what it needs and not keep references to them.
+         *
+         * @param reuseElements true to reuse elements
+         * @return builder
+         */
+        public Builder<T> withReusedElements(final boolean reuseElements) {
+            this.reuseElements = reuseElements;
+            return this;
         }
 
         public Builder<T> withParser(final XmlPullParser parser) {
             this.pullParser = parser;
             return this;
         }
+
+        /**
+         * Create a new XmlPullParser from the factory for each iterator,
+         * and for each chunk when parsing in parallel.
+         *
+         * @param factory configured parser factory
+         * @return builder
+         */
+        public Builder<T> withParserFactory(final XmlPullParserFactory factory) {
+            this.parserFactory = factory;
+            this.parserPool = null;
+            this.builtInParser = false;
+            return this;
+        }
+
+        /**
+         * Lease a parser from the pool for each iterator, and for each chunk
+         * when parsing in parallel.  Parsers are returned to the pool when
+         * the iterator or chunk reaches the end of its document.
+         *
+         * @param pool parser pool, usually shared by many iterables
+         * @return builder
+         */
+        public Builder<T> withParserPool(final ParserPool pool) {
+            this.parserPool = Preconditions.checkNotNull(pool, "ParserPool cannot be null.");
+            this.parserFactory = pool.getFactory();
+            this.builtInParser = false;
+            return this;
+        }
+
+        /**
+         * Parse with the built-in {@link XMLTokenizer} instead of an external
+         * XmlPullParser implementation.  A new tokenizer is created for each
+         * iterator, and for each chunk when parsing in parallel.  Tokenizers
+         * canonicalize names through the iterable's symbol table.
+         *
+         * @param namespaceAware true to report names without namespace prefix
+         * @return builder
+         */
+        public Builder<T> withBuiltInParser(final boolean namespaceAware) {
+            final XMLTokenizer.Factory factory = new XMLTokenizer.Factory();
+            factory.setNamespaceAware(namespaceAware);
+            withParserFactory(factory);
+            this.builtInParser = true;
+            return this;
+        }
     }
 
     /**
@@ -146,193 +381,433 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
      *
      * @param <T>
      */
-    private static final class PullParserIterable<T> implements Iterable<T> {
+    static final class PullParserIterable<T> extends ElementReader implements Iterable<T> {
 
-        private static final int DEPTH_OUTSIDE = 0;
-        private static final int DEPTH_AT_ROOT = 1;
-        private static final int DEPTH_INSIDE = 2;
-
-        private final XmlPullParser parser;
         private final InputStream inputStream;
         private final XMLTransformer<T> transformer;
-        private final List<String> rootNodePath;
-        private Deque<XMLElement> nodeValueStack = new LinkedList<>();
-        private List<String> nodeNameStack = new ArrayList<>();
+        private final XMLControlTransformer<T> control;
+        private final XMLTextTransformer<T> textStream;
+        private final TransformerPool<T> transformers;
+        private final ParserPool parsers;
+        private final PathMatcher.Cursor rootPathCursor;
+        private final boolean textViews;
+        private final boolean reuseElements;
+        private XMLElement[] elements = new XMLElement[8];
+        private T value;
+        private boolean done;
 
         /**
          * @param parser         pull parser initialized with input.
          * @param is             inputStream of XML
-         * @param rootNodePath   Predicate to determine of transformer shall be called on given node
+         * @param rootNodePath   compiled path of the nodes the transformer shall be called on
+         * @param symbols        table that canonicalizes element and attribute names
+         * @param textViews      true to pass element text as views of the text buffer
+         * @param reuseElements  true to pass one reused element per depth to the transformer
          * @param transformer    instance of a transformer that generates the POJOs.
+         * @param transformers   pool to return the transformer to at the end of the document, or null
+         * @param parsers        pool to return the parser to at the end of the document, or null
          */
-        public PullParserIterable(final XmlPullParser parser, final InputStream is, final List<String> rootNodePath, final XMLTransformer<T> transformer) {
-            this.parser = parser;
+        public PullParserIterable(final XmlPullParser parser, final InputStream is, final PathMatcher rootNodePath,
+                                  final SymbolTable symbols, final boolean textViews,
+                                  final boolean reuseElements, final XMLTransformer<T> transformer,
+                                  final TransformerPool<T> transformers, final ParserPool parsers) {
+            super(parser, symbols);
             this.inputStream = is;
-            this.rootNodePath = rootNodePath;
+            this.rootPathCursor = rootNodePath.cursor();
+            this.textViews = textViews;
+            this.reuseElements = reuseElements;
             this.transformer = transformer;
+            this.control = transformer instanceof XMLControlTransformer ? (XMLControlTransformer<T>) transformer : null;
+            this.textStream = transformer instanceof XMLTextTransformer ? (XMLTextTransformer<T>) transformer : null;
+            this.transformers = transformers;
+            this.parsers = parsers;
         }
 
         @Override
         public Iterator<T> iterator() {
-            return new Iterator<T>() {
-
-                T next = null;
+            return new RecordIterator();
+        }
 
-                @Override
-                public boolean hasNext() {
-                    if (next != null) {
-                        throw new IllegalStateException("next expected to be null.");
-                    }
+        /**
+         * Iterator over the POJOs that can be closed before the end of the document.
+         */
+        private final class RecordIterator implements Iterator<T>, Closeable {
 
-                    final Optional<T> nextOpt = loop();
+            T next = null;
 
-                    if (nextOpt != null) {
-                        next = nextOpt.get();
-                        return true;
-                    }
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = readNext();
+                }
 
-                    //No data, close stream.
-                    Closeables.closeQuietly(inputStream);
+                return next != null;
+            }
 
-                    return false;
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new IllegalStateException("No data.");
                 }
 
-                @Override
-                public T next() {
-                    if (next == null) {
-                        final Optional<T> nextOpt = loop();
+                final T nv = next;
+                next = null;
 
-                        if (nextOpt != null) {
-                            next = nextOpt.get();
-                        } else {
-                            throw new IllegalStateException("No data.");
-                        }
-                    }
+                return nv;
+            }
 
-                    final T nv = next;
-                    next = null;
+            @Override
+            public void remove() {
+                throw new RuntimeException("Unsupported operation.");
+            }
 
-                    return nv;
+            /**
+             * Stop parsing, close the stream and return pooled parsers and transformers.
+             */
+            @Override
+            public void close() {
+                next = null;
+                if (!done) {
+                    transformer.reset();
+                    finish();
                 }
+            }
+        }
 
-                /**
-                 * Scan the input until the transformer
-                 * returns a POJO or we reach the end
-                 * of the document.
-                 *
-                 * @return optional POJO
-                 */
-                private Optional<T> loop() {
-                    Optional<T> nextOpt;
-                    do {
-                        nextOpt = getNext();
-                    } while (nextOpt != null && !nextOpt.isPresent());
-
-                    return nextOpt;
-                }
+        /**
+         * Parse the input XML until the transformer creates
+         * a POJO or the end of the document is reached.
+         *
+         * @return next POJO, or null at the end of the document, after which the stream is closed.
+         */
+        private T readNext() {
+            if (done) {
+                return null;
+            }
 
-                /**
-                 * Parse the input XML and create a POJO
-                 * when the next xmlPath element is found.
-                 *
-                 * @return optional POJO
-                 */
-                private Optional<T> getNext() {
-                    int nextTokenType;
-
-                    try {
-                        while ((nextTokenType = parser.next()) != XmlPullParser.END_DOCUMENT) {
-                            switch (nextTokenType) {
-                                case XmlPullParser.START_TAG:
-                                    nodeNameStack.add(parser.getName());
-                                    nodeValueStack.addLast(new XMLElement(parser.getName(), null, loadAttribs(parser)));
-                                    break;
-                                case XmlPullParser.TEXT:
-                                    nodeValueStack.peekLast().setValue(parser.getText());
-                                    break;
-                                case XmlPullParser.END_TAG:
-                                    final int depth = getNodeDepth(rootNodePath, nodeNameStack);
-                                    final XMLElement lastNode = nodeValueStack.removeLast();
-
-                                    switch (depth) {
-                                        case DEPTH_AT_ROOT:
-                                            transformer.visit(lastNode, Collections.unmodifiableList(nodeNameStack));
-                                            nodeNameStack.remove(nodeNameStack.size() - 1);
-                                            if (transformer.canTransform()) {
-                                                final Optional<T> val = transformer.transform();
-                                                transformer.reset();
-
-                                                return val;
-                                            }
-                                            break;
-                                        case DEPTH_INSIDE:
-                                            transformer.visit(lastNode, Collections.unmodifiableList(nodeNameStack));
-                                            nodeNameStack.remove(nodeNameStack.size() - 1);
-                                            break;
-                                        default:
-                                            nodeNameStack.remove(nodeNameStack.size() - 1);
-                                            break;
-                                    }
-                            }
-
-                        }
-                    } catch (XmlPullParserException | IOException e) {
-                        throw new RuntimeException("Error while parsing XML.", e);
-                    }
+            if (!read()) {
+                //No data, close stream.
+                finish();
+                return null;
+            }
 
-                    return null;
-                }
+            final T val = value;
+            value = null;
+            return val;
+        }
+
+        @Override
+        boolean enter(final String name) {
+            return rootPathCursor.enter(name, parser);
+        }
 
-                @Override
-                public void remove() {
-                    throw new RuntimeException("Unsupported operation.");
+        @Override
+        boolean isMatched() {
+            return rootPathCursor.isMatched();
+        }
+
+        @Override
+        void start(final String name, final int nameId) throws XmlPullParserException, IOException {
+            if (control != null) {
+                final XMLControl action = control.start(name, nodeNamePath);
+                if (action != XMLControl.CONTINUE) {
+                    value = applyControl(action, name, nameId);
+                    return;
                 }
-            };
+            }
+            push(name, nameId);
         }
 
-        private int getNodeDepth(List<String> rootNodePath, List<String> nodeNameStack) {
-            if (nodeNameStack.size() < rootNodePath.size()) {
-                return DEPTH_OUTSIDE;
+        @Override
+        void streamText(final String name, final CharSequence text) {
+            textStream.text(name, text);
+        }
+
+        @Override
+        void end() {
+            final int position = rootPathCursor.position();
+            rootPathCursor.exit();
+
+            switch (position) {
+                case PathMatcher.DEPTH_AT_ROOT:
+                    visitElement();
+                    nodeNamePath.pop();
+                    if (transformer.canTransform()) {
+                        final Optional<T> val = transformer.transform();
+                        transformer.reset();
+                        value = val.orNull();
+                    }
+                    break;
+                case PathMatcher.DEPTH_INSIDE:
+                    visitElement();
+                    nodeNamePath.pop();
+                    break;
+                default:
+                    nodeNamePath.pop();
+                    break;
             }
+        }
 
-            if (nodeNameStack.hashCode() == rootNodePath.hashCode()) {
-                return DEPTH_AT_ROOT;
+        @Override
+        boolean isReady() {
+            return value != null || done;
+        }
+
+        /**
+         * Close the stream and return a pooled transformer and parser.
+         */
+        private void finish() {
+            done = true;
+            Closeables.closeQuietly(inputStream);
+
+            if (transformers != null) {
+                transformers.release(transformer);
             }
 
-            return DEPTH_INSIDE;
+            if (parsers != null) {
+                parsers.release(parser);
+            }
         }
 
         /**
-         * Load an XML element's attributes into a map
-         *
-         * @param parser          parser at node start
-         * @return map of attribs.
+         * Build the element at the parser's start tag and open its text.
          */
-        private static Map<String, String> loadAttribs(final XmlPullParser parser) {
-            Map<String, String> attribs = new HashMap<>();
-            final int attribCount = parser.getAttributeCount();
+        private void push(final String name, final int nameId) {
+            final XMLElement node = reuseElements
+                    ? reuseElement(name, nameId) : new XMLElement(name, nameId, null, loadAttribs(parser, symbols));
+            open(node, textStream != null && textStream.streamsText(name, nodeNamePath));
+        }
 
+        /**
+         * @return the element of the next depth, reset to the parser's start tag
+         */
+        private XMLElement reuseElement(final String name, final int nameId) {
+            final int depth = nodeValueStack.size();
+            if (depth == elements.length) {
+                elements = Arrays.copyOf(elements, depth * 2);
+            }
+
+            XMLElement node = elements[depth];
+            if (node == null) {
+                node = new XMLElement(name, nameId, null, null);
+                elements[depth] = node;
+            }
+
+            final int attribCount = Math.max(parser.getAttributeCount(), 0);
+            String[] attribs = node.attributeArray();
+            if (attribs.length < attribCount * 2) {
+                attribs = new String[attribCount * 2];
+            }
             for (int index = 0; index < attribCount; ++index) {
-                attribs.put(parser.getAttributeName(index), parser.getAttributeValue(index));
+                attribs[index * 2] = symbols.intern(parser.getAttributeName(index));
+                attribs[index * 2 + 1] = parser.getAttributeValue(index);
+            }
+
+            node.reset(name, nameId, attribs, attribCount * 2);
+            return node;
+        }
+
+        /**
+         * Pass the innermost element, completed with its text, to the transformer.
+         */
+        private void visitElement() {
+            if (textViews) {
+                final XMLElement node = nodeValueStack.removeLast();
+                node.setText(text.peek());
+                transformer.visit(node, nodeNamePath);
+                node.setText(null);
+                text.discard();
+            } else {
+                transformer.visit(closeElement(), nodeNamePath);
+            }
+        }
+
+        /**
+         * Act on a control other than CONTINUE for the element at the parser's start tag,
+         * which has been entered in the path cursor and name stack but not built.
+         *
+         * @return POJO of a finished record, or null
+         */
+        private T applyControl(final XMLControl action, final String name, final int nameId)
+                throws XmlPullParserException, IOException {
+            if (action == XMLControl.SKIP_SUBTREE && !nodeValueStack.isEmpty()) {
+                skipSubtree(parser);
+                rootPathCursor.exit();
+                nodeNamePath.pop();
+                return null;
+            }
+            switch (action) {
+                case SKIP_SUBTREE:
+                    // Skipping the record element skips the record.
+                case SKIP_RECORD:
+                    skipLevels(parser, nodeValueStack.size() + 1);
+                    for (int i = nodeValueStack.size(); i >= 0; --i) {
+                        rootPathCursor.exit();
+                        nodeNamePath.pop();
+                    }
+                    nodeValueStack.clear();
+                    text.clear();
+                    transformer.reset();
+                    return null;
+                case FINISH_RECORD:
+                    push(name, nameId);
+                    skipLevels(parser, nodeValueStack.size());
+                    while (!nodeValueStack.isEmpty()) {
+                        visitElement();
+                        nodeNamePath.pop();
+                        rootPathCursor.exit();
+                    }
+                    if (transformer.canTransform()) {
+                        final Optional<T> val = transformer.transform();
+                        transformer.reset();
+                        return val.orNull();
+                    }
+                    return null;
+                case STOP_DOCUMENT:
+                    transformer.reset();
+                    finish();
+                    return null;
+                default:
+                    throw new IllegalArgumentException("Unknown control: " + action);
             }
-            return attribs;
         }
     }
 
     private final XMLTransformer<T> transformer;
+    private final Supplier<? extends XMLTransformer<T>> transformerSupplier;
     private final InputStream is;
+    private final File file;
+    private final Path path;
+    private final FileChannel channel;
     private final XmlPullParser parser;
-    private List<String> rootNodePath;
+    private final XmlPullParserFactory parserFactory;
+    private final ParserPool parserPool;
+    private final PathMatcher rootNodePath;
+    private final SymbolTable symbols;
+    private final boolean textViews;
+    private final boolean reuseElements;
+    private final ForkJoinPool pool;
+    private final boolean ordered;
+
+    private XMLObjectIterable(final Builder<T> builder) {
+        this.is = builder.is;
+        this.file = builder.file;
+        this.path = builder.path;
+        this.channel = builder.channel;
+        this.transformer = builder.transformer;
+        this.transformerSupplier = builder.transformerSupplier;
+        this.parser = builder.pullParser;
+        this.parserPool = builder.parserPool;
+        this.rootNodePath = builder.rootNodePath;
+        this.symbols = builder.symbols != null ? builder.symbols : new SymbolTable();
+        this.parserFactory = builder.builtInParser
+                ? ((XMLTokenizer.Factory) builder.parserFactory).withSymbols(symbols) : builder.parserFactory;
+        this.textViews = builder.textViews;
+        this.reuseElements = builder.reuseElements;
+        this.pool = builder.pool;
+        this.ordered = builder.ordered;
+    }
 
-    private XMLObjectIterable(final XmlPullParser pullParser, final InputStream is, final XMLTransformer<T> transformer, final List<String> rootNodePath) {
-        this.is = is;
-        this.transformer = transformer;
-        this.parser = pullParser;
-        this.rootNodePath = rootNodePath;
+    /**
+     * @return table of the element and attribute names seen by this iterable
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
     }
 
+    /**
+     * @return iterator over the POJOs.  The iterator is {@link Closeable}, to release
+     * the input, and cancel the chunks parsing in parallel, before the end of the document.
+     */
     @Override
     public Iterator<T> iterator() {
+        if (pool != null) {
+            return new ChunkedPullParserIterable<>(this, pool, ordered).iterator();
+        }
+
+        return openIterable().iterator();
+    }
+
+    /**
+     * Iterate over the POJOs in batches rather than one at a time.  Each
+     * batch is a new ArrayList owned by the caller, so it can be handed off
+     * to another thread.  Like {@link #iterator()}, the iterator is
+     * {@link Closeable}, to release the document when iteration stops early.
+     *
+     * @param size maximum number of POJOs per batch, the last batch may be smaller
+     * @return iterable of batches in document order, or in completion order
+     * when parsing in parallel without ordering.
+     */
+    public Iterable<List<T>> batches(final int size) {
+        Preconditions.checkArgument(size > 0, "Batch size must be positive.");
+
+        return new Iterable<List<T>>() {
+            @Override
+            public Iterator<List<T>> iterator() {
+                return new BatchIterator<>(XMLObjectIterable.this.iterator(), size);
+            }
+        };
+    }
+
+    /**
+     * Collects the POJOs of a record iterator into batches and closes it with the batches.
+     */
+    private static final class BatchIterator<T> implements Iterator<List<T>>, Closeable {
+        private final Iterator<T> records;
+        private final int size;
+
+        private BatchIterator(final Iterator<T> records, final int size) {
+            this.records = records;
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return records.hasNext();
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) {
+                throw new IllegalStateException("No data.");
+            }
+
+            final List<T> batch = new ArrayList<>(size);
+            while (batch.size() < size && records.hasNext()) {
+                batch.add(records.next());
+            }
+            return batch;
+        }
+
+        @Override
+        public void remove() {
+            throw new RuntimeException("Unsupported operation.");
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (records instanceof Closeable) {
+                ((Closeable) records).close();
+            }
+        }
+    }
+
+    /**
+     * @return a sequential iterable with its own parser and transformer if the builder supplied factories.
+     */
+    private PullParserIterable<T> openIterable() {
+        final XmlPullParser parser = this.parser != null ? this.parser : newParser();
+        final XMLTransformer<T> transformer = this.transformer != null ? this.transformer : transformerSupplier.get();
+        InputStream is = this.is;
+
+        if (file != null || path != null || channel != null) {
+            try {
+                is = openDocument();
+            } catch (final IOException e) {
+                throw new RuntimeException("Failed to read file.", e);
+            }
+        }
+
         // If inputStream was specified in Builder, set it on the parser.
         if (is != null) {
             try {
@@ -342,9 +817,162 @@ public final class XMLObjectIterable<T> implements Iterable<T> {
             }
         }
 
-        final PullParserIterable<T> iterable =
-                new PullParserIterable<>(parser, is, rootNodePath, transformer);
+        return new PullParserIterable<>(parser, is, rootNodePath, symbols, textViews, reuseElements, transformer,
+                this.transformer != null ? null : transformerPool(), this.parser != null ? null : parserPool);
+    }
+
+    /**
+     * @return true if the input can be split into chunks of records
+     * that are parsed independently, see {@link RecordChunks}.
+     */
+    boolean isSplittable() {
+        return (file != null || path != null || channel != null)
+                && parserFactory != null && transformerSupplier != null && rootNodePath.isFixed();
+    }
+
+    /**
+     * @return true if iterators return POJOs in document order, false when
+     * parsing in parallel without ordering
+     */
+    boolean isOrdered() {
+        return pool == null || ordered;
+    }
+
+    /**
+     * @return random access to the file source
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    RegionSource openSource() throws IOException {
+        if (path != null) {
+            return new MappedRegionSource(FileChannel.open(path, StandardOpenOption.READ), true);
+        }
+
+        if (channel != null) {
+            return new MappedRegionSource(channel, false);
+        }
+
+        return new ChannelRegionSource(new FileInputStream(file).getChannel());
+    }
+
+    /**
+     * @return stream of the whole file source, which releases the file when closed.
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    private InputStream openDocument() throws IOException {
+        if (file != null) {
+            return new FileInputStream(file);
+        }
+
+        final RegionSource source = openSource();
+        return new FilterInputStream(source.open(0, source.length())) {
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * @param chunkSize minimum number of bytes per chunk
+     * @return chunker over a newly opened file source
+     * @throws IOException if the file cannot be opened
+     */
+    RecordChunks openChunks(final long chunkSize) throws IOException {
+        Preconditions.checkState(isSplittable(), "Input cannot be split.");
+
+        return new RecordChunks(openSource(), rootNodePath, symbols, textViews, reuseElements, parserFactory.isNamespaceAware(), chunkSize);
+    }
+
+    /**
+     * @param listener receives the byte range of every record
+     * @return scanner for the records of the file source, see {@link #openSource()}
+     */
+    RecordScanner newScanner(final RecordScanner.Listener listener) {
+        Preconditions.checkState(isSplittable(), "Input cannot be split.");
+
+        return new RecordScanner(rootNodePath, parserFactory.isNamespaceAware(), listener);
+    }
+
+    /**
+     * Parse a standalone document made of records, such as a single
+     * record and its ancestors.  The caller owns the parser and transformer.
+     *
+     * @param is          document bytes
+     * @param parser      parser to read the document with
+     * @param transformer transformer for the records
+     * @return lazily parsed POJOs
+     * @throws XmlPullParserException if the parser rejects the input
+     */
+    PullParserIterable<T> parse(final InputStream is, final XmlPullParser parser, final XMLTransformer<T> transformer)
+            throws XmlPullParserException {
+        parser.setInput(is, null);
+
+        return new PullParserIterable<>(parser, is, rootNodePath, symbols, textViews, reuseElements, transformer,
+                null, null);
+    }
+
+    /**
+     * @return a new transformer from the Builder's factory.
+     */
+    XMLTransformer<T> newTransformer() {
+        return transformerSupplier.get();
+    }
+
+    /**
+     * @return the Builder's factory if it pools transformers, else null.
+     */
+    @SuppressWarnings("unchecked")
+    TransformerPool<T> transformerPool() {
+        return transformerSupplier instanceof TransformerPool ? (TransformerPool<T>) transformerSupplier : null;
+    }
+
+    /**
+     * @return number of bytes of input, or -1 if unknown.
+     */
+    long inputLength() {
+        if (file != null) {
+            return file.length();
+        }
+
+        if (path != null) {
+            return path.toFile().length();
+        }
 
-        return iterable.iterator();
+        if (channel != null) {
+            try {
+                return channel.size();
+            } catch (final IOException e) {
+                return -1;
+            }
+        }
+
+        if (is != null) {
+            try {
+                final int available = is.available();
+                return available > 0 ? available : -1;
+            } catch (final IOException e) {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the Builder's parser pool, or null.
+     */
+    ParserPool parserPool() {
+        return parserPool;
+    }
+
+    /**
+     * @return a parser leased from the Builder's pool, or a new one from its factory.
+     */
+    XmlPullParser newParser() {
+        try {
+            return parserPool != null ? parserPool.lease() : parserFactory.newPullParser();
+        } catch (final XmlPullParserException e) {
+            throw new RuntimeException("Failed to create parser.", e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only view of the names of the open elements, from the document element
+ * to the current one.
+ * <p/>
+ * Iterables and routers pass one instance to every visit() and start() of a
+ * document, and it changes as parsing moves on, so it is only valid during
+ * the call.  Besides the List methods it answers depth, parent and ancestor
+ * queries in constant time:
+ * <pre>
+ *     if (path instanceof XMLPath &amp;&amp; ((XMLPath) path).isUnder(FILLING)) ...
+ * </pre>
+ * with FILLING obtained from {@link SymbolTable#id(String)} of the iterable's
+ * table, and identifies the path with {@link #id()}, to compare with ids from
+ * {@link SymbolTable#pathId(String)}.  Transformers that may also be given
+ * other Lists can use {@link #isUnder(List, String)}.
+ */
+public final class XMLPath extends AbstractList<String> implements RandomAccess {
+
+    private static final int INITIAL_DEPTH = 16;
+    private static final int INITIAL_CACHE_SIZE = 64;
+
+    private final SymbolTable symbols;
+    private String[] names = new String[INITIAL_DEPTH];
+    private int[] nameIds = new int[INITIAL_DEPTH];
+    private int depth;
+
+    // Number of open elements with each name id.
+    private int[] counts = new int[INITIAL_CACHE_SIZE];
+
+    // Path ids of the open elements, computed up to resolved on demand.
+    private int[] pathIds = new int[INITIAL_DEPTH];
+    private int resolved;
+
+    // Path ids by parent path id and name id, so that the table is locked once per path.
+    private long[] cacheKeys = new long[INITIAL_CACHE_SIZE];
+    private int[] cacheIds = new int[INITIAL_CACHE_SIZE];
+    private int cacheSize;
+
+    /**
+     * @param symbols table of the element names and path ids
+     */
+    XMLPath(final SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    @Override
+    public String get(final int index) {
+        return nameAt(index);
+    }
+
+    @Override
+    public int size() {
+        return depth;
+    }
+
+    /**
+     * @return number of open elements, including the current one
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * @param index from 0, the document element, to depth() - 1, the current element
+     * @return name of the element
+     */
+    public String nameAt(final int index) {
+        Preconditions.checkElementIndex(index, depth);
+        return names[index];
+    }
+
+    /**
+     * @param index from 0, the document element, to depth() - 1, the current element
+     * @return symbol table id of the name of the element, or -1 if it has none
+     */
+    public int nameIdAt(final int index) {
+        Preconditions.checkElementIndex(index, depth);
+        return nameIds[index];
+    }
+
+    /**
+     * @return name of the current element, or null outside the document element
+     */
+    public String name() {
+        return depth > 0 ? names[depth - 1] : null;
+    }
+
+    /**
+     * @return name of the parent of the current element, or null for the document element
+     */
+    public String parentName() {
+        return depth > 1 ? names[depth - 2] : null;
+    }
+
+    /**
+     * @param nameId symbol table id of a name
+     * @return true if an ancestor of the current element has the name
+     */
+    public boolean isUnder(final int nameId) {
+        if (nameId < 0 || nameId >= counts.length || depth == 0) {
+            return false;
+        }
+        return counts[nameId] - (nameIds[depth - 1] == nameId ? 1 : 0) > 0;
+    }
+
+    /**
+     * @param name element name
+     * @return true if an ancestor of the current element has the name
+     */
+    public boolean isUnder(final String name) {
+        final int nameId = symbols.lookup(name);
+        if (nameId >= 0) {
+            return isUnder(nameId);
+        }
+
+        // Names that did not fit in a full table have no id.
+        for (int i = 0; i < depth - 1; ++i) {
+            if (nameIds[i] < 0 && names[i].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param path path passed to a transformer
+     * @param name element name
+     * @return true if an element of the path other than the last has the name,
+     * in constant time if the path is an XMLPath
+     */
+    public static boolean isUnder(final List<String> path, final String name) {
+        if (path instanceof XMLPath) {
+            return ((XMLPath) path).isUnder(name);
+        }
+        return !path.isEmpty() && path.subList(0, path.size() - 1).contains(name);
+    }
+
+    /**
+     * @return id of the path of the current element, equal to
+     * {@link SymbolTable#pathId(String)} of its names, {@link SymbolTable#NO_PATH} if
+     * it did not fit in the table, or -1 outside the document element
+     */
+    public int id() {
+        for (; resolved < depth; ++resolved) {
+            pathIds[resolved] = pathId(resolved > 0 ? pathIds[resolved - 1] : -1, nameIds[resolved]);
+        }
+        return depth > 0 ? pathIds[depth - 1] : -1;
+    }
+
+    /**
+     * Enter an element.
+     *
+     * @param name   canonical name
+     * @param nameId symbol table id of the name, or -1 if it has none
+     */
+    void push(final String name, final int nameId) {
+        if (depth == names.length) {
+            names = Arrays.copyOf(names, depth * 2);
+            nameIds = Arrays.copyOf(nameIds, depth * 2);
+            pathIds = Arrays.copyOf(pathIds, depth * 2);
+        }
+        if (nameId >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(nameId + 1, counts.length * 2));
+        }
+
+        names[depth] = name;
+        nameIds[depth] = nameId;
+        if (nameId >= 0) {
+            counts[nameId]++;
+        }
+        depth++;
+    }
+
+    /**
+     * Leave the current element.
+     */
+    void pop() {
+        depth--;
+        if (nameIds[depth] >= 0) {
+            counts[nameIds[depth]]--;
+        }
+        names[depth] = null;
+        resolved = Math.min(resolved, depth);
+    }
+
+    private int pathId(final int parentId, final int nameId) {
+        final long key = ((long) parentId << 32) | (nameId & 0xffffffffL);
+
+        // Slots hold id + 1, so that 0 marks a free slot.
+        int mask = cacheKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (cacheIds[slot] != 0) {
+            if (cacheKeys[slot] == key) {
+                return cacheIds[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        final int id = symbols.pathId(parentId, nameId);
+        if ((cacheSize + 1) * 2 > cacheKeys.length) {
+            grow();
+            mask = cacheKeys.length - 1;
+            slot = hash(key) & mask;
+            while (cacheIds[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        cacheKeys[slot] = key;
+        cacheIds[slot] = id + 1;
+        cacheSize++;
+        return id;
+    }
+
+    private void grow() {
+        final long[] keys = cacheKeys;
+        final int[] ids = cacheIds;
+        cacheKeys = new long[keys.length * 2];
+        cacheIds = new int[keys.length * 2];
+
+        final int mask = cacheKeys.length - 1;
+        for (int i = 0; i < keys.length; ++i) {
+            if (ids[i] != 0) {
+                int slot = hash(keys[i]) & mask;
+                while (cacheIds[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                cacheKeys[slot] = keys[i];
+                cacheIds[slot] = ids[i];
+            }
+        }
+    }
+
+    private static int hash(final long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
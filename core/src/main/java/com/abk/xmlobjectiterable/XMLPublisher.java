@@ -0,0 +1,263 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the POJOs of an {@link XMLObjectIterable} to subscribers with
+ * backpressure.
+ * <p/>
+ * The interfaces follow the Reactive Streams and java.util.concurrent.Flow
+ * signatures, so that adapting to either is a matter of forwarding calls,
+ * while the library keeps running on Java 7 and Android.
+ * <p/>
+ * Each subscription opens its own iterator, so an iterable with several
+ * subscribers must be re-iterable, for example read from a file.  The parser
+ * runs on the executor and only as far as the outstanding demand: after
+ * delivering the requested POJOs it parses at most one record ahead, to
+ * signal completion without waiting for more demand.  Signals to a subscriber
+ * are never concurrent.  Cancelling closes the document.
+ *
+ * @param <T> type of POJO
+ */
+public final class XMLPublisher<T> {
+
+    /**
+     * Receives POJOs, see java.util.concurrent.Flow.Subscriber.
+     *
+     * @param <T> type of POJO
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Called once before any other signal.
+         *
+         * @param subscription subscription to request POJOs from
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * @param item next POJO
+         */
+        void onNext(T item);
+
+        /**
+         * Parsing failed, or the subscription requested a non-positive number of POJOs.
+         *
+         * @param throwable cause
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called once after the last POJO.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Demand of a subscriber, see java.util.concurrent.Flow.Subscription.
+     */
+    public interface Subscription {
+
+        /**
+         * @param n number of additional POJOs to deliver, must be positive
+         */
+        void request(long n);
+
+        /**
+         * Stop delivering POJOs and close the document.
+         */
+        void cancel();
+    }
+
+    private final XMLObjectIterable<T> source;
+    private final Executor executor;
+
+    /**
+     * @param source   iterable to publish
+     * @param executor runs the parser and delivers the signals
+     */
+    public XMLPublisher(final XMLObjectIterable<T> source, final Executor executor) {
+        this.source = Preconditions.checkNotNull(source, "XMLObjectIterable cannot be null.");
+        this.executor = Preconditions.checkNotNull(executor, "Executor cannot be null.");
+    }
+
+    /**
+     * Subscribe to the POJOs.  onSubscribe() is called on the executor.
+     *
+     * @param subscriber subscriber
+     */
+    public void subscribe(final Subscriber<? super T> subscriber) {
+        Preconditions.checkNotNull(subscriber, "Subscriber cannot be null.");
+        new IterableSubscription(subscriber).schedule();
+    }
+
+    /**
+     * Drains the iterator into the subscriber on the executor.  Requests and
+     * cancellation schedule a drain; at most one drain runs at a time, and one
+     * that is running picks up the work scheduled meanwhile.
+     */
+    private final class IterableSubscription implements Subscription, Runnable {
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private volatile boolean cancelled;
+        private volatile boolean invalidRequest;
+
+        // Only accessed by the drain.
+        private boolean subscribed;
+        private boolean terminated;
+        private Iterator<T> iterator;
+
+        private IterableSubscription(final Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                invalidRequest = true;
+            } else {
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!requested.compareAndSet(current, next));
+            }
+
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+
+            if (terminated) {
+                return;
+            }
+
+            if (cancelled) {
+                terminate();
+                return;
+            }
+
+            if (invalidRequest) {
+                terminate();
+                subscriber.onError(new IllegalArgumentException("Request must be positive."));
+                return;
+            }
+
+            if (iterator == null) {
+                if (requested.get() == 0) {
+                    return;
+                }
+
+                try {
+                    iterator = source.iterator();
+                } catch (final RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+            }
+
+            final long demand = requested.get();
+            long emitted = 0;
+            while (!cancelled) {
+                final boolean more;
+                try {
+                    more = iterator.hasNext();
+                } catch (final RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+                if (!more) {
+                    terminate();
+                    subscriber.onComplete();
+                    return;
+                }
+                if (emitted == demand) {
+                    break;
+                }
+
+                final T item;
+                try {
+                    item = iterator.next();
+                } catch (final RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+                try {
+                    subscriber.onNext(item);
+                } catch (final RuntimeException e) {
+                    // A subscriber may not throw (rule 2.13), so it gets no further signals.
+                    terminate();
+                    return;
+                }
+                emitted++;
+            }
+
+            if (demand != Long.MAX_VALUE) {
+                requested.addAndGet(-emitted);
+            }
+
+            if (cancelled) {
+                terminate();
+            }
+        }
+
+        /**
+         * Release the document and signal a failure to read it.
+         */
+        private void fail(final RuntimeException e) {
+            terminate();
+            subscriber.onError(e);
+        }
+
+        /**
+         * Stop signalling and release the document.
+         */
+        private void terminate() {
+            terminated = true;
+            cancelled = true;
+
+            if (iterator instanceof Closeable) {
+                try {
+                    ((Closeable) iterator).close();
+                } catch (final IOException e) {
+                    // Nothing left to release.
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Transforms the elements of several paths of one document in a single pass.
+ * <p/>
+ * Each route pairs a path with a transformer, like an {@link XMLObjectIterable}.
+ * POJOs of routes registered with a {@link Sink} are handed to the sink as they
+ * are parsed; the POJOs of the other routes are returned by the iterator as
+ * {@link Record}s tagged with their route, in document order.  Subtrees outside
+ * every path are skipped unparsed.
+ * <p/>
+ * See http://github.com/kgilmer/XMLObjectIterable for details.
+ */
+public final class XMLRouter implements Iterable<XMLRouter.Record<?>> {
+
+    /**
+     * Receives the POJOs of one route.
+     *
+     * @param <T> type of POJO
+     */
+    public interface Sink<T> {
+        /**
+         * @param value POJO created by the route's transformer
+         */
+        void accept(T value);
+    }
+
+    /**
+     * A POJO and the route that created it.
+     *
+     * @param <T> type of POJO
+     */
+    public static final class Record<T> {
+        private final Route<T> route;
+        private final T value;
+
+        private Record(final Route<T> route, final T value) {
+            this.route = route;
+            this.value = value;
+        }
+
+        /**
+         * @return path of the route, as passed to the builder
+         */
+        public String getPath() {
+            return route.path;
+        }
+
+        /**
+         * @return index of the route, in the order routes were added to the builder
+         */
+        public int getRoute() {
+            return route.index;
+        }
+
+        /**
+         * @return POJO
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * @param type expected type of POJO
+         * @param <U>  expected type of POJO
+         * @return the POJO if it is an instance of type
+         */
+        public <U> Optional<U> as(final Class<U> type) {
+            return type.isInstance(value) ? Optional.of(type.cast(value)) : Optional.<U>absent();
+        }
+
+        @Override
+        public String toString() {
+            return route.path + ": " + value;
+        }
+    }
+
+    /**
+     * A path, its transformer and an optional sink.
+     */
+    private static final class Route<T> {
+        private final int index;
+        private final String path;
+        private final PathMatcher matcher;
+        private final XMLTransformer<T> transformer;
+        private final Sink<? super T> sink;
+
+        private Route(final int index, final String path, final XMLTransformer<T> transformer, final Sink<? super T> sink) {
+            this.index = index;
+            this.path = path;
+            this.matcher = PathMatcher.compile(path);
+            this.transformer = transformer;
+            this.sink = sink;
+        }
+
+        /**
+         * Visit an element at or inside the path, and emit a POJO if the element completes one.
+         */
+        private void visit(final XMLElement node, final List<String> path, final boolean atRoot,
+                           final Deque<Record<?>> records) {
+            transformer.visit(node, path);
+
+            if (atRoot && transformer.canTransform()) {
+                final Optional<T> val = transformer.transform();
+                transformer.reset();
+
+                if (val.isPresent()) {
+                    if (sink != null) {
+                        sink.accept(val.get());
+                    } else {
+                        records.addLast(new Record<>(this, val.get()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builder for the XMLRouter
+     */
+    public static final class Builder {
+        private final List<Route<?>> routes = new ArrayList<>();
+        private InputStream is;
+        private File file;
+        private XmlPullParser pullParser;
+        private XmlPullParserFactory parserFactory;
+        private SymbolTable symbols;
+        private boolean builtInParser;
+
+        /**
+         * Transform the elements at a path into POJOs returned by the iterator.
+         * <p/>
+         * At least one route is required.
+         *
+         * @param xmlPath     path of the elements, such as "rss/channel/item"
+         * @param transformer transformer of the elements
+         * @param <T>         type of POJO
+         * @return builder
+         */
+        public <T> Builder route(final String xmlPath, final XMLTransformer<T> transformer) {
+            return addRoute(xmlPath, transformer, null);
+        }
+
+        /**
+         * Transform the elements at a path into POJOs passed to a sink.
+         *
+         * @param xmlPath     path of the elements, such as "rss/channel/image"
+         * @param transformer transformer of the elements
+         * @param sink        receives the POJOs during iteration, on the iterating thread
+         * @param <T>         type of POJO
+         * @return builder
+         */
+        public <T> Builder route(final String xmlPath, final XMLTransformer<T> transformer, final Sink<? super T> sink) {
+            Preconditions.checkNotNull(sink, "Sink cannot be null.");
+            return addRoute(xmlPath, transformer, sink);
+        }
+
+        private <T> Builder addRoute(final String xmlPath, final XMLTransformer<T> transformer, final Sink<? super T> sink) {
+            Preconditions.checkNotNull(xmlPath, "Path cannot be null.");
+            Preconditions.checkNotNull(transformer, "Transformer cannot be null.");
+            for (Route<?> route : routes) {
+                Preconditions.checkArgument(route.transformer != transformer,
+                        "Each route needs its own transformer instance.");
+            }
+
+            routes.add(new Route<>(routes.size(), xmlPath, transformer, sink));
+            return this;
+        }
+
+        /**
+         * Read XML from an InputStream.
+         * <p/>
+         * One call to from() is required.
+         *
+         * @param is InputStream
+         * @return builder
+         */
+        public Builder from(final InputStream is) {
+            this.file = null;
+            this.is = Preconditions.checkNotNull(is, "InputStream cannot be null.");
+            return this;
+        }
+
+        /**
+         * Read XML from a String.
+         *
+         * @param xml String of XML document
+         * @return builder
+         */
+        public Builder from(final String xml) {
+            return from(new ByteArrayInputStream(xml.getBytes()));
+        }
+
+        /**
+         * Read XML from a file, which is re-opened for each iterator.
+         *
+         * @param file XML file
+         * @return builder
+         */
+        public Builder from(final File file) {
+            this.is = null;
+            this.file = Preconditions.checkNotNull(file, "File cannot be null.");
+            return this;
+        }
+
+        /**
+         * Read XML from a classloader.
+         *
+         * @param clazz        class containing correct classloader.
+         * @param resourcePath path to resource
+         * @return builder
+         */
+        public Builder from(final Class<?> clazz, final String resourcePath) {
+            return from(Preconditions.checkNotNull(clazz.getResourceAsStream(resourcePath),
+                    "Failed to load resource: " + resourcePath));
+        }
+
+        public Builder withParser(final XmlPullParser parser) {
+            this.pullParser = parser;
+            return this;
+        }
+
+        /**
+         * Create a new XmlPullParser from the factory for each iterator.
+         *
+         * @param factory configured parser factory
+         * @return builder
+         */
+        public Builder withParserFactory(final XmlPullParserFactory factory) {
+            this.parserFactory = factory;
+            this.builtInParser = false;
+            return this;
+        }
+
+        /**
+         * Parse with the built-in {@link XMLTokenizer}, which canonicalizes
+         * names through the router's symbol table.
+         *
+         * @param namespaceAware true to report names without namespace prefix
+         * @return builder
+         */
+        public Builder withBuiltInParser(final boolean namespaceAware) {
+            final XMLTokenizer.Factory factory = new XMLTokenizer.Factory();
+            factory.setNamespaceAware(namespaceAware);
+            withParserFactory(factory);
+            this.builtInParser = true;
+            return this;
+        }
+
+        /**
+         * Canonicalize element and attribute names through the given table.
+         *
+         * @param symbols symbol table
+         * @return builder
+         */
+        public Builder withSymbols(final SymbolTable symbols) {
+            this.symbols = Preconditions.checkNotNull(symbols, "SymbolTable cannot be null.");
+            return this;
+        }
+
+        /**
+         * Creates the router.
+         * Will throw a RuntimeException if insufficient
+         * input state is supplied.
+         *
+         * @return XMLRouter
+         */
+        public XMLRouter create() {
+            Preconditions.checkState(!routes.isEmpty(), "Must call route() on builder.");
+            Preconditions.checkState(pullParser != null || parserFactory != null,
+                    "Must set a XmlPullParser instance.");
+            Preconditions.checkState(is != null || file != null, "Must call from() on builder.");
+
+            return new XMLRouter(this);
+        }
+    }
+
+    private final Route<?>[] routes;
+    private final InputStream is;
+    private final File file;
+    private final XmlPullParser parser;
+    private final XmlPullParserFactory parserFactory;
+    private final SymbolTable symbols;
+
+    private XMLRouter(final Builder builder) {
+        this.routes = builder.routes.toArray(new Route<?>[builder.routes.size()]);
+        this.is = builder.is;
+        this.file = builder.file;
+        this.parser = builder.pullParser;
+        this.symbols = builder.symbols != null ? builder.symbols : new SymbolTable();
+        this.parserFactory = builder.builtInParser
+                ? ((XMLTokenizer.Factory) builder.parserFactory).withSymbols(symbols) : builder.parserFactory;
+    }
+
+    /**
+     * Parse the whole document, passing every POJO to the sink of its route.
+     * Records of routes without a sink are discarded.
+     */
+    public void drain() {
+        final Iterator<Record<?>> records = iterator();
+        while (records.hasNext()) {
+            records.next();
+        }
+    }
+
+    @Override
+    public Iterator<Record<?>> iterator() {
+        try {
+            final XmlPullParser parser = this.parser != null ? this.parser : parserFactory.newPullParser();
+            final InputStream is = file != null ? new FileInputStream(file) : this.is;
+            parser.setInput(is, null);
+
+            return new RouteIterator(parser, is);
+        } catch (final FileNotFoundException e) {
+            throw new RuntimeException("Failed to read file.", e);
+        } catch (final XmlPullParserException e) {
+            throw new RuntimeException("Failed to read stream.", e);
+        }
+    }
+
+    /**
+     * Parses the document once, tracking the position of each route's path.
+     * Can be closed before the end of the document.
+     */
+    private final class RouteIterator extends ElementReader implements Iterator<Record<?>>, Closeable {
+        private final InputStream inputStream;
+        private final PathMatcher.Cursor[] cursors = new PathMatcher.Cursor[routes.length];
+        private final int[] positions = new int[routes.length];
+        private final boolean[] rejected = new boolean[routes.length];
+        private final Deque<Record<?>> records = new ArrayDeque<>();
+        private boolean done;
+
+        private RouteIterator(final XmlPullParser parser, final InputStream is) {
+            super(parser, XMLRouter.this.symbols);
+            this.inputStream = is;
+            for (int i = 0; i < routes.length; ++i) {
+                cursors[i] = routes[i].matcher.cursor();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (records.isEmpty() && !done && !read()) {
+                //No data, close stream.
+                close();
+            }
+
+            return !records.isEmpty();
+        }
+
+        @Override
+        public Record<?> next() {
+            if (!hasNext()) {
+                throw new IllegalStateException("No data.");
+            }
+
+            return records.removeFirst();
+        }
+
+        @Override
+        public void remove() {
+            throw new RuntimeException("Unsupported operation.");
+        }
+
+        /**
+         * Stop parsing and close the stream.  Records already parsed are dropped.
+         */
+        @Override
+        public void close() {
+            records.clear();
+            if (!done) {
+                done = true;
+                Closeables.closeQuietly(inputStream);
+            }
+        }
+
+        @Override
+        boolean enter(final String name) {
+            boolean entered = false;
+            for (int i = 0; i < cursors.length; ++i) {
+                rejected[i] = !cursors[i].enter(name, parser);
+                entered |= !rejected[i];
+            }
+
+            if (entered) {
+                for (int i = 0; i < cursors.length; ++i) {
+                    if (rejected[i]) {
+                        cursors[i].enterUnmatched();
+                    }
+                }
+            }
+            return entered;
+        }
+
+        @Override
+        boolean isMatched() {
+            for (PathMatcher.Cursor cursor : cursors) {
+                if (cursor.isMatched()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void start(final String name, final int nameId) {
+            open(new XMLElement(name, nameId, null, loadAttribs(parser, symbols)), false);
+        }
+
+        @Override
+        void end() {
+            boolean matched = false;
+            for (int i = 0; i < cursors.length; ++i) {
+                positions[i] = cursors[i].position();
+                matched |= positions[i] != PathMatcher.DEPTH_OUTSIDE;
+                cursors[i].exit();
+            }
+
+            if (matched) {
+                final XMLElement node = closeElement();
+                for (int i = 0; i < routes.length; ++i) {
+                    if (positions[i] != PathMatcher.DEPTH_OUTSIDE) {
+                        routes[i].visit(node, nodeNamePath,
+                                positions[i] == PathMatcher.DEPTH_AT_ROOT, records);
+                    }
+                }
+            }
+            nodeNamePath.pop();
+        }
+
+        @Override
+        boolean isReady() {
+            return !records.isEmpty();
+        }
+    }
+}
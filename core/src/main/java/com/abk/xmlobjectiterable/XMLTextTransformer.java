@@ -0,0 +1,38 @@
+package com.abk.xmlobjectiterable;
+
+import java.util.List;
+
+/**
+ * A transformer that receives the text of chosen elements as it is parsed.
+ * <p/>
+ * By default the text of an element is collected and passed to
+ * {@link #visit(XMLElement, List)} as its value.  For large text such as the
+ * embedded HTML of an RSS description, that builds a String the size of the
+ * text.  Elements for which streamsText() returns true are visited with a
+ * null value instead, and each piece of their text is passed to text() as a
+ * view of the parser's buffer, without copying it into a String.
+ * <p/>
+ * Text streaming applies to {@link XMLObjectIterable}, including each chunk of
+ * a parallel parse; {@link XMLRouter} collects the text of every element.
+ *
+ * @param <T> type of POJO
+ */
+public interface XMLTextTransformer<T> extends XMLTransformer<T> {
+
+    /**
+     * Called at the start tag of the record and of each element inside it.
+     *
+     * @param name element name
+     * @param path node path, including the element
+     * @return true to receive the direct text of the element through text()
+     */
+    boolean streamsText(String name, List<String> path);
+
+    /**
+     * Called for each piece of text of a streamed element, in document order.
+     *
+     * @param name  element name
+     * @param chars text, valid only until this method returns
+     */
+    void text(String name, CharSequence chars);
+}
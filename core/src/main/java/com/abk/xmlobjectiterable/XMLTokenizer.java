@@ -0,0 +1,1201 @@
+package com.abk.xmlobjectiterable;
+
+import com.google.common.base.Preconditions;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Built-in, allocation-light implementation of the {@link XmlPullParser} events
+ * used by {@link XMLObjectIterable}.
+ * <p/>
+ * Input is decoded into a reusable char buffer.  Element and attribute names are
+ * canonicalized through a {@link SymbolTable}, so repeated names do not allocate.  Iterables
+ * built with {@link XMLObjectIterable.Builder#withBuiltInParser(boolean)} share their table
+ * with their tokenizers, so parsed names are already canonical for the iterable.  Text
+ * and attribute values are decoded into reusable buffers and only turned into
+ * Strings when {@link #getText()} or {@link #getAttributeValue(int)} is called.
+ * {@link #getTextCharacters(int[])} exposes the text buffer without copying.
+ * <p/>
+ * Supports the {@link #next()} event model: START_TAG, END_TAG, TEXT (with CDATA,
+ * entity and character references coalesced, comments and processing instructions
+ * skipped) and END_DOCUMENT.  Document type declarations are skipped, so only the
+ * predefined entities and those given to {@link #defineEntityReplacementText} are
+ * expanded.  {@link #nextToken()} is not supported.
+ */
+public final class XMLTokenizer implements XmlPullParser {
+
+    /**
+     * Creates {@link XMLTokenizer} instances, so the built-in engine can be
+     * used wherever an {@link XmlPullParserFactory} is accepted.
+     */
+    public static final class Factory extends XmlPullParserFactory {
+        private final SymbolTable symbols;
+
+        /**
+         * Give each tokenizer its own name table.
+         */
+        public Factory() {
+            this(null);
+        }
+
+        /**
+         * @param symbols table shared by all tokenizers, such as the table
+         *                of the iterables they parse for, or null for a new
+         *                table per tokenizer
+         */
+        public Factory(final SymbolTable symbols) {
+            this.symbols = symbols;
+        }
+
+        @Override
+        public XmlPullParser newPullParser() throws XmlPullParserException {
+            final XMLTokenizer tokenizer = new XMLTokenizer(symbols != null ? symbols : new SymbolTable());
+            tokenizer.setFeature(FEATURE_PROCESS_NAMESPACES, isNamespaceAware());
+            return tokenizer;
+        }
+
+        /**
+         * @param table table for the new factory's tokenizers
+         * @return a factory with the same configuration whose tokenizers share the table
+         */
+        Factory withSymbols(final SymbolTable table) {
+            final Factory factory = new Factory(table);
+            factory.setNamespaceAware(isNamespaceAware());
+            return factory;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int DETECT_SIZE = 256;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String XMLNS = "xmlns";
+
+    private final SymbolTable names;
+    // Prefix and local name of each qualified name, by symbol id.
+    private String[] localNames = new String[64];
+    private String[] prefixes = new String[64];
+    private Map<String, String> entities;
+
+    private Reader reader;
+    private String inputEncoding;
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean processNamespaces;
+
+    // Line and column of buffer[counted], counted on demand and before a refill drops chars.
+    private int counted;
+    private int line = 1;
+    private int column = 1;
+
+    private int eventType = START_DOCUMENT;
+    private boolean seenRoot;
+    private boolean pendingEndTag;
+    private int depth;
+    private String[] elementNames = new String[16];
+
+    // Namespace declarations, in scope up to nsCounts[depth].
+    private int[] nsCounts = new int[17];
+    private String[] nsPrefixes = new String[8];
+    private String[] nsUris = new String[8];
+    private int nsCount;
+
+    // Current tag.
+    private String qName;
+    private String name;
+    private String prefix;
+    private boolean emptyElement;
+
+    // Attributes of the current start tag, values packed in attributeChars.
+    private int attributeCount;
+    private String[] attributeQNames = new String[8];
+    private String[] attributeNames = new String[8];
+    private String[] attributePrefixes = new String[8];
+    private int[] attributeStarts = new int[8];
+    private int[] attributeEnds = new int[8];
+    private String[] attributeValues = new String[8];
+    private char[] attributeChars = new char[256];
+    private int attributeLength;
+
+    // Text of the current TEXT event.
+    private char[] text = new char[256];
+    private int textLength;
+    private String textString;
+
+    private char[] nameChars = new char[64];
+    private int nameLength;
+
+    /**
+     * Create a tokenizer with its own name table.
+     */
+    public XMLTokenizer() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * @param names table that canonicalizes element and attribute names,
+     *              such as the table of the iterable the tokenizer parses for
+     */
+    public XMLTokenizer(final SymbolTable names) {
+        this.names = Preconditions.checkNotNull(names, "SymbolTable cannot be null.");
+    }
+
+    @Override
+    public void setFeature(final String name, final boolean state) throws XmlPullParserException {
+        if (FEATURE_PROCESS_NAMESPACES.equals(name)) {
+            if (eventType != START_DOCUMENT) {
+                throw new XmlPullParserException("Features can only be set before parsing.", this, null);
+            }
+            processNamespaces = state;
+        } else if (state) {
+            throw new XmlPullParserException("Unsupported feature: " + name, this, null);
+        }
+    }
+
+    @Override
+    public boolean getFeature(final String name) {
+        return FEATURE_PROCESS_NAMESPACES.equals(name) && processNamespaces;
+    }
+
+    @Override
+    public void setProperty(final String name, final Object value) throws XmlPullParserException {
+        throw new XmlPullParserException("Unsupported property: " + name, this, null);
+    }
+
+    @Override
+    public Object getProperty(final String name) {
+        return null;
+    }
+
+    @Override
+    public void setInput(final Reader in) throws XmlPullParserException {
+        reset();
+        this.reader = in;
+        this.inputEncoding = null;
+    }
+
+    @Override
+    public void setInput(final InputStream inputStream, final String inputEncoding) throws XmlPullParserException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("InputStream cannot be null.");
+        }
+
+        try {
+            final BufferedInputStream in = new BufferedInputStream(inputStream, DETECT_SIZE);
+            final String encoding = inputEncoding != null ? inputEncoding : detectEncoding(in);
+
+            reset();
+            this.reader = new InputStreamReader(in, encoding);
+            this.inputEncoding = encoding;
+        } catch (final IOException e) {
+            throw new XmlPullParserException("Failed to read input: " + e.getMessage(), this, e);
+        }
+    }
+
+    @Override
+    public String getInputEncoding() {
+        return inputEncoding;
+    }
+
+    @Override
+    public void defineEntityReplacementText(final String entityName, final String replacementText) {
+        if (entities == null) {
+            entities = new HashMap<>();
+        }
+        entities.put(entityName, replacementText);
+    }
+
+    @Override
+    public int getNamespaceCount(final int depth) throws XmlPullParserException {
+        if (!processNamespaces || depth == 0) {
+            return 0;
+        }
+        return nsCounts[depth];
+    }
+
+    @Override
+    public String getNamespacePrefix(final int pos) throws XmlPullParserException {
+        return nsPrefixes[pos];
+    }
+
+    @Override
+    public String getNamespaceUri(final int pos) throws XmlPullParserException {
+        return nsUris[pos];
+    }
+
+    @Override
+    public String getNamespace(final String prefix) {
+        if ("xml".equals(prefix)) {
+            return "http://www.w3.org/XML/1998/namespace";
+        }
+        if (XMLNS.equals(prefix)) {
+            return "http://www.w3.org/2000/xmlns/";
+        }
+
+        for (int i = nsCount - 1; i >= 0; --i) {
+            if (prefix == null ? nsPrefixes[i] == null : prefix.equals(nsPrefixes[i])) {
+                return nsUris[i];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String getPositionDescription() {
+        return TYPES[eventType]
+                + (name != null && (eventType == START_TAG || eventType == END_TAG) ? " <" + qName + ">" : "")
+                + "@" + getLineNumber() + ":" + getColumnNumber();
+    }
+
+    /**
+     * @return line of the next char to parse, from 1
+     */
+    @Override
+    public int getLineNumber() {
+        countLines(pos);
+        return line;
+    }
+
+    /**
+     * @return column of the next char to parse, from 1
+     */
+    @Override
+    public int getColumnNumber() {
+        countLines(pos);
+        return column;
+    }
+
+    @Override
+    public boolean isWhitespace() throws XmlPullParserException {
+        if (eventType != TEXT) {
+            throw new XmlPullParserException("Only TEXT events can be checked for whitespace.", this, null);
+        }
+
+        for (int i = 0; i < textLength; ++i) {
+            if (!isWhitespace(text[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getText() {
+        if (eventType != TEXT) {
+            return null;
+        }
+
+        if (textString == null) {
+            textString = new String(text, 0, textLength);
+        }
+        return textString;
+    }
+
+    @Override
+    public char[] getTextCharacters(final int[] holderForStartAndLength) {
+        if (eventType != TEXT) {
+            holderForStartAndLength[0] = -1;
+            holderForStartAndLength[1] = -1;
+            return null;
+        }
+
+        holderForStartAndLength[0] = 0;
+        holderForStartAndLength[1] = textLength;
+        return text;
+    }
+
+    @Override
+    public String getNamespace() {
+        if (eventType != START_TAG && eventType != END_TAG) {
+            return null;
+        }
+
+        if (!processNamespaces) {
+            return NO_NAMESPACE;
+        }
+
+        final String uri = getNamespace(prefix);
+        return uri == null ? NO_NAMESPACE : uri;
+    }
+
+    @Override
+    public String getName() {
+        return eventType == START_TAG || eventType == END_TAG ? name : null;
+    }
+
+    @Override
+    public String getPrefix() {
+        return eventType == START_TAG || eventType == END_TAG ? prefix : null;
+    }
+
+    @Override
+    public boolean isEmptyElementTag() throws XmlPullParserException {
+        if (eventType != START_TAG) {
+            throw new XmlPullParserException("Only START_TAG events can be empty.", this, null);
+        }
+        return emptyElement;
+    }
+
+    @Override
+    public int getAttributeCount() {
+        return eventType == START_TAG ? attributeCount : -1;
+    }
+
+    @Override
+    public String getAttributeNamespace(final int index) {
+        checkAttribute(index);
+
+        if (!processNamespaces || attributePrefixes[index] == null) {
+            return NO_NAMESPACE;
+        }
+        return getNamespace(attributePrefixes[index]);
+    }
+
+    @Override
+    public String getAttributeName(final int index) {
+        checkAttribute(index);
+        return attributeNames[index];
+    }
+
+    @Override
+    public String getAttributePrefix(final int index) {
+        checkAttribute(index);
+        return attributePrefixes[index];
+    }
+
+    @Override
+    public String getAttributeType(final int index) {
+        checkAttribute(index);
+        return "CDATA";
+    }
+
+    @Override
+    public boolean isAttributeDefault(final int index) {
+        checkAttribute(index);
+        return false;
+    }
+
+    @Override
+    public String getAttributeValue(final int index) {
+        checkAttribute(index);
+
+        if (attributeValues[index] == null) {
+            attributeValues[index] = new String(attributeChars, attributeStarts[index],
+                    attributeEnds[index] - attributeStarts[index]);
+        }
+        return attributeValues[index];
+    }
+
+    @Override
+    public String getAttributeValue(final String namespace, final String name) {
+        if (eventType != START_TAG) {
+            throw new IndexOutOfBoundsException("Attributes are only available on START_TAG.");
+        }
+
+        for (int i = 0; i < attributeCount; ++i) {
+            if (attributeNames[i].equals(name)
+                    && (namespace == null || namespace.equals(getAttributeNamespace(i)))) {
+                return getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getEventType() {
+        return eventType;
+    }
+
+    @Override
+    public int next() throws XmlPullParserException, IOException {
+        if (reader == null) {
+            throw new XmlPullParserException("Input must be set before parsing.", this, null);
+        }
+
+        if (eventType == END_DOCUMENT) {
+            throw new XmlPullParserException("Already reached end of XML input.", this, null);
+        }
+
+        if (pendingEndTag) {
+            pendingEndTag = false;
+            return eventType = END_TAG;
+        }
+
+        if (eventType == END_TAG) {
+            depth--;
+            nsCount = nsCounts[depth];
+        }
+
+        attributeCount = 0;
+        textLength = 0;
+        textString = null;
+
+        while (true) {
+            final int c = peek(0);
+
+            if (c == -1) {
+                if (depth > 0) {
+                    throw new XmlPullParserException("Unexpected end of document in <" + elementNames[depth - 1] + ">.", this, null);
+                }
+                if (!seenRoot) {
+                    throw new XmlPullParserException("Document has no root element.", this, null);
+                }
+                return eventType = END_DOCUMENT;
+            }
+
+            if (c == '<') {
+                final int c1 = peek(1);
+
+                if (c1 == '!') {
+                    markupDeclaration();
+                } else if (c1 == '?') {
+                    processingInstruction();
+                } else if (textLength > 0) {
+                    return eventType = TEXT;
+                } else if (c1 == '/') {
+                    endTag();
+                    return eventType = END_TAG;
+                } else {
+                    startTag();
+                    return eventType = START_TAG;
+                }
+            } else if (c == '&') {
+                pos++;
+                if (depth > 0) {
+                    entity(false);
+                } else {
+                    throw new XmlPullParserException("Entity reference outside of root element.", this, null);
+                }
+            } else if (depth > 0) {
+                // Copy runs of plain text straight from the buffer.
+                int p = pos;
+                while (p < limit && isPlainTextChar(buffer[p])) {
+                    p++;
+                }
+                appendText(buffer, pos, p - pos);
+                pos = p;
+
+                if (p < limit && buffer[p] == '\r') {
+                    pos++;
+                    newline();
+                } else if (p < limit && buffer[p] == ']') {
+                    if (peek(1) == ']' && peek(2) == '>') {
+                        throw new XmlPullParserException("']]>' is not allowed in text.", this, null);
+                    }
+                    pos++;
+                    appendText(']');
+                }
+            } else {
+                pos++;
+                if (!isWhitespace((char) c) && c != '\uFEFF') {
+                    throw new XmlPullParserException("Text outside of root element.", this, null);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int nextToken() throws XmlPullParserException, IOException {
+        throw new XmlPullParserException("nextToken() is not supported by XMLTokenizer, use next().", this, null);
+    }
+
+    @Override
+    public void require(final int type, final String namespace, final String name) throws XmlPullParserException {
+        if (type != eventType
+                || (namespace != null && !namespace.equals(getNamespace()))
+                || (name != null && !name.equals(getName()))) {
+            throw new XmlPullParserException("Expected " + TYPES[type] + " but was " + getPositionDescription(), this, null);
+        }
+    }
+
+    @Override
+    public String nextText() throws XmlPullParserException, IOException {
+        if (eventType != START_TAG) {
+            throw new XmlPullParserException("nextText() must be called on START_TAG.", this, null);
+        }
+
+        String result = "";
+        if (next() == TEXT) {
+            result = getText();
+            next();
+        }
+        if (eventType != END_TAG) {
+            throw new XmlPullParserException("Expected END_TAG after text.", this, null);
+        }
+        return result;
+    }
+
+    @Override
+    public int nextTag() throws XmlPullParserException, IOException {
+        next();
+        if (eventType == TEXT && isWhitespace()) {
+            next();
+        }
+        if (eventType != START_TAG && eventType != END_TAG) {
+            throw new XmlPullParserException("Expected START_TAG or END_TAG.", this, null);
+        }
+        return eventType;
+    }
+
+    private void reset() {
+        pos = 0;
+        limit = 0;
+        counted = 0;
+        line = 1;
+        column = 1;
+        eventType = START_DOCUMENT;
+        seenRoot = false;
+        pendingEndTag = false;
+        depth = 0;
+        nsCount = 0;
+        attributeCount = 0;
+        textLength = 0;
+        textString = null;
+        name = null;
+        qName = null;
+        prefix = null;
+    }
+
+    private void startTag() throws XmlPullParserException, IOException {
+        if (seenRoot && depth == 0) {
+            throw new XmlPullParserException("Document has more than one root element.", this, null);
+        }
+
+        pos++;
+        qName = readName();
+        attributeLength = 0;
+
+        while (true) {
+            skipWhitespace();
+            final int c = read();
+
+            if (c == '>') {
+                emptyElement = false;
+                break;
+            } else if (c == '/') {
+                expect('>');
+                emptyElement = true;
+                break;
+            } else if (c == -1) {
+                throw new XmlPullParserException("Unexpected end of document in start tag.", this, null);
+            }
+
+            pos--;
+            attribute();
+        }
+
+        seenRoot = true;
+        if (depth == elementNames.length) {
+            elementNames = Arrays.copyOf(elementNames, depth * 2);
+            nsCounts = Arrays.copyOf(nsCounts, depth * 2 + 1);
+        }
+        elementNames[depth] = qName;
+        depth++;
+
+        if (processNamespaces) {
+            declareNamespaces();
+            nsCounts[depth] = nsCount;
+            splitName(qName);
+            for (int i = 0; i < attributeCount; ++i) {
+                final String qualifiedName = attributeQNames[i];
+                final int id = split(qualifiedName);
+                attributePrefixes[i] = id >= 0 ? prefixes[id] : prefix(qualifiedName);
+                attributeNames[i] = id >= 0 ? localNames[id] : localName(qualifiedName);
+            }
+        } else {
+            nsCounts[depth] = 0;
+            name = qName;
+            prefix = null;
+            for (int i = 0; i < attributeCount; ++i) {
+                attributeNames[i] = attributeQNames[i];
+                attributePrefixes[i] = null;
+            }
+        }
+
+        pendingEndTag = emptyElement;
+    }
+
+    private void attribute() throws XmlPullParserException, IOException {
+        final String attributeName = readName();
+        for (int i = 0; i < attributeCount; ++i) {
+            // Usually canonical instances from the symbol table, unless the table is full.
+            if (attributeQNames[i].equals(attributeName)) {
+                throw new XmlPullParserException("Duplicate attribute " + attributeName + ".", this, null);
+            }
+        }
+        skipWhitespace();
+        expect('=');
+        skipWhitespace();
+
+        final int quote = read();
+        if (quote != '"' && quote != '\'') {
+            throw new XmlPullParserException("Attribute value must be quoted.", this, null);
+        }
+
+        if (attributeCount == attributeQNames.length) {
+            final int size = attributeCount * 2;
+            attributeQNames = Arrays.copyOf(attributeQNames, size);
+            attributeNames = Arrays.copyOf(attributeNames, size);
+            attributePrefixes = Arrays.copyOf(attributePrefixes, size);
+            attributeStarts = Arrays.copyOf(attributeStarts, size);
+            attributeEnds = Arrays.copyOf(attributeEnds, size);
+            attributeValues = Arrays.copyOf(attributeValues, size);
+        }
+
+        final int start = attributeLength;
+        while (true) {
+            // Copy runs of plain chars straight from the buffer.
+            int p = pos;
+            while (p < limit && isPlainAttributeChar(buffer[p], quote)) {
+                p++;
+            }
+            appendAttribute(buffer, pos, p - pos);
+            pos = p;
+
+            final int c = read();
+            if (c == quote) {
+                break;
+            } else if (c == '&') {
+                entity(true);
+            } else if (c == '<' || c == -1) {
+                throw new XmlPullParserException("Unterminated attribute value.", this, null);
+            } else if (c == '\r' && peek(0) == '\n') {
+                // The '\n' of the line end becomes the space.
+            } else {
+                appendAttribute(c == '\n' || c == '\r' || c == '\t' ? ' ' : (char) c);
+            }
+        }
+
+        attributeQNames[attributeCount] = attributeName;
+        attributeStarts[attributeCount] = start;
+        attributeEnds[attributeCount] = attributeLength;
+        attributeValues[attributeCount] = null;
+        attributeCount++;
+    }
+
+    /**
+     * Move xmlns attributes of the current start tag into the namespace table.
+     */
+    private void declareNamespaces() {
+        int kept = 0;
+        for (int i = 0; i < attributeCount; ++i) {
+            final String attribute = attributeQNames[i];
+            final boolean isDefault = XMLNS.equals(attribute);
+
+            if (isDefault || attribute.startsWith("xmlns:")) {
+                if (nsCount == nsPrefixes.length) {
+                    nsPrefixes = Arrays.copyOf(nsPrefixes, nsCount * 2);
+                    nsUris = Arrays.copyOf(nsUris, nsCount * 2);
+                }
+                final int id = isDefault ? -1 : split(attribute);
+                nsPrefixes[nsCount] = isDefault ? null : id >= 0 ? localNames[id] : localName(attribute);
+                nsUris[nsCount] = new String(attributeChars, attributeStarts[i], attributeEnds[i] - attributeStarts[i]);
+                nsCount++;
+            } else {
+                attributeQNames[kept] = attributeQNames[i];
+                attributeStarts[kept] = attributeStarts[i];
+                attributeEnds[kept] = attributeEnds[i];
+                attributeValues[kept] = attributeValues[i];
+                kept++;
+            }
+        }
+        attributeCount = kept;
+    }
+
+    private void endTag() throws XmlPullParserException, IOException {
+        pos += 2;
+        final String endName = readName();
+        skipWhitespace();
+        expect('>');
+
+        if (depth == 0 || !endName.equals(elementNames[depth - 1])) {
+            throw new XmlPullParserException("Unexpected end tag </" + endName + ">.", this, null);
+        }
+
+        qName = endName;
+        if (processNamespaces) {
+            splitName(qName);
+        } else {
+            name = qName;
+            prefix = null;
+        }
+    }
+
+    private void splitName(final String qualifiedName) {
+        final int id = split(qualifiedName);
+        prefix = id >= 0 ? prefixes[id] : prefix(qualifiedName);
+        name = id >= 0 ? localNames[id] : localName(qualifiedName);
+    }
+
+    /**
+     * Split a qualified name into prefix and local name once per distinct name.
+     *
+     * @return symbol id of the qualified name, or -1 if it has none
+     */
+    private int split(final String qualifiedName) {
+        final int id = names.id(qualifiedName);
+        if (id < 0) {
+            return id;
+        }
+        if (id >= localNames.length) {
+            localNames = Arrays.copyOf(localNames, Math.max(id + 1, localNames.length * 2));
+            prefixes = Arrays.copyOf(prefixes, localNames.length);
+        }
+
+        if (localNames[id] == null) {
+            prefixes[id] = prefix(qualifiedName);
+            localNames[id] = localName(qualifiedName);
+        }
+        return id;
+    }
+
+    private String prefix(final String qualifiedName) {
+        final int colon = qualifiedName.indexOf(':');
+        return colon < 0 ? null : names.intern(qualifiedName.substring(0, colon));
+    }
+
+    private String localName(final String qualifiedName) {
+        final int colon = qualifiedName.indexOf(':');
+        return colon < 0 ? qualifiedName : names.intern(qualifiedName.substring(colon + 1));
+    }
+
+    /**
+     * Handle markup starting with "<!": comments, CDATA sections and declarations.
+     */
+    private void markupDeclaration() throws XmlPullParserException, IOException {
+        if (peek(2) == '-' && peek(3) == '-') {
+            pos += 4;
+            skipPast("-->");
+        } else if (peek(2) == '[') {
+            pos += 3;
+            for (char c : "CDATA[".toCharArray()) {
+                expect(c);
+            }
+            if (depth == 0) {
+                throw new XmlPullParserException("CDATA outside of root element.", this, null);
+            }
+            cdata();
+        } else {
+            pos += 2;
+            skipDeclaration();
+        }
+    }
+
+    private void processingInstruction() throws XmlPullParserException, IOException {
+        pos += 2;
+        final int c = peek(0);
+        if (c == -1 || c == '?' || isNameEnd((char) c)) {
+            throw new XmlPullParserException("Processing instruction must have a target.", this, null);
+        }
+        skipPast("?>");
+    }
+
+    private void cdata() throws XmlPullParserException, IOException {
+        while (true) {
+            final int c = read();
+            if (c == -1) {
+                throw new XmlPullParserException("Unterminated CDATA section.", this, null);
+            }
+            if (c == ']' && peek(0) == ']' && peek(1) == '>') {
+                pos += 2;
+                return;
+            }
+            if (c == '\r') {
+                newline();
+            } else {
+                appendText((char) c);
+            }
+        }
+    }
+
+    private void skipDeclaration() throws XmlPullParserException, IOException {
+        int brackets = 0;
+        int quote = 0;
+
+        while (true) {
+            final int c = read();
+            if (c == -1) {
+                throw new XmlPullParserException("Unterminated declaration.", this, null);
+            }
+
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[') {
+                brackets++;
+            } else if (c == ']') {
+                brackets--;
+            } else if (c == '>' && brackets == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skip to the end of the terminator, which may not overlap the chars before the current position.
+     */
+    private void skipPast(final String terminator) throws XmlPullParserException, IOException {
+        final char last = terminator.charAt(terminator.length() - 1);
+
+        int skipped = 0;
+        while (true) {
+            final int c = read();
+            if (c == -1) {
+                throw new XmlPullParserException("Expected " + terminator, this, null);
+            }
+
+            skipped++;
+            if (c == last && skipped >= terminator.length() && endsWith(terminator)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the chars just read match the terminator.
+     */
+    private boolean endsWith(final String terminator) {
+        final int start = pos - terminator.length();
+        if (start < 0) {
+            return false;
+        }
+        for (int i = 0; i < terminator.length(); ++i) {
+            if (buffer[start + i] != terminator.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode an entity or character reference following '&'.
+     */
+    private void entity(final boolean inAttribute) throws XmlPullParserException, IOException {
+        nameLength = 0;
+        while (true) {
+            final int c = read();
+            if (c == ';') {
+                break;
+            }
+            if (c == -1 || nameLength > 32) {
+                throw new XmlPullParserException("Unterminated entity reference.", this, null);
+            }
+            appendName((char) c);
+        }
+
+        if (nameLength > 1 && nameChars[0] == '#') {
+            final int codePoint = characterReference();
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                append(inAttribute, (char) codePoint);
+            } else {
+                for (char c : Character.toChars(codePoint)) {
+                    append(inAttribute, c);
+                }
+            }
+            return;
+        }
+
+        final char predefined = predefinedEntity();
+        if (predefined != 0) {
+            append(inAttribute, predefined);
+            return;
+        }
+
+        final String entity = new String(nameChars, 0, nameLength);
+        final String replacement = entities == null ? null : entities.get(entity);
+        if (replacement == null) {
+            throw new XmlPullParserException("Undefined entity &" + entity + ";", this, null);
+        }
+        for (int i = 0; i < replacement.length(); ++i) {
+            append(inAttribute, replacement.charAt(i));
+        }
+    }
+
+    private int characterReference() throws XmlPullParserException {
+        final boolean hex = nameChars[1] == 'x';
+        final int radix = hex ? 16 : 10;
+        int codePoint = 0;
+
+        for (int i = hex ? 2 : 1; i < nameLength; ++i) {
+            final int digit = Character.digit(nameChars[i], radix);
+            if (digit < 0 || codePoint > Character.MAX_CODE_POINT) {
+                throw new XmlPullParserException("Invalid character reference.", this, null);
+            }
+            codePoint = codePoint * radix + digit;
+        }
+
+        if (nameLength == (hex ? 2 : 1) || !Character.isValidCodePoint(codePoint)) {
+            throw new XmlPullParserException("Invalid character reference.", this, null);
+        }
+        return codePoint;
+    }
+
+    /**
+     * @return replacement of a predefined entity or 0 if the entity is not predefined.
+     */
+    private char predefinedEntity() {
+        if (nameMatches("lt")) {
+            return '<';
+        } else if (nameMatches("gt")) {
+            return '>';
+        } else if (nameMatches("amp")) {
+            return '&';
+        } else if (nameMatches("quot")) {
+            return '"';
+        } else if (nameMatches("apos")) {
+            return '\'';
+        }
+        return 0;
+    }
+
+    private boolean nameMatches(final String entity) {
+        if (nameLength != entity.length()) {
+            return false;
+        }
+        for (int i = 0; i < nameLength; ++i) {
+            if (nameChars[i] != entity.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void append(final boolean inAttribute, final char c) {
+        if (inAttribute) {
+            appendAttribute(c);
+        } else {
+            appendText(c);
+        }
+    }
+
+    /**
+     * Read a name and look it up in the buffer, refilling
+     * until the whole name is in the buffer.
+     */
+    private String readName() throws XmlPullParserException, IOException {
+        int length = 0;
+        while (true) {
+            int p = pos + length;
+            while (p < limit && !isNameEnd(buffer[p])) {
+                p++;
+            }
+            length = p - pos;
+
+            if (p < limit || !fill(length + 1)) {
+                break;
+            }
+        }
+
+        if (length == 0) {
+            throw new XmlPullParserException("Expected a name.", this, null);
+        }
+        final String result = names.intern(buffer, pos, length);
+        pos += length;
+        return result;
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek(0)) != -1 && isWhitespace((char) c)) {
+            pos++;
+        }
+    }
+
+    private void expect(final char expected) throws XmlPullParserException, IOException {
+        final int c = read();
+        if (c != expected) {
+            throw new XmlPullParserException("Expected '" + expected + "'.", this, null);
+        }
+    }
+
+    private int read() throws IOException {
+        final int c = peek(0);
+        if (c != -1) {
+            pos++;
+        }
+        return c;
+    }
+
+    /**
+     * @return the char at offset from the current position, or -1 at end of input.
+     */
+    private int peek(final int offset) throws IOException {
+        if (pos + offset >= limit && !fill(offset + 1)) {
+            return -1;
+        }
+        return buffer[pos + offset];
+    }
+
+    /**
+     * Make at least count chars available after pos, keeping the last
+     * few consumed chars for {@link #endsWith(String)}.
+     */
+    private boolean fill(final int count) throws IOException {
+        final int keep = Math.min(pos, 3);
+        final int start = pos - keep;
+        if (start > 0) {
+            countLines(start);
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            limit -= start;
+            pos = keep;
+            counted -= start;
+        }
+
+        while (limit - pos < count) {
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            final int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    /**
+     * Advance the line and column over the chars up to end.
+     */
+    private void countLines(final int end) {
+        for (; counted < end; ++counted) {
+            if (buffer[counted] == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+    }
+
+    /**
+     * Normalize a line end starting with '\r' to '\n'.
+     */
+    private void newline() throws IOException {
+        if (peek(0) == '\n') {
+            pos++;
+        }
+        appendText('\n');
+    }
+
+    private void appendText(final char c) {
+        if (textLength == text.length) {
+            text = Arrays.copyOf(text, textLength * 2);
+        }
+        text[textLength++] = c;
+    }
+
+    private void appendText(final char[] chars, final int offset, final int length) {
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+        }
+        System.arraycopy(chars, offset, text, textLength, length);
+        textLength += length;
+    }
+
+    private void appendAttribute(final char[] chars, final int offset, final int length) {
+        if (attributeLength + length > attributeChars.length) {
+            attributeChars = Arrays.copyOf(attributeChars, Math.max(attributeChars.length * 2, attributeLength + length));
+        }
+        System.arraycopy(chars, offset, attributeChars, attributeLength, length);
+        attributeLength += length;
+    }
+
+    private void appendAttribute(final char c) {
+        if (attributeLength == attributeChars.length) {
+            attributeChars = Arrays.copyOf(attributeChars, attributeLength * 2);
+        }
+        attributeChars[attributeLength++] = c;
+    }
+
+    private void appendName(final char c) {
+        if (nameLength == nameChars.length) {
+            nameChars = Arrays.copyOf(nameChars, nameLength * 2);
+        }
+        nameChars[nameLength++] = c;
+    }
+
+    private void checkAttribute(final int index) {
+        if (eventType != START_TAG || index < 0 || index >= attributeCount) {
+            throw new IndexOutOfBoundsException("No attribute at index " + index);
+        }
+    }
+
+    private static boolean isNameEnd(final char c) {
+        return c == '>' || c == '/' || c == '=' || isWhitespace(c);
+    }
+
+    private static boolean isPlainTextChar(final char c) {
+        return c != '<' && c != '&' && c != '\r' && c != ']';
+    }
+
+    private static boolean isPlainAttributeChar(final char c, final int quote) {
+        return c != quote && c != '&' && c != '<' && c != '\r' && c != '\n' && c != '\t';
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * Determine the encoding from a byte order mark or the XML declaration.
+     */
+    private static String detectEncoding(final BufferedInputStream in) throws IOException {
+        in.mark(DETECT_SIZE);
+        final byte[] head = new byte[DETECT_SIZE];
+        int length = 0;
+        int read;
+        while (length < head.length && (read = in.read(head, length, head.length - length)) != -1) {
+            length += read;
+        }
+        in.reset();
+
+        if (length >= 2 && head[0] == (byte) 0xFE && head[1] == (byte) 0xFF) {
+            return "UTF-16BE";
+        }
+        if (length >= 2 && head[0] == (byte) 0xFF && head[1] == (byte) 0xFE) {
+            return "UTF-16LE";
+        }
+
+        final String declaration = new String(head, 0, length, "ISO-8859-1");
+        if (declaration.startsWith("<?xml")) {
+            final int end = declaration.indexOf("?>");
+            final int encoding = declaration.indexOf("encoding");
+            if (encoding > 0 && (end < 0 || encoding < end)) {
+                final int eq = declaration.indexOf('=', encoding);
+                if (eq > 0 && eq + 1 < declaration.length()) {
+                    int start = eq + 1;
+                    while (start < declaration.length() && isWhitespace(declaration.charAt(start))) {
+                        start++;
+                    }
+                    final char quote = declaration.charAt(start);
+                    final int close = declaration.indexOf(quote, start + 1);
+                    if ((quote == '"' || quote == '\'') && close > start) {
+                        return declaration.substring(start + 1, close);
+                    }
+                }
+            }
+        }
+
+        return UTF_8.name();
+    }
+}
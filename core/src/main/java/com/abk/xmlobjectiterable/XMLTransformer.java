@@ -26,7 +26,8 @@ public interface XMLTransformer<T> {
      * before transform() is called, depending
      * on the XML structure.
      *  @param node    XmlNodeValue
-     * @param path node path
+     * @param path node path.  Iterables pass an {@link XMLPath}, which is
+     *             only valid during the call.
      **/
     void visit(XMLElement node, List<String> path);
 
@@ -0,0 +1,29 @@
+package com.abk.xmlobjectiterable.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a field to an attribute of the record of an {@link XmlPath} class, or
+ * of an element inside it.
+ * <p/>
+ * Field types are the same as for {@link XmlText}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface XmlAttr {
+    /**
+     * @return element path relative to the record and attribute name, such as
+     * "title@lang", or "@category" for an attribute of the record element.
+     */
+    String value();
+
+    /**
+     * @return true if records without the attribute are skipped
+     */
+    boolean required() default false;
+}
@@ -0,0 +1,26 @@
+package com.abk.xmlobjectiterable.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a POJO to the XML elements at a path.  The annotation processor
+ * generates a transformer named {@code <Class>_XMLTransformer} in the same
+ * package, which fills the {@link XmlText} and {@link XmlAttr} fields of
+ * a new instance for each matched element.
+ * <p/>
+ * The class must have a non-private constructor without arguments.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface XmlPath {
+    /**
+     * @return path of the record elements, as passed to onNodes(), made of
+     * element names only: '//', '*' and predicates are rejected at compile time
+     */
+    String value();
+}
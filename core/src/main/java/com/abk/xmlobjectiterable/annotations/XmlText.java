@@ -0,0 +1,30 @@
+package com.abk.xmlobjectiterable.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a field to the text of an element inside the record of an {@link XmlPath} class.
+ * <p/>
+ * Fields may be String, a primitive or its wrapper, BigDecimal, or a
+ * List of String that collects the text of every matching element.
+ * The field must not be private or final.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface XmlText {
+    /**
+     * @return path of the element relative to the record, such as "title" or
+     * "batters/batter".  An empty path binds the text of the record element.
+     */
+    String value();
+
+    /**
+     * @return true if records without the element are skipped
+     */
+    boolean required() default false;
+}
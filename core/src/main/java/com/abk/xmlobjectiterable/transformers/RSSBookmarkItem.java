@@ -3,6 +3,7 @@ package com.abk.xmlobjectiterable.transformers;
 import com.abk.xmlobjectiterable.XMLElement;
 import com.abk.xmlobjectiterable.XMLTransformer;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
 
 import java.util.List;
 
@@ -25,6 +26,8 @@ import java.util.List;
  */
 public class RSSBookmarkItem {
     public static final String PATH = "opml/body/outline/outline";
+    /** Outlines with a feed URL at any depth; the others are skipped by the parser. */
+    public static final String FEED_PATH = "opml/body//outline[@xmlUrl]";
     private final String title;
     private final String htmlUrl;
     private final String type;
@@ -58,8 +61,23 @@ public class RSSBookmarkItem {
         return title;
     }
 
-    public static final XMLTransformer<RSSBookmarkItem> TRANSFORMER = new XMLTransformer<RSSBookmarkItem>() {
-        public RSSBookmarkItem item;
+    /** Creates a transformer per iterator or parallel chunk */
+    public static final Supplier<XMLTransformer<RSSBookmarkItem>> SUPPLIER = new Supplier<XMLTransformer<RSSBookmarkItem>>() {
+        @Override
+        public XMLTransformer<RSSBookmarkItem> get() {
+            return new Transformer();
+        }
+    };
+
+    /**
+     * @deprecated shared by every iterable it is passed to, so concurrent
+     * iterations corrupt each other's records.  Use {@link #SUPPLIER}.
+     */
+    @Deprecated
+    public static final XMLTransformer<RSSBookmarkItem> TRANSFORMER = new Transformer();
+
+    private static final class Transformer implements XMLTransformer<RSSBookmarkItem> {
+        private RSSBookmarkItem item;
 
         @Override
         public Optional<RSSBookmarkItem> transform() {
@@ -68,12 +86,15 @@ public class RSSBookmarkItem {
 
         @Override
         public void visit(XMLElement value, List<String> path) {
-            if (value.getName().equals("outline") && value.getAttribs().containsKey("xmlUrl") && item == null) {
-                item = new RSSBookmarkItem(
-                        value.getAttribs().get("title"),
-                        value.getAttribs().get("htmlUrl"),
-                        value.getAttribs().get("type"),
-                        value.getAttribs().get("xmlUrl"));
+            if (item == null && value.getName().equals("outline")) {
+                final String xmlUrl = value.getAttribute("xmlUrl");
+                if (xmlUrl != null) {
+                    item = new RSSBookmarkItem(
+                            value.getAttribute("title"),
+                            value.getAttribute("htmlUrl"),
+                            value.getAttribute("type"),
+                            xmlUrl);
+                }
             }
         }
 
@@ -86,5 +107,5 @@ public class RSSBookmarkItem {
         public boolean canTransform() {
             return item != null;
         }
-    };
+    }
 }
@@ -3,6 +3,7 @@ package com.abk.xmlobjectiterable.transformers;
 import com.abk.xmlobjectiterable.XMLElement;
 import com.abk.xmlobjectiterable.XMLTransformer;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
 
 import java.util.List;
 
@@ -62,7 +63,22 @@ public class RSSItem {
         return title;
     }
 
-    public static final XMLTransformer<RSSItem> RSS_TRANSFORMER = new XMLTransformer<RSSItem>() {
+    /** Creates a transformer per iterator or parallel chunk */
+    public static final Supplier<XMLTransformer<RSSItem>> SUPPLIER = new Supplier<XMLTransformer<RSSItem>>() {
+        @Override
+        public XMLTransformer<RSSItem> get() {
+            return new Transformer();
+        }
+    };
+
+    /**
+     * @deprecated shared by every iterable it is passed to, so concurrent
+     * iterations corrupt each other's records.  Use {@link #SUPPLIER}.
+     */
+    @Deprecated
+    public static final XMLTransformer<RSSItem> RSS_TRANSFORMER = new Transformer();
+
+    private static final class Transformer implements XMLTransformer<RSSItem> {
         private String description;
         private String comments;
         private String pubDate;
@@ -116,5 +132,5 @@ public class RSSItem {
                     && link != null
                     && title != null;
         }
-    };
+    }
 }
@@ -0,0 +1,158 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.model.AnnotatedBook;
+import com.abk.xmlobjectiterable.model.AnnotatedBook_XMLTransformer;
+import com.abk.xmlobjectiterable.model.AnnotatedBookmark;
+import com.abk.xmlobjectiterable.model.AnnotatedBookmark_XMLTransformer;
+import com.abk.xmlobjectiterable.model.Book;
+import com.abk.xmlobjectiterable.processor.XMLTransformerProcessor;
+import com.abk.xmlobjectiterable.transformers.BookTransformer;
+import com.abk.xmlobjectiterable.transformers.RSSBookmarkItem;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Transformers generated from annotated POJOs
+ */
+public class AnnotatedTransformerTest {
+
+    private static XMLObjectIterable.Builder<AnnotatedBook> books() throws XmlPullParserException {
+        return new XMLObjectIterable.Builder<AnnotatedBook>()
+                .onNodes(AnnotatedBook_XMLTransformer.PATH)
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .withTransform(AnnotatedBook_XMLTransformer.SUPPLIER);
+    }
+
+    @Test
+    public void testMatchesHandWrittenTransformer() throws Exception {
+        final List<Book> expected = Lists.newArrayList(new XMLObjectIterable.Builder<Book>()
+                .onNodes("/bookstore/book")
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .withTransform(new BookTransformer())
+                .from(this.getClass(), "/books.xml")
+                .create());
+        final List<AnnotatedBook> books = Lists.newArrayList(books().from(this.getClass(), "/books.xml").create());
+
+        assertEquals(expected.size(), books.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getCategory().name(), books.get(i).getCategory());
+            assertEquals(expected.get(i).getTitle(), books.get(i).getTitle());
+            assertEquals(expected.get(i).getAuthor(), books.get(i).getAuthors());
+            assertEquals(expected.get(i).getYear(), books.get(i).getYear());
+            assertEquals(0, expected.get(i).getPrice().compareTo(books.get(i).getPrice()));
+            assertEquals("en", books.get(i).getLanguage());
+        }
+    }
+
+    @Test
+    public void testSkipsInvalidRecords() throws Exception {
+        final String xml = "<bookstore>"
+                + "<book category=\"WEB\"><title>No Year</title></book>"
+                + "<book><title>No Category</title></book>"
+                + "<book category=\"WEB\"><title>Bad Year</title><year>soon</year></book>"
+                + "<book category=\"WEB\"><title>Nested</title><review><title>Ignored</title><year>1999</year></review>"
+                + "<price>1.50</price></book>"
+                + "</bookstore>";
+
+        final List<AnnotatedBook> books = Lists.newArrayList(books()
+                .from(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))
+                .create());
+
+        assertEquals(2, books.size());
+        assertEquals("No Year", books.get(0).getTitle());
+        assertEquals(0, books.get(0).getYear());
+        assertNull(books.get(0).getAuthors());
+        assertEquals("Nested", books.get(1).getTitle());
+        assertEquals(0, books.get(1).getYear());
+        assertEquals(new BigDecimal("1.50"), books.get(1).getPrice());
+    }
+
+    @Test
+    public void testRequiredAttribute() throws Exception {
+        final List<RSSBookmarkItem> expected = Lists.newArrayList(new XMLObjectIterable.Builder<RSSBookmarkItem>()
+                .onNodes(RSSBookmarkItem.PATH)
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .withTransform(RSSBookmarkItem.SUPPLIER)
+                .from(this.getClass(), "/rss-opml.xml")
+                .create());
+        final List<AnnotatedBookmark> bookmarks = Lists.newArrayList(new XMLObjectIterable.Builder<AnnotatedBookmark>()
+                .onNodes(AnnotatedBookmark_XMLTransformer.PATH)
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .withTransform(AnnotatedBookmark_XMLTransformer.SUPPLIER)
+                .from(this.getClass(), "/rss-opml.xml")
+                .create());
+
+        assertEquals(expected.size(), bookmarks.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getTitle(), bookmarks.get(i).getTitle());
+            assertEquals(expected.get(i).getHtmlUrl(), bookmarks.get(i).getHtmlUrl());
+            assertEquals(expected.get(i).getXmlUrl(), bookmarks.get(i).getXmlUrl());
+        }
+    }
+
+    @Test
+    public void testRejectsPathExpressions() throws Exception {
+        assertEquals("Path \"opml//outline\" of Outline must be a plain path of element names, without '//', '*' "
+                + "or predicates.", compileError("@XmlPath(\"opml//outline\") public class Outline {}"));
+        assertEquals("Path \"body/outline[@xmlUrl]\" of Outline must be a plain path of element names, without "
+                + "'//', '*' or predicates.", compileError("@XmlPath(\"body/outline[@xmlUrl]\") public class Outline {}"));
+        assertEquals("Path \"*/title\" of title must be a plain path of element names, without '//', '*' "
+                + "or predicates.", compileError("@XmlPath(\"opml/outline\") public class Outline {"
+                + " @XmlText(\"*/title\") String title; }"));
+    }
+
+    /**
+     * Run the processor on a class in the default package.
+     *
+     * @return the first error reported
+     */
+    private static String compileError(final String source) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        final JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///Outline.java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return "import com.abk.xmlobjectiterable.annotations.*; " + source;
+            }
+        };
+
+        final Path output = Files.createTempDirectory("processor");
+        final JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+                Arrays.asList("-proc:only", "-s", output.toString(), "-classpath", System.getProperty("java.class.path")),
+                null, Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(new XMLTransformerProcessor()));
+
+        assertFalse("Compilation fails.", task.call());
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                return diagnostic.getMessage(null);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLControl;
+import com.abk.xmlobjectiterable.XMLControlTransformer;
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Transformers that skip subtrees, finish, drop or stop records from start()
+ */
+public class ControlTransformerTest {
+
+    /**
+     * Collects the names and values visited for a book, steered by the test's controls.
+     */
+    private abstract static class BookControl implements XMLControlTransformer<List<String>> {
+        List<String> visited = new ArrayList<>();
+        int records;
+
+        @Override
+        public Optional<List<String>> transform() {
+            return Optional.of(visited);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            visited.add(node.getName() + (node.getValue() != null ? "=" + node.getValue().trim() : ""));
+        }
+
+        @Override
+        public void reset() {
+            visited = new ArrayList<>();
+        }
+
+        @Override
+        public boolean canTransform() {
+            return true;
+        }
+
+        @Override
+        public XMLControl start(String name, List<String> path) {
+            if (name.equals("book")) {
+                records++;
+            }
+            return control(name);
+        }
+
+        abstract XMLControl control(String name);
+    }
+
+    private static List<List<String>> parse(final BookControl transformer) throws Exception {
+        return Lists.newArrayList(new XMLObjectIterable.Builder<List<String>>()
+                .from(ControlTransformerTest.class, "/books.xml")
+                .withTransform(transformer)
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .onNodes("bookstore/book")
+                .create());
+    }
+
+    @Test
+    public void testSkipSubtree() throws Exception {
+        final List<List<String>> books = parse(new BookControl() {
+            @Override
+            XMLControl control(String name) {
+                return name.equals("author") ? XMLControl.SKIP_SUBTREE : XMLControl.CONTINUE;
+            }
+        });
+
+        assertEquals(4, books.size());
+        assertEquals(Lists.newArrayList("title=Everyday Italian", "year=2005", "price=30.00", "book="), books.get(0));
+    }
+
+    @Test
+    public void testFinishRecord() throws Exception {
+        final List<List<String>> books = parse(new BookControl() {
+            @Override
+            XMLControl control(String name) {
+                return visited.isEmpty() ? XMLControl.CONTINUE : XMLControl.FINISH_RECORD;
+            }
+        });
+
+        assertEquals(4, books.size());
+        // The author element is visited without its text, then the book with the text read so far.
+        assertEquals(Lists.newArrayList("title=Harry Potter", "author", "book="), books.get(1));
+    }
+
+    @Test
+    public void testSkipRecord() throws Exception {
+        final List<List<String>> books = parse(new BookControl() {
+            @Override
+            XMLControl control(String name) {
+                return visited.contains("title=Harry Potter") || (name.equals("book") && records == 4)
+                        ? XMLControl.SKIP_RECORD : XMLControl.CONTINUE;
+            }
+        });
+
+        assertEquals(2, books.size());
+        assertEquals("title=Everyday Italian", books.get(0).get(0));
+        assertEquals("title=XQuery Kick Start", books.get(1).get(0));
+    }
+
+    @Test
+    public void testStopDocument() throws Exception {
+        final BookControl transformer = new BookControl() {
+            @Override
+            XMLControl control(String name) {
+                return records == 3 ? XMLControl.STOP_DOCUMENT : XMLControl.CONTINUE;
+            }
+        };
+        final List<List<String>> books = parse(transformer);
+
+        assertEquals(2, books.size());
+        assertEquals(3, transformer.records);
+        assertFalse(books.get(1).isEmpty());
+    }
+}
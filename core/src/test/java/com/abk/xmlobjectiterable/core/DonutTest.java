@@ -1,5 +1,6 @@
 package com.abk.xmlobjectiterable.core;
 
+import com.abk.xmlobjectiterable.XMLElement;
 import com.abk.xmlobjectiterable.XMLObjectIterable;
 import com.abk.xmlobjectiterable.model.Book;
 import com.abk.xmlobjectiterable.model.Donut;
@@ -13,8 +14,11 @@ import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -60,4 +64,68 @@ public class DonutTest {
                 && donutList.get(5).getFilling().size() == 4);
 
     }
+
+    @Test
+    public void testParseDonutsWithTextViews() throws Exception {
+        assertSameDonuts(new XMLObjectIterable.Builder<Donut>().withTextViews(true));
+    }
+
+    @Test
+    public void testParseDonutsReusingElements() throws Exception {
+        assertSameDonuts(new XMLObjectIterable.Builder<Donut>().withReusedElements(true));
+        assertSameDonuts(new XMLObjectIterable.Builder<Donut>().withReusedElements(true).withTextViews(true));
+    }
+
+    @Test
+    public void testReusedElementPerDepth() throws Exception {
+        final Map<Integer, XMLElement> elements = new HashMap<>();
+        final List<String> ids = new ArrayList<>();
+        final DonutTransformer transformer = new DonutTransformer() {
+            @Override
+            public void visit(XMLElement node, List<String> path) {
+                final XMLElement previous = elements.put(path.size(), node);
+                assertTrue("One element per depth", previous == null || previous == node);
+                if (node.getName().equals("batter")) {
+                    ids.add(node.getAttribute("id") + ":" + node.getAttributeCount());
+                }
+                super.visit(node, path);
+            }
+        };
+
+        Iterables.size(new XMLObjectIterable.Builder<Donut>()
+                .onNodes("/items/item")
+                .withParser(parser)
+                .withReusedElements(true)
+                .withTransform(transformer)
+                .from(this.getClass(), "/donuts.xml")
+                .create());
+
+        assertEquals("1001:1", ids.get(0));
+        assertEquals("Elements at depths 2 to 5", 4, elements.size());
+    }
+
+    private void assertSameDonuts(final XMLObjectIterable.Builder<Donut> builder) throws Exception {
+        final List<Donut> expected = new ArrayList<>();
+        Iterables.addAll(expected, new XMLObjectIterable.Builder<Donut>()
+                .onNodes("/items/item")
+                .withParser(parser)
+                .withTransform(new DonutTransformer())
+                .from(this.getClass(), "/donuts.xml")
+                .create());
+
+        final List<Donut> donutList = new ArrayList<>();
+        Iterables.addAll(donutList, builder
+                .onNodes("/items/item")
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .withTransform(new DonutTransformer())
+                .from(this.getClass(), "/donuts.xml")
+                .create());
+
+        assertEquals(expected.size(), donutList.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getName(), donutList.get(i).getName());
+            assertEquals(expected.get(i).getPpu(), donutList.get(i).getPpu(), 0f);
+            assertEquals(expected.get(i).getFilling().size(), donutList.get(i).getFilling().size());
+        }
+    }
 }
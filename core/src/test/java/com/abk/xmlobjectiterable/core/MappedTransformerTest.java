@@ -0,0 +1,214 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.MappedTransformerFactory;
+import com.abk.xmlobjectiterable.XMLMapping;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.model.Book;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Transformers built at runtime from an XMLMapping
+ */
+public class MappedTransformerTest {
+
+    static final XMLMapping<RSSItem> RSS_MAPPING = new XMLMapping.Builder<>(RSSItem.class)
+            .onNodes(RSSItem.RSS_PATH)
+            .withArgument("title", true)
+            .withArgument("link", true)
+            .withArgument("pubDate", true)
+            .withArgument("comments", true)
+            .withArgument("description", true)
+            .create();
+
+    /**
+     * Book with a constructor argument and setters of several types.
+     */
+    public static final class Listing {
+        private final String title;
+        private int year;
+        private BigDecimal price;
+        private Book.CATEGORY category;
+        private String language;
+
+        public Listing(String title) {
+            this.title = title;
+        }
+
+        public void setYear(int year) {
+            this.year = year;
+        }
+
+        public void setPrice(BigDecimal price) {
+            this.price = price;
+        }
+
+        public void setCategory(Book.CATEGORY category) {
+            this.category = category;
+        }
+
+        public void setLanguage(String language) {
+            this.language = language;
+        }
+    }
+
+    /**
+     * Edition with a primitive constructor argument and a setter that rejects values.
+     */
+    public static final class Edition {
+        private final String title;
+        private final int year;
+
+        public Edition(String title, int year) {
+            this.title = title;
+            this.year = year;
+        }
+
+        public void setPrice(BigDecimal price) {
+            throw new IllegalStateException("Not for sale.");
+        }
+    }
+
+    @Test
+    public void testMatchesHandWrittenTransformer() throws Exception {
+        final List<RSSItem> expected = Lists.newArrayList(new XMLObjectIterable.Builder<RSSItem>()
+                .from(this.getClass(), "/rss.xml")
+                .withTransform(RSSItem.SUPPLIER)
+                .onNodes(RSSItem.RSS_PATH)
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .create());
+        final List<RSSItem> items = Lists.newArrayList(new XMLObjectIterable.Builder<RSSItem>()
+                .from(this.getClass(), "/rss.xml")
+                .withTransform(MappedTransformerFactory.forMapping(RSS_MAPPING))
+                .onNodes(RSS_MAPPING.getPath())
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .create());
+
+        assertEquals(30, items.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getTitle(), items.get(i).getTitle());
+            assertEquals(expected.get(i).getUrl(), items.get(i).getUrl());
+            assertEquals(expected.get(i).getPubDate(), items.get(i).getPubDate());
+            assertEquals(expected.get(i).getComments(), items.get(i).getComments());
+            assertEquals(expected.get(i).getDescription(), items.get(i).getDescription());
+        }
+    }
+
+    @Test
+    public void testSettersConvertValues() throws Exception {
+        final XMLMapping<Listing> mapping = new XMLMapping.Builder<>(Listing.class)
+                .onNodes("/bookstore/book")
+                .withArgument("title", true)
+                .withSetter("year", "setYear")
+                .withSetter("price", "setPrice")
+                .withSetter("@category", "setCategory", true)
+                .withSetter("title@lang", "setLanguage")
+                .withSetter("isbn", "setLanguage")
+                .create();
+
+        final List<Listing> books = Lists.newArrayList(new XMLObjectIterable.Builder<Listing>()
+                .from(this.getClass(), "/books.xml")
+                .withTransform(MappedTransformerFactory.forMapping(mapping))
+                .onNodes(mapping.getPath())
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .create());
+
+        assertEquals(4, books.size());
+        assertEquals("Everyday Italian", books.get(0).title);
+        assertEquals(2005, books.get(0).year);
+        assertEquals(new BigDecimal("30.00"), books.get(0).price);
+        assertEquals(Book.CATEGORY.COOKING, books.get(0).category);
+        assertEquals("en", books.get(0).language);
+        assertEquals(Book.CATEGORY.WEB, books.get(3).category);
+    }
+
+    @Test
+    public void testUnconvertibleValueSkipsRecord() throws Exception {
+        final XMLMapping<Listing> mapping = new XMLMapping.Builder<>(Listing.class)
+                .onNodes("bookstore/book")
+                .withArgument("title")
+                .withSetter("year", "setYear")
+                .create();
+
+        final List<Listing> books = Lists.newArrayList(new XMLObjectIterable.Builder<Listing>()
+                .from("<bookstore><book><title>A</title><year>soon</year></book><book><year> 1999 </year></book></bookstore>")
+                .withTransform(MappedTransformerFactory.forMapping(mapping))
+                .onNodes(mapping.getPath())
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .create());
+
+        assertEquals(1, books.size());
+        assertNull(books.get(0).title);
+        assertEquals(1999, books.get(0).year);
+    }
+
+    @Test
+    public void testMissingPrimitiveGetsDefault() throws Exception {
+        final XMLMapping<Edition> mapping = new XMLMapping.Builder<>(Edition.class)
+                .onNodes("bookstore/book")
+                .withArgument("title", true)
+                .withArgument("year")
+                .create();
+
+        final List<Edition> books = Lists.newArrayList(new XMLObjectIterable.Builder<Edition>()
+                .from("<bookstore><book><title>A</title></book></bookstore>")
+                .withTransform(MappedTransformerFactory.forMapping(mapping))
+                .onNodes(mapping.getPath())
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .create());
+
+        assertEquals(1, books.size());
+        assertEquals("A", books.get(0).title);
+        assertEquals(0, books.get(0).year);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPojoExceptionsPropagate() throws Exception {
+        final XMLMapping<Edition> mapping = new XMLMapping.Builder<>(Edition.class)
+                .onNodes("bookstore/book")
+                .withArgument("title", true)
+                .withArgument("year", true)
+                .withSetter("price", "setPrice")
+                .create();
+
+        Lists.newArrayList(new XMLObjectIterable.Builder<Edition>()
+                .from("<bookstore><book><title>A</title><year>2005</year><price>1</price></book></bookstore>")
+                .withTransform(MappedTransformerFactory.forMapping(mapping))
+                .onNodes(mapping.getPath())
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .create());
+    }
+
+    @Test
+    public void testFactoriesAreCachedByMapping() {
+        final XMLMapping<RSSItem> copy = new XMLMapping.Builder<>(RSSItem.class)
+                .onNodes("/rss/channel/item/")
+                .withArgument("title", true)
+                .withArgument("link", true)
+                .withArgument("pubDate", true)
+                .withArgument("comments", true)
+                .withArgument("description", true)
+                .create();
+
+        assertEquals(RSS_MAPPING, copy);
+        assertSame(MappedTransformerFactory.forMapping(RSS_MAPPING), MappedTransformerFactory.forMapping(copy));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingSetter() {
+        MappedTransformerFactory.forMapping(new XMLMapping.Builder<>(Listing.class)
+                .onNodes("bookstore/book")
+                .withArgument("title")
+                .withSetter("author", "setAuthor")
+                .create());
+    }
+}
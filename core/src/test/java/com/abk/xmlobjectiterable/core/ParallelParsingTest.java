@@ -0,0 +1,227 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validates that chunked parallel parsing returns the same POJOs as sequential parsing.
+ */
+public class ParallelParsingTest {
+
+    private static final int GROUPS = 200;
+    private static final int ITEMS_PER_GROUP = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private XmlPullParserFactory factory;
+    private File xmlFile;
+
+    static class TitleTransformer implements XMLTransformer<String> {
+        private String title;
+
+        @Override
+        public Optional<String> transform() {
+            return Optional.fromNullable(title);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            if (path.size() == 4) {
+                title = node.getAttribs().get("title");
+            }
+        }
+
+        @Override
+        public void reset() {
+            title = null;
+        }
+
+        @Override
+        public boolean canTransform() {
+            return title != null;
+        }
+    }
+
+    static final Supplier<TitleTransformer> TRANSFORMERS = new Supplier<TitleTransformer>() {
+        @Override
+        public TitleTransformer get() {
+            return new TitleTransformer();
+        }
+    };
+
+    @Before
+    public void createFile() throws Exception {
+        factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<!-- <opml> in a comment -->\n")
+                .append("<opml version=\"1.1\"><head><title>Feeds</title></head><body>\n");
+        for (int g = 0; g < GROUPS; ++g) {
+            xml.append("<outline text=\"group ").append(g).append("\">\n");
+            for (int i = 0; i < ITEMS_PER_GROUP; ++i) {
+                if (i % 2 == 0) {
+                    xml.append("  <outline title=\"").append(g).append('-').append(i)
+                            .append("\" xmlUrl=\"http://example.com/a>b\"/>\n");
+                } else {
+                    xml.append("  <outline title='").append(g).append('-').append(i)
+                            .append("'><![CDATA[</outline>]]><?pi </outline>?></outline>\n");
+                }
+            }
+            xml.append("</outline>\n");
+        }
+        xml.append("</body></opml>\n");
+
+        xmlFile = folder.newFile("opml.xml");
+        Files.write(xml.toString(), xmlFile, Charsets.UTF_8);
+    }
+
+    private XMLObjectIterable.Builder<String> builder() {
+        return new XMLObjectIterable.Builder<String>()
+                .from(xmlFile)
+                .onNodes("opml/body/outline/outline")
+                .withParserFactory(factory)
+                .withTransform(TRANSFORMERS);
+    }
+
+    @Test
+    public void testOrderedMatchesSequential() throws Exception {
+        final List<String> sequential = Lists.newArrayList(builder().create());
+        final List<String> parallel = Lists.newArrayList(builder()
+                .withParallelism(new ForkJoinPool(4), true)
+                .create());
+
+        assertEquals("All records present.", GROUPS * ITEMS_PER_GROUP, sequential.size());
+        assertEquals("Same records in document order.", sequential, parallel);
+    }
+
+    @Test
+    public void testMappedFileMatchesSequential() throws Exception {
+        final List<String> sequential = Lists.newArrayList(builder().create());
+        final List<String> mapped = Lists.newArrayList(builder()
+                .from(xmlFile.toPath())
+                .create());
+        final List<String> mappedParallel = Lists.newArrayList(builder()
+                .from(xmlFile.toPath())
+                .withParallelism(new ForkJoinPool(4), true)
+                .create());
+
+        assertEquals("Same records from mapped file.", sequential, mapped);
+        assertEquals("Same records from mapped file in parallel.", sequential, mappedParallel);
+    }
+
+    @Test
+    public void testUnorderedContainsAllRecords() throws Exception {
+        final List<String> sequential = Lists.newArrayList(builder().create());
+        final List<String> parallel = Lists.newArrayList(builder()
+                .withParallelism(new ForkJoinPool(4), false)
+                .create());
+
+        assertEquals("Same record count.", sequential.size(), parallel.size());
+        assertEquals("Same records.", Sets.newHashSet(sequential), Sets.newHashSet(parallel));
+    }
+
+    @Test
+    public void testBatchesMatchSequential() throws Exception {
+        final List<String> sequential = Lists.newArrayList(builder().create());
+
+        final List<XMLObjectIterable<String>> iterables = new ArrayList<>();
+        iterables.add(builder().create());
+        iterables.add(builder().withParallelism(new ForkJoinPool(4), true).create());
+
+        for (XMLObjectIterable<String> iterable : iterables) {
+            final List<String> batched = Lists.newArrayList();
+            int batches = 0;
+            for (List<String> batch : iterable.batches(300)) {
+                assertTrue("Batch is not larger than requested.", batch.size() <= 300);
+                batched.addAll(batch);
+                batches++;
+            }
+
+            assertEquals("Full batches except the last.", (sequential.size() + 299) / 300, batches);
+            assertEquals("Same records in batches.", sequential, batched);
+        }
+    }
+
+    @Test
+    public void testCloseBatchesBeforeEnd() throws Exception {
+        final boolean[] closed = new boolean[1];
+        final InputStream is = new FilterInputStream(new FileInputStream(xmlFile)) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        };
+
+        final Iterator<List<String>> sequential = builder().from(is).create().batches(10).iterator();
+        final List<String> batch = sequential.next();
+        batch.add("owned by the caller");
+        ((Closeable) sequential).close();
+        assertTrue("Input closed with the batches.", closed[0]);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final Iterator<List<String>> parallel = builder()
+                .from(xmlFile.toPath())
+                .withParallelism(pool, false)
+                .create()
+                .batches(10)
+                .iterator();
+        parallel.next().add("owned by the caller");
+        ((Closeable) parallel).close();
+        assertFalse("No batches after close.", parallel.hasNext());
+
+        pool.shutdown();
+        assertTrue("Cancelled chunks do not hold the pool.", pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCloseBeforeEnd() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        for (boolean ordered : new boolean[]{true, false}) {
+            final Iterator<String> iterator = builder()
+                    .from(xmlFile.toPath())
+                    .withParallelism(pool, ordered)
+                    .create()
+                    .iterator();
+
+            assertTrue(iterator.hasNext());
+            iterator.next();
+            ((Closeable) iterator).close();
+
+            assertFalse("No records after close.", iterator.hasNext());
+        }
+
+        pool.shutdown();
+        assertTrue("Cancelled chunks do not hold the pool.", pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,100 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.ParserPool;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTokenizer;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validates that pooled parsers are reused, reset and keep their features.
+ */
+public class ParserPoolTest {
+
+    /**
+     * Counts the parsers it creates.
+     */
+    private static final class CountingFactory extends XmlPullParserFactory {
+        final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public XmlPullParser newPullParser() throws XmlPullParserException {
+            created.incrementAndGet();
+            final XMLTokenizer tokenizer = new XMLTokenizer();
+            tokenizer.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, isNamespaceAware());
+            return tokenizer;
+        }
+    }
+
+    private static XMLObjectIterable<RSSItem> items(final ParserPool pool) {
+        return new XMLObjectIterable.Builder<RSSItem>()
+                .from(ParserPoolTest.class, "/rss.xml")
+                .withTransform(RSSItem.SUPPLIER)
+                .withParserPool(pool)
+                .onNodes(RSSItem.RSS_PATH)
+                .create();
+    }
+
+    @Test
+    public void testReusesParserAcrossDocuments() throws Exception {
+        final CountingFactory factory = new CountingFactory();
+        factory.setNamespaceAware(true);
+        final ParserPool pool = new ParserPool(factory);
+
+        for (int i = 0; i < 5; ++i) {
+            assertEquals(30, Lists.newArrayList(items(pool)).size());
+        }
+
+        assertEquals(1, factory.created.get());
+    }
+
+    @Test
+    public void testOpenIteratorsGetOwnParsers() throws Exception {
+        final CountingFactory factory = new CountingFactory();
+        final ParserPool pool = new ParserPool(factory);
+
+        final Iterator<RSSItem> first = items(pool).iterator();
+        final Iterator<RSSItem> second = items(pool).iterator();
+        while (first.hasNext()) {
+            assertEquals(first.next().getTitle(), second.next().getTitle());
+        }
+
+        assertFalse(second.hasNext());
+        assertEquals(2, factory.created.get());
+    }
+
+    @Test
+    public void testReleasedParserIsResetWithFeatures() throws Exception {
+        final XMLTokenizer.Factory factory = new XMLTokenizer.Factory();
+        factory.setNamespaceAware(true);
+        final ParserPool pool = new ParserPool(factory, 1);
+
+        final XmlPullParser parser = pool.lease();
+        parser.setInput(ParserPoolTest.class.getResourceAsStream("/rss.xml"), null);
+        assertEquals(XmlPullParser.START_TAG, parser.next());
+        pool.release(parser);
+
+        final XmlPullParser reused = pool.lease();
+        assertSame(parser, reused);
+        assertEquals(XmlPullParser.START_DOCUMENT, reused.getEventType());
+        assertTrue(reused.getFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES));
+
+        pool.release(reused);
+        pool.release(factory.newPullParser());
+        assertSame(parser, pool.lease());
+        assertNotSame(parser, pool.lease());
+    }
+}
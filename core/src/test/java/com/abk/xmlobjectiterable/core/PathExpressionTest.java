@@ -0,0 +1,131 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.abk.xmlobjectiterable.transformers.RSSBookmarkItem;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Wildcards, descendant steps and attribute predicates in onNodes()
+ */
+public class PathExpressionTest {
+
+    /**
+     * Returns the name and the first attribute or text of the matched element.
+     */
+    private static final class NameTransformer implements XMLTransformer<String> {
+        private String name;
+
+        @Override
+        public Optional<String> transform() {
+            return Optional.fromNullable(name);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            name = node.getName() + "=" + (node.getAttributeCount() > 0 ? node.getAttributeValue(0)
+                    : node.getValue() != null ? node.getValue().trim() : "");
+        }
+
+        @Override
+        public void reset() {
+            name = null;
+        }
+
+        @Override
+        public boolean canTransform() {
+            return name != null;
+        }
+    }
+
+    private static List<String> names(final String resource, final String path) throws XmlPullParserException {
+        return Lists.newArrayList(new XMLObjectIterable.Builder<String>()
+                .from(PathExpressionTest.class, resource)
+                .withTransform(new NameTransformer())
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .onNodes(path)
+                .create());
+    }
+
+    @Test
+    public void testWildcard() throws Exception {
+        assertEquals(4, names("/books.xml", "bookstore/*").size());
+        assertEquals(Lists.newArrayList("year=2005", "year=2005", "year=2003", "year=2003"),
+                names("/books.xml", "/*/book/year"));
+        assertEquals(names("/books.xml", "bookstore/book/title"), names("/books.xml", "bookstore/book/*[@lang]"));
+    }
+
+    @Test
+    public void testDescendant() throws Exception {
+        assertEquals(4, names("/books.xml", "//title").size());
+        assertEquals(30, names("/rss.xml", "rss//item").size());
+        assertEquals(names("/rss.xml", "rss/channel/item/link"), names("/rss.xml", "//item//link"));
+    }
+
+    @Test
+    public void testPredicates() throws Exception {
+        assertEquals(Lists.newArrayList("book=WEB", "book=WEB"), names("/books.xml", "bookstore/book[@category='WEB']"));
+        assertEquals(Lists.newArrayList("book=CHILDREN"), names("/books.xml", "bookstore/book[ @category = \"CHILDREN\" ]"));
+        assertEquals(0, names("/books.xml", "bookstore/book[@category='WEB'][@missing]").size());
+    }
+
+    @Test
+    public void testRecordsDoNotNest() throws Exception {
+        // Only the 23 top-level folders match, not the feeds inside them.
+        assertEquals(23, names("/rss-opml.xml", "//outline").size());
+    }
+
+    @Test
+    public void testPredicateRejectsBeforeTransform() throws Exception {
+        final List<RSSBookmarkItem> expected = Lists.newArrayList(new XMLObjectIterable.Builder<RSSBookmarkItem>()
+                .from(this.getClass(), "/rss-opml.xml")
+                .withTransform(RSSBookmarkItem.SUPPLIER)
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .onNodes(RSSBookmarkItem.PATH)
+                .create());
+        final List<RSSBookmarkItem> items = Lists.newArrayList(new XMLObjectIterable.Builder<RSSBookmarkItem>()
+                .from(this.getClass(), "/rss-opml.xml")
+                .withTransform(RSSBookmarkItem.SUPPLIER)
+                .withBuiltInParser(false)
+                .onNodes(RSSBookmarkItem.FEED_PATH)
+                .create());
+
+        assertEquals(405, items.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getXmlUrl(), items.get(i).getXmlUrl());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonAttributePredicate() {
+        new XMLObjectIterable.Builder<String>().onNodes("bookstore/book[title]");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnterminatedValue() {
+        new XMLObjectIterable.Builder<String>().onNodes("bookstore/book[@category='WEB]");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParallelRequiresFixedPath() throws Exception {
+        new XMLObjectIterable.Builder<RSSItem>()
+                .from(new File("rss.xml"))
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .withTransform(RSSItem.SUPPLIER)
+                .withParallelism(ForkJoinPool.commonPool(), true)
+                .onNodes("rss//item")
+                .create();
+    }
+}
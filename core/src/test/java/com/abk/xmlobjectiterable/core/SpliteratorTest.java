@@ -0,0 +1,146 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLObjectSpliterator;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validates splitting and stream integration of XMLObjectSpliterator.
+ */
+public class SpliteratorTest {
+
+    private static final int RECORDS = 20000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private XmlPullParserFactory factory;
+    private File xmlFile;
+
+    @Before
+    public void createFile() throws Exception {
+        factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+
+        final StringBuilder xml = new StringBuilder("<opml><body><outline>");
+        for (int i = 0; i < RECORDS; ++i) {
+            xml.append("<outline title=\"").append(i).append("\" type=\"rss\"/>\n");
+        }
+        xml.append("</outline></body></opml>");
+
+        xmlFile = folder.newFile("opml.xml");
+        Files.write(xml.toString(), xmlFile, Charsets.UTF_8);
+    }
+
+    private XMLObjectIterable.Builder<String> builder() {
+        return new XMLObjectIterable.Builder<String>()
+                .onNodes("opml/body/outline/outline")
+                .withParserFactory(factory)
+                .withTransform(ParallelParsingTest.TRANSFORMERS);
+    }
+
+    @Test
+    public void testParallelStreamMatchesSequential() throws Exception {
+        final List<String> sequential = Lists.newArrayList(builder().from(xmlFile).create());
+
+        final List<String> parallel;
+        try (Stream<String> stream = XMLObjectSpliterator.stream(builder().from(xmlFile).create(), true)) {
+            parallel = stream.collect(Collectors.<String>toList());
+        }
+
+        assertEquals("All records present.", RECORDS, sequential.size());
+        assertEquals("Same records in document order.", sequential, parallel);
+    }
+
+    @Test
+    public void testFileSplitsByRegion() throws Exception {
+        final Spliterator<String> spliterator = XMLObjectSpliterator.of(builder().from(xmlFile).create());
+
+        assertTrue("Ordered.", spliterator.hasCharacteristics(Spliterator.ORDERED));
+        assertTrue("Non null.", spliterator.hasCharacteristics(Spliterator.NONNULL));
+
+        final Spliterator<String> prefix = spliterator.trySplit();
+        assertNotNull("File input splits.", prefix);
+        assertEquals("Estimates count records.", RECORDS, prefix.estimateSize() + spliterator.estimateSize());
+    }
+
+    @Test
+    public void testUnorderedParallelismIsNotOrdered() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final XMLObjectIterable<String> iterable = builder()
+                .from(xmlFile)
+                .withParallelism(pool, false)
+                .create();
+
+        assertFalse("Completion order.", XMLObjectSpliterator.of(iterable).hasCharacteristics(Spliterator.ORDERED));
+        try (Stream<String> stream = XMLObjectSpliterator.stream(iterable, false)) {
+            assertEquals("All records present.", RECORDS, stream.collect(Collectors.<String>toSet()).size());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testStreamSplitsByBatch() throws Exception {
+        final String xml = com.google.common.io.Files.toString(xmlFile, Charsets.UTF_8);
+        final Spliterator<String> spliterator = XMLObjectSpliterator.of(builder().from(xml).create());
+
+        assertTrue("Estimate from input length.", spliterator.estimateSize() > 0);
+
+        final Spliterator<String> prefix = spliterator.trySplit();
+        assertNotNull("Parsed records are handed off.", prefix);
+        assertTrue("Batch is sized.", prefix.hasCharacteristics(Spliterator.SIZED));
+        assertEquals("First record in prefix.", "0", firstOf(prefix));
+    }
+
+    @Test
+    public void testCloseReleasesStreamInput() throws Exception {
+        final boolean[] closed = new boolean[1];
+        final InputStream is = new FilterInputStream(new FileInputStream(xmlFile)) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        };
+
+        try (Stream<String> stream = XMLObjectSpliterator.stream(builder().from(is).create(), false)) {
+            assertEquals("0", stream.findFirst().get());
+        }
+
+        assertTrue("Input closed with the stream.", closed[0]);
+    }
+
+    private static String firstOf(final Spliterator<String> spliterator) {
+        final String[] first = new String[1];
+        spliterator.tryAdvance(new java.util.function.Consumer<String>() {
+            @Override
+            public void accept(String s) {
+                first[0] = s;
+            }
+        });
+        return first[0];
+    }
+}
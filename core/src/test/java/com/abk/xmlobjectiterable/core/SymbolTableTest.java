@@ -0,0 +1,210 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.SymbolTable;
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLPath;
+import com.abk.xmlobjectiterable.XMLTokenizer;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validates canonical names and name ids.
+ */
+public class SymbolTableTest {
+
+    @Test
+    public void testCanonicalNames() {
+        SymbolTable symbols = new SymbolTable();
+
+        int item = symbols.id("item");
+        assertEquals(item, symbols.id(new String("item")));
+        assertSame("item", symbols.intern(new String("item")));
+        assertSame("item", symbols.intern("an item".toCharArray(), 3, 4));
+        assertEquals(-1, symbols.lookup("missing"));
+
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i + 1, symbols.id("name" + i));
+        }
+        assertEquals(item, symbols.lookup("item"));
+        assertEquals("name999", symbols.name(1000));
+        assertEquals(1001, symbols.size());
+    }
+
+    @Test
+    public void testElementNameIds() throws Exception {
+        final SymbolTable symbols = new SymbolTable();
+        final int title = symbols.id("title");
+
+        XMLObjectIterable<String> xitr = new XMLObjectIterable.Builder<String>()
+                .from("<rss><channel><item><title>a</title><link>b</link></item>"
+                        + "<item><title>c</title></item></channel></rss>")
+                .onNodes("rss/channel/item")
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .withSymbols(symbols)
+                .withTransform(new XMLTransformer<String>() {
+                    private String value;
+
+                    @Override
+                    public Optional<String> transform() {
+                        return Optional.fromNullable(value);
+                    }
+
+                    @Override
+                    public void visit(XMLElement node, List<String> path) {
+                        if (node.getNameId() == title) {
+                            value = node.getValue();
+                        }
+                    }
+
+                    @Override
+                    public void reset() {
+                        value = null;
+                    }
+
+                    @Override
+                    public boolean canTransform() {
+                        return value != null;
+                    }
+                })
+                .create();
+
+        assertEquals(Lists.newArrayList("a", "c"), Lists.newArrayList(xitr));
+        assertSame(symbols, xitr.getSymbols());
+        // Canonical within the table, not interned in the JVM.
+        assertEquals("link", symbols.name(symbols.lookup("link")));
+        assertSame(symbols.name(symbols.lookup("link")), symbols.intern(new String("link")));
+    }
+
+    @Test
+    public void testBuiltInParserSharesTable() throws Exception {
+        final SymbolTable symbols = new SymbolTable();
+
+        Lists.newArrayList(new XMLObjectIterable.Builder<String>()
+                .from("<p:feed xmlns:p='urn:p'><p:item p:id='1'/></p:feed>")
+                .onNodes("feed/item")
+                .withBuiltInParser(true)
+                .withSymbols(symbols)
+                .withTransform(new XMLTransformer<String>() {
+                    @Override
+                    public Optional<String> transform() {
+                        return Optional.absent();
+                    }
+
+                    @Override
+                    public void visit(XMLElement node, List<String> path) {
+                    }
+
+                    @Override
+                    public void reset() {
+                    }
+
+                    @Override
+                    public boolean canTransform() {
+                        return false;
+                    }
+                })
+                .create());
+
+        // Only the tokenizer sees qualified names.
+        assertTrue(symbols.lookup("p:item") >= 0);
+        assertTrue(symbols.lookup("p:id") >= 0);
+    }
+
+    @Test
+    public void testTokenizerWithTable() throws Exception {
+        final SymbolTable symbols = new SymbolTable();
+        final XmlPullParser parser = new XMLTokenizer.Factory(symbols).newPullParser();
+        parser.setInput(new StringReader("<item id='1'/>"));
+
+        parser.next();
+        assertSame(symbols.name(symbols.lookup("item")), parser.getName());
+        assertSame(symbols.name(symbols.lookup("id")), parser.getAttributeName(0));
+    }
+    @Test
+    public void testCapacity() {
+        final SymbolTable symbols = new SymbolTable(2);
+        assertEquals(0, symbols.id("a"));
+        assertEquals(1, symbols.id("b"));
+
+        final String c = new String("c");
+        assertEquals(-1, symbols.id(c));
+        assertSame(c, symbols.intern(c));
+        assertEquals(-1, symbols.lookup("c"));
+        assertEquals(2, symbols.size());
+
+        final int a = symbols.pathId("a");
+        assertEquals(a, symbols.pathId(-1, 0));
+        assertEquals(1, symbols.pathId(a, 1));
+        assertEquals(SymbolTable.NO_PATH, symbols.pathId(a, 0));
+        assertEquals(SymbolTable.NO_PATH, symbols.pathId(SymbolTable.NO_PATH, 0));
+        assertEquals(SymbolTable.NO_PATH, symbols.pathId(a, -1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRegisterPathInFullTable() {
+        final SymbolTable symbols = new SymbolTable(1);
+        symbols.id("a");
+        symbols.pathId("a/b");
+    }
+
+    @Test
+    public void testParseWithFullTable() throws Exception {
+        final SymbolTable symbols = new SymbolTable(3);
+        final List<String> visits = new ArrayList<>();
+
+        Lists.newArrayList(new XMLObjectIterable.Builder<String>()
+                .from("<p:feed xmlns:p='urn:p'><p:item p:id='1'><title>t</title></p:item></p:feed>")
+                .onNodes("feed/item")
+                .withBuiltInParser(true)
+                .withSymbols(symbols)
+                .withTransform(new XMLTransformer<String>() {
+                    @Override
+                    public Optional<String> transform() {
+                        return Optional.absent();
+                    }
+
+                    @Override
+                    public void visit(XMLElement node, List<String> path) {
+                        visits.add(node.getName() + ":" + node.getNameId() + ":" + XMLPath.isUnder(path, "item")
+                                + ":" + ((XMLPath) path).id());
+                    }
+
+                    @Override
+                    public void reset() {
+                    }
+
+                    @Override
+                    public boolean canTransform() {
+                        return false;
+                    }
+                })
+                .create());
+
+        assertEquals(3, symbols.size());
+        assertEquals(Lists.newArrayList("title:-1:true:" + SymbolTable.NO_PATH, "item:-1:false:" + SymbolTable.NO_PATH),
+                visits);
+    }
+
+    @Test(expected = XmlPullParserException.class)
+    public void testDuplicateAttributeWithFullTable() throws Exception {
+        final SymbolTable symbols = new SymbolTable(1);
+        symbols.id("z");
+        final XmlPullParser parser = new XMLTokenizer(symbols);
+        parser.setInput(new StringReader("<a x='1' x='2'/>"));
+        parser.next();
+    }
+}
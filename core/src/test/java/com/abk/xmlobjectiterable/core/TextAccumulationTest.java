@@ -0,0 +1,174 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLRouter;
+import com.abk.xmlobjectiterable.XMLTextTransformer;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Validates that split text is accumulated per element and that chosen elements can stream their text.
+ */
+public class TextAccumulationTest {
+
+    private static final String MIXED = "<doc><p id=\"1\">Hello <!-- note -->world &amp; <b>bold</b> more"
+            + "<![CDATA[ <raw> ]]>end</p><p id=\"2\"><b>only child</b></p></doc>";
+
+    private static <T> List<T> parse(final String xml, final String path, final XMLTransformer<T> transformer)
+            throws Exception {
+        return Lists.newArrayList(new XMLObjectIterable.Builder<T>()
+                .from(xml)
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .withTransform(transformer)
+                .onNodes(path)
+                .create());
+    }
+
+    @Test
+    public void testMixedContent() throws Exception {
+        final List<Map<String, String>> records = parse(MIXED, "doc/p", new TextsTransformer());
+
+        assertEquals(2, records.size());
+        assertEquals("Hello world &  more <raw> end", records.get(0).get("p"));
+        assertEquals("bold", records.get(0).get("b"));
+        assertNull(records.get(1).get("p"));
+        assertEquals("only child", records.get(1).get("b"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMixedContentRouted() throws Exception {
+        final List<Map<String, String>> records = Lists.newArrayList();
+        for (XMLRouter.Record<?> record : new XMLRouter.Builder()
+                .from(MIXED)
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .route("doc/p", new TextsTransformer())
+                .create()) {
+            records.add((Map<String, String>) record.getValue());
+        }
+
+        assertEquals(2, records.size());
+        assertEquals("Hello world &  more <raw> end", records.get(0).get("p"));
+        assertEquals("bold", records.get(0).get("b"));
+    }
+
+    @Test
+    public void testStreamedText() throws Exception {
+        final List<RSSItem> expected = parse(resource(), RSSItem.RSS_PATH, RSSItem.SUPPLIER.get());
+        final List<Map<String, String>> streamed = parse(resource(), RSSItem.RSS_PATH, new StreamingTransformer());
+
+        assertEquals(expected.size(), streamed.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getDescription(), streamed.get(i).get("streamed"));
+            assertNull(streamed.get(i).get("description"));
+            assertEquals(expected.get(i).getTitle(), streamed.get(i).get("title"));
+        }
+    }
+
+    @Test
+    public void testTextViews() throws Exception {
+        final List<XMLElement> kept = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+        final XMLObjectIterable<Map<String, String>> iterable = new XMLObjectIterable.Builder<Map<String, String>>()
+                .from(MIXED)
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .withTextViews(true)
+                .withTransform(new TextsTransformer() {
+                    @Override
+                    public void visit(XMLElement node, List<String> path) {
+                        kept.add(node);
+                        values.add(node.getText() == null ? null : node.getText().toString());
+                        if (node.getName().equals("b")) {
+                            super.visit(node, path);
+                        }
+                    }
+                })
+                .onNodes("doc/p")
+                .create();
+
+        final List<Map<String, String>> records = Lists.newArrayList(iterable);
+        assertEquals(Lists.newArrayList("bold", "Hello world &  more <raw> end", "only child", null), values);
+        assertEquals("bold", records.get(0).get("b"));
+
+        // Text read with getValue() during visit() stays, the rest is gone.
+        assertEquals("bold", kept.get(0).getValue());
+        assertNull(kept.get(1).getValue());
+        assertNull(kept.get(1).getText());
+    }
+
+    private static String resource() throws Exception {
+        try (InputStream is = TextAccumulationTest.class.getResourceAsStream("/rss.xml")) {
+            return new String(ByteStreams.toByteArray(is), Charsets.UTF_8);
+        }
+    }
+
+    /**
+     * Maps element names to their values.
+     */
+    private static class TextsTransformer implements XMLTransformer<Map<String, String>> {
+        Map<String, String> texts = new HashMap<>();
+
+        @Override
+        public Optional<Map<String, String>> transform() {
+            return Optional.of(texts);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            texts.put(node.getName(), node.getValue());
+        }
+
+        @Override
+        public void reset() {
+            texts = new HashMap<>();
+        }
+
+        @Override
+        public boolean canTransform() {
+            return true;
+        }
+    }
+
+    /**
+     * Streams the text of descriptions into the "streamed" entry.
+     */
+    private static final class StreamingTransformer extends TextsTransformer
+            implements XMLTextTransformer<Map<String, String>> {
+        private final StringBuilder streamed = new StringBuilder();
+
+        @Override
+        public boolean streamsText(String name, List<String> path) {
+            return name.equals("description");
+        }
+
+        @Override
+        public void text(String name, CharSequence chars) {
+            streamed.append(chars);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            super.visit(node, path);
+            if (node.getName().equals("description")) {
+                texts.put("streamed", streamed.toString());
+                streamed.setLength(0);
+            }
+        }
+    }
+}
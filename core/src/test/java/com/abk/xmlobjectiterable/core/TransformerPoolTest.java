@@ -0,0 +1,119 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.TransformerPool;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Validates that iterators get their own transformers and that pooled transformers are reused.
+ */
+public class TransformerPoolTest {
+
+    private static final int THREADS = 4;
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final Supplier<XMLTransformer<RSSItem>> counting = new Supplier<XMLTransformer<RSSItem>>() {
+        @Override
+        public XMLTransformer<RSSItem> get() {
+            created.incrementAndGet();
+            return RSSItem.SUPPLIER.get();
+        }
+    };
+
+    private File rssFile;
+
+    @Before
+    public void setUp() throws Exception {
+        rssFile = new File(this.getClass().getResource("/rss.xml").toURI());
+    }
+
+    private XMLObjectIterable<RSSItem> items(final Supplier<XMLTransformer<RSSItem>> transformers) throws Exception {
+        return new XMLObjectIterable.Builder<RSSItem>()
+                .from(rssFile)
+                .withTransform(transformers)
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .onNodes(RSSItem.RSS_PATH)
+                .create();
+    }
+
+    private static List<String> titles(final Iterable<RSSItem> items) {
+        final List<String> titles = new ArrayList<>();
+        for (RSSItem item : items) {
+            titles.add(item.getTitle());
+        }
+        return titles;
+    }
+
+    @Test
+    public void testConcurrentIterators() throws Exception {
+        final XMLObjectIterable<RSSItem> items = items(new TransformerPool<>(RSSItem.SUPPLIER));
+        final List<String> expected = titles(items);
+        assertEquals(30, expected.size());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS * 4; ++i) {
+                results.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        return titles(items);
+                    }
+                }));
+            }
+
+            for (Future<List<String>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testReusesTransformerPerThread() throws Exception {
+        final XMLObjectIterable<RSSItem> items = items(new TransformerPool<>(counting));
+
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(30, Lists.newArrayList(items).size());
+        }
+
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void testInterleavedIteratorsOnOneThread() throws Exception {
+        final XMLObjectIterable<RSSItem> items = items(new TransformerPool<>(counting));
+        final Iterator<RSSItem> first = items.iterator();
+        final Iterator<RSSItem> second = items.iterator();
+
+        int count = 0;
+        while (first.hasNext()) {
+            assertEquals(first.next().getTitle(), second.next().getTitle());
+            count++;
+        }
+
+        assertFalse(second.hasNext());
+        assertEquals(30, count);
+        assertEquals(2, created.get());
+    }
+}
@@ -133,6 +133,35 @@ public class UsageUnitTest {
         assertTrue("Elements correct.", samples.toString().equals("[text1, text2, text3]"));
     }
 
+    /**
+     * Test that elements which leave the root path are
+     * never passed to the transformer, even when they
+     * are nested deeper than the root path.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSkipElementsOffPath() throws Exception {
+        String sampleXML = "<n1>\n" +
+                "    <x><y><z>bad</z></y></x>\n" +
+                "    <l2>\n" +
+                "        <i1 attrib=\"3\"></i1>\n" +
+                "        <i1 attrib=\"6\">text2</i1>\n" +
+                "    </l2>\n" +
+                "</n1>";
+
+        XMLObjectIterable<Sample> xitr = new XMLObjectIterable.Builder<Sample>()
+                .from(sampleXML)
+                .withTransform(new SampleTransformer())
+                .withParser(parser)
+                .onNodes("n1/l2/i1")
+                .create();
+
+        List<Sample> samples = Lists.newArrayList(xitr);
+
+        assertTrue("Elements correct.", samples.toString().equals("[text2]"));
+    }
+
     @Test(expected = RuntimeException.class)
     public void testNoData() throws Exception {
         XMLObjectIterable<Sample> xitr = new XMLObjectIterable.Builder<Sample>()
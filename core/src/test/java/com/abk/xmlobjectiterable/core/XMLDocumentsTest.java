@@ -0,0 +1,209 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.ParserPool;
+import com.abk.xmlobjectiterable.TransformerPool;
+import com.abk.xmlobjectiterable.XMLDocuments;
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Validates that merging many documents yields every POJO of each, in document order per document.
+ */
+public class XMLDocumentsTest {
+
+    private static final int DOCUMENTS = 20;
+
+    private static List<Supplier<InputStream>> streams(final byte[]... documents) {
+        final List<Supplier<InputStream>> streams = new ArrayList<>();
+        for (final byte[] document : documents) {
+            streams.add(new Supplier<InputStream>() {
+                @Override
+                public InputStream get() {
+                    return new ByteArrayInputStream(document);
+                }
+            });
+        }
+        return streams;
+    }
+
+    private static byte[][] feeds() throws Exception {
+        final byte[] rss;
+        try (InputStream is = XMLDocumentsTest.class.getResourceAsStream("/rss.xml")) {
+            rss = ByteStreams.toByteArray(is);
+        }
+
+        final byte[][] documents = new byte[DOCUMENTS][];
+        for (int i = 0; i < DOCUMENTS; ++i) {
+            documents[i] = rss;
+        }
+        return documents;
+    }
+
+    private static byte[] feed(final String... titles) {
+        final StringBuilder xml = new StringBuilder("<rss><channel>");
+        for (String title : titles) {
+            xml.append("<item><title>").append(title).append("</title><link>l</link><pubDate>d</pubDate>")
+                    .append("<comments>c</comments><description>d</description></item>");
+        }
+        return xml.append("</channel></rss>").toString().getBytes(Charsets.UTF_8);
+    }
+
+    private static XMLDocuments.Builder<RSSItem> builder(final List<Supplier<InputStream>> streams)
+            throws Exception {
+        return new XMLDocuments.Builder<RSSItem>()
+                .fromStreams(streams)
+                .onNodes(RSSItem.RSS_PATH)
+                .withTransform(new TransformerPool<>(RSSItem.SUPPLIER))
+                .withParserFactory(XmlPullParserFactory.newInstance());
+    }
+
+    @Test
+    public void testMergesAllDocuments() throws Exception {
+        final Map<String, Integer> counts = new HashMap<>();
+        int total = 0;
+        for (RSSItem item : builder(streams(feeds())).withQueueSize(3).withMaxConcurrency(4).create()) {
+            final Integer count = counts.get(item.getTitle());
+            counts.put(item.getTitle(), count == null ? 1 : count + 1);
+            total++;
+        }
+
+        assertEquals(30 * DOCUMENTS, total);
+        assertEquals(30, counts.size());
+        for (Integer count : counts.values()) {
+            assertEquals(DOCUMENTS, count.intValue());
+        }
+    }
+
+    @Test
+    public void testKeepsDocumentOrder() throws Exception {
+        final byte[] a = feed("a1", "a2");
+        final byte[] b = feed("b1", "b2");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<String> titles = new ArrayList<>();
+            for (RSSItem item : builder(streams(a, b))
+                    .withParserPool(ParserPool.newInstance(false))
+                    .withExecutor(executor)
+                    .withQueueSize(1)
+                    .create()) {
+                titles.add(item.getTitle());
+            }
+
+            assertEquals(4, titles.size());
+            assertTrue(titles.indexOf("a1") < titles.indexOf("a2"));
+            assertTrue(titles.indexOf("b1") < titles.indexOf("b2"));
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedDocument() throws Exception {
+        final byte[] broken = "<rss><channel><item><title>x</title></ite".getBytes(Charsets.UTF_8);
+        final byte[][] feeds = feeds();
+        feeds[DOCUMENTS / 2] = broken;
+
+        try {
+            for (RSSItem ignored : builder(streams(feeds)).create()) {
+                // Drain.
+            }
+            fail("Expected the broken document to fail.");
+        } catch (final RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Failed to parse"));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testTransformerError() throws Exception {
+        final byte[][] feeds = feeds();
+        feeds[DOCUMENTS / 2] = feed("a", "boom", "c");
+
+        final Supplier<XMLTransformer<RSSItem>> transformers = new Supplier<XMLTransformer<RSSItem>>() {
+            @Override
+            public XMLTransformer<RSSItem> get() {
+                final XMLTransformer<RSSItem> transformer = RSSItem.SUPPLIER.get();
+                return new XMLTransformer<RSSItem>() {
+                    @Override
+                    public Optional<RSSItem> transform() {
+                        return transformer.transform();
+                    }
+
+                    @Override
+                    public void visit(XMLElement node, List<String> path) {
+                        if ("boom".equals(node.getValue())) {
+                            throw new AssertionError("Broken transformer.");
+                        }
+                        transformer.visit(node, path);
+                    }
+
+                    @Override
+                    public void reset() {
+                        transformer.reset();
+                    }
+
+                    @Override
+                    public boolean canTransform() {
+                        return transformer.canTransform();
+                    }
+                };
+            }
+        };
+
+        try {
+            for (RSSItem ignored : builder(streams(feeds)).withTransform(transformers).create()) {
+                // Drain.
+            }
+            fail("Expected the transformer's error.");
+        } catch (final AssertionError e) {
+            assertEquals("Broken transformer.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseStopsDocuments() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Iterator<RSSItem> items = builder(streams(feeds()))
+                    .withExecutor(executor)
+                    .withQueueSize(1)
+                    .create()
+                    .iterator();
+
+            for (int i = 0; i < 5; ++i) {
+                items.next();
+            }
+            ((Closeable) items).close();
+        } finally {
+            executor.shutdown();
+        }
+
+        // Tasks blocked on the full queue are interrupted rather than left waiting.
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,158 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Validates attribute access on packed and Map backed elements and parsing of values.
+ */
+public class XMLElementTest {
+
+    @Test
+    public void testPackedAttributes() {
+        XMLElement element = new XMLElement("outline", 0, null,
+                new String[]{"title", "Hacker News", "xmlUrl", "https://news.ycombinator.com/rss"});
+
+        assertEquals(2, element.getAttributeCount());
+        assertEquals("Hacker News", element.getAttribute(new String("title")));
+        assertEquals("xmlUrl", element.getAttributeName(1));
+        assertEquals("https://news.ycombinator.com/rss", element.getAttributeValue(1));
+        assertNull(element.getAttribute("type"));
+
+        Map<String, String> attribs = element.getAttribs();
+        assertEquals(ImmutableMap.of("title", "Hacker News", "xmlUrl", "https://news.ycombinator.com/rss"), attribs);
+        assertTrue(attribs.containsKey("xmlUrl"));
+        assertFalse(attribs.containsKey("type"));
+    }
+
+    @Test
+    public void testNoAttributes() {
+        XMLElement element = new XMLElement("item", 0, "value", null);
+
+        assertEquals(0, element.getAttributeCount());
+        assertNull(element.getAttribute("title"));
+        assertTrue(element.getAttribs().isEmpty());
+    }
+
+    @Test
+    public void testMapAttributes() {
+        Map<String, String> attribs = ImmutableMap.of("id", "1");
+        XMLElement element = new XMLElement("batter", null, attribs);
+
+        assertEquals(1, element.getAttributeCount());
+        assertEquals("1", element.getAttribute("id"));
+        assertEquals(attribs, element.getAttribs());
+    }
+
+    @Test
+    public void testMapAttributesAreCopied() {
+        Map<String, String> attribs = new HashMap<>();
+        attribs.put("id", "1");
+        XMLElement element = new XMLElement("batter", null, attribs);
+        attribs.put("id", "2");
+        attribs.put("type", "regular");
+
+        assertEquals(1, element.getAttributeCount());
+        assertEquals("1", element.getAttribute("id"));
+        assertEquals(ImmutableMap.of("id", "1"), element.getAttribs());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewIsReadOnly() {
+        new XMLElement("item", 0, null, new String[]{"id", "1"}).getAttribs().put("id", "2");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAttributeIndexOutOfRange() {
+        new XMLElement("outline", 0, null, new String[]{"title", "a"}).getAttributeValue(1);
+    }
+
+    @Test
+    public void testReusedElementHasNoStaleAttributes() throws Exception {
+        final List<String> counts = new ArrayList<>();
+
+        Lists.newArrayList(new XMLObjectIterable.Builder<String>()
+                .from("<items><item x='1' y='2'/><item x='3'/></items>")
+                .onNodes("items/item")
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .withReusedElements(true)
+                .withTransform(new XMLTransformer<String>() {
+                    @Override
+                    public Optional<String> transform() {
+                        return Optional.absent();
+                    }
+
+                    @Override
+                    public void visit(XMLElement node, List<String> path) {
+                        try {
+                            node.getAttributeName(1);
+                            counts.add(node.getAttributeValue(0) + ":2");
+                        } catch (IndexOutOfBoundsException e) {
+                            counts.add(node.getAttributeValue(0) + ":1");
+                        }
+                    }
+
+                    @Override
+                    public void reset() {
+                    }
+
+                    @Override
+                    public boolean canTransform() {
+                        return false;
+                    }
+                })
+                .create());
+
+        assertEquals(Lists.newArrayList("1:2", "3:1"), counts);
+    }
+
+    @Test
+    public void testValueAsInt() {
+        assertEquals(42, new XMLElement("id", 0, " 42\n", null).getValueAsInt());
+        assertEquals(-7, new XMLElement("id", 0, "-7", null).getValueAsInt());
+        assertEquals(Integer.MAX_VALUE, new XMLElement("id", 0, "2147483647", null).getValueAsInt());
+        assertEquals(Integer.MIN_VALUE, new XMLElement("id", 0, "-2147483648", null).getValueAsInt());
+    }
+
+    @Test
+    public void testInvalidInts() {
+        for (String text : new String[]{null, "", " ", "-", "1.5", "2147483648", "-2147483649", "12a"}) {
+            try {
+                new XMLElement("id", 0, text, null).getValueAsInt();
+                fail("Parsed " + text);
+            } catch (NumberFormatException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testValueAsDouble() {
+        for (String text : new String[]{"0.55", " 1.75 ", "-3", "+2.5e3", "1E-5", ".5", "5.", "-0.0", "123456789012345",
+                "1234567890.123456789", "1e300", "4.9e-324", "NaN", "-Infinity", "0x1p3", "2d"}) {
+            assertEquals(text, Double.parseDouble(text), new XMLElement("ppu", 0, text, null).getValueAsDouble(), 0);
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testInvalidDouble() {
+        new XMLElement("ppu", 0, "1.2.3", null).getValueAsDouble();
+    }
+}
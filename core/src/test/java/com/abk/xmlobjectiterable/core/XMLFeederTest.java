@@ -0,0 +1,170 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLFeeder;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLRouter;
+import com.abk.xmlobjectiterable.XMLTokenizer;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.abk.xmlobjectiterable.model.Book;
+import com.abk.xmlobjectiterable.transformers.BookTransformer;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Validates that pushing a document in pieces of any size yields the POJOs of a pull parse.
+ */
+public class XMLFeederTest {
+
+    private static final int[] PIECE_SIZES = {1, 3, 17, 256, 4096, Integer.MAX_VALUE};
+
+    private static byte[] resource(final String name) throws Exception {
+        try (InputStream is = XMLFeederTest.class.getResourceAsStream(name)) {
+            return ByteStreams.toByteArray(is);
+        }
+    }
+
+    private static <T> List<T> pull(final byte[] xml, final String path, final XMLObjectIterable.Builder<T> builder)
+            throws Exception {
+        final List<T> values = new ArrayList<>();
+        for (T value : builder
+                .from(new ByteArrayInputStream(xml))
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .onNodes(path)
+                .create()) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    private static <T> List<T> push(final byte[] xml, final int pieceSize, final XMLFeeder.Builder<T> builder,
+                                    final boolean direct) throws Exception {
+        final List<T> values = new ArrayList<>();
+        final XMLFeeder<T> feeder = builder
+                .to(new XMLRouter.Sink<T>() {
+                    @Override
+                    public void accept(T value) {
+                        values.add(value);
+                    }
+                })
+                .create();
+
+        int count;
+        for (int offset = 0; offset < xml.length; offset += count) {
+            count = Math.min(pieceSize, xml.length - offset);
+            if (direct) {
+                final ByteBuffer piece = ByteBuffer.allocateDirect(count);
+                piece.put(xml, offset, count).flip();
+                feeder.feed(piece);
+                assertEquals(0, piece.remaining());
+            } else {
+                feeder.feed(xml, offset, count);
+            }
+        }
+        feeder.close();
+
+        return values;
+    }
+
+    private static List<String> titles(final List<RSSItem> items) {
+        final List<String> titles = new ArrayList<>();
+        for (RSSItem item : items) {
+            titles.add(item.getTitle());
+        }
+        return titles;
+    }
+
+    @Test
+    public void testRssInPieces() throws Exception {
+        final byte[] xml = resource("/rss.xml");
+        final List<String> expected = titles(pull(xml, RSSItem.RSS_PATH,
+                new XMLObjectIterable.Builder<RSSItem>().withTransform(RSSItem.SUPPLIER)));
+        assertEquals(30, expected.size());
+
+        for (int pieceSize : PIECE_SIZES) {
+            final List<RSSItem> items = push(xml, pieceSize, new XMLFeeder.Builder<RSSItem>()
+                    .onNodes(RSSItem.RSS_PATH)
+                    .withTransform(RSSItem.SUPPLIER)
+                    .withParserFactory(XmlPullParserFactory.newInstance()), pieceSize % 2 == 1);
+
+            assertEquals("Piece size " + pieceSize, expected, titles(items));
+        }
+    }
+
+    @Test
+    public void testBooksInPieces() throws Exception {
+        final byte[] xml = resource("/books.xml");
+        final List<Book> expected = pull(xml, "bookstore/book",
+                new XMLObjectIterable.Builder<Book>().withTransform(new BookTransformer()));
+
+        for (int pieceSize : PIECE_SIZES) {
+            final List<Book> books = push(xml, pieceSize, new XMLFeeder.Builder<Book>()
+                    .onNodes("bookstore/book")
+                    .withTransform(new BookTransformer())
+                    .withParserFactory(new XMLTokenizer.Factory()), false);
+
+            assertEquals(expected.size(), books.size());
+            for (int i = 0; i < books.size(); ++i) {
+                assertEquals(expected.get(i).getTitle(), books.get(i).getTitle());
+                assertEquals(expected.get(i).getAuthor(), books.get(i).getAuthor());
+            }
+        }
+    }
+
+    @Test
+    public void testAncestorsChangeBetweenRecords() throws Exception {
+        final String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<feeds><feed id=\"a\"><group><item>1</item><item>2</item></group>"
+                + "<group name=\"x\"><item>3</item></group></feed>"
+                + "<feed id=\"b\"><group><item>4</item></group></feed><other><item>no</item></other></feeds>";
+
+        for (int pieceSize : PIECE_SIZES) {
+            final List<String> values = push(xml.getBytes(Charsets.UTF_8), pieceSize, new XMLFeeder.Builder<String>()
+                    .onNodes("feeds/feed/group/item")
+                    .withTransform(new TextTransformer())
+                    .withParserFactory(new XMLTokenizer.Factory()), false);
+
+            assertEquals("Piece size " + pieceSize, Lists.newArrayList("1", "2", "3", "4"), values);
+        }
+    }
+
+    /**
+     * Returns the text of each record.
+     */
+    private static final class TextTransformer implements XMLTransformer<String> {
+        private String text;
+
+        @Override
+        public Optional<String> transform() {
+            return Optional.fromNullable(text);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            text = node.getValue();
+        }
+
+        @Override
+        public void reset() {
+            text = null;
+        }
+
+        @Override
+        public boolean canTransform() {
+            return text != null;
+        }
+    }
+}
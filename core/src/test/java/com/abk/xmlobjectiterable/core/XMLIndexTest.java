@@ -0,0 +1,172 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLIndex;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Validates that records looked up through an index match sequential parsing.
+ */
+public class XMLIndexTest {
+
+    private static final int SECTIONS = 3;
+    private static final int ITEMS_PER_SECTION = 2000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private XmlPullParserFactory factory;
+    private File xmlFile;
+    private File indexFile;
+
+    /**
+     * Transforms an item to "id:title".
+     */
+    static class ItemTransformer implements XMLTransformer<String> {
+        private String id;
+        private String title;
+
+        @Override
+        public Optional<String> transform() {
+            return Optional.of(id + ":" + title);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            if (path.size() == 3) {
+                id = node.getAttribute("id");
+            } else if (node.getName().equals("title")) {
+                title = node.getValue();
+            }
+        }
+
+        @Override
+        public void reset() {
+            id = null;
+            title = null;
+        }
+
+        @Override
+        public boolean canTransform() {
+            return id != null && title != null;
+        }
+    }
+
+    static final Supplier<ItemTransformer> TRANSFORMERS = new Supplier<ItemTransformer>() {
+        @Override
+        public ItemTransformer get() {
+            return new ItemTransformer();
+        }
+    };
+
+    static final Function<String, String> IDS = new Function<String, String>() {
+        @Override
+        public String apply(String item) {
+            return item.split(":")[0];
+        }
+    };
+
+    @Before
+    public void createFile() throws Exception {
+        factory = XmlPullParserFactory.newInstance();
+
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<catalog version=\"2\">\n");
+        for (int s = 0; s < SECTIONS; ++s) {
+            xml.append("<section name=\"s").append(s).append("\">\n");
+            for (int i = 0; i < ITEMS_PER_SECTION; ++i) {
+                xml.append("  <item id=\"").append(s * ITEMS_PER_SECTION + i).append("\"><title>Item ")
+                        .append(i).append(" &amp; more</title></item>\n");
+            }
+            xml.append("</section>\n");
+        }
+        xml.append("</catalog>\n");
+
+        xmlFile = folder.newFile("catalog.xml");
+        indexFile = new File(folder.getRoot(), "catalog.idx");
+        Files.write(xml.toString(), xmlFile, Charsets.UTF_8);
+    }
+
+    private XMLObjectIterable<String> iterable() {
+        return new XMLObjectIterable.Builder<String>()
+                .from(xmlFile)
+                .onNodes("catalog/section/item")
+                .withParserFactory(factory)
+                .withTransform(TRANSFORMERS)
+                .create();
+    }
+
+    @Test
+    public void testRecordsMatchSequential() throws Exception {
+        final List<String> sequential = Lists.newArrayList(iterable());
+
+        assertEquals(SECTIONS * ITEMS_PER_SECTION, XMLIndex.write(iterable(), indexFile));
+        try (XMLIndex<String> index = XMLIndex.open(iterable(), indexFile)) {
+            assertEquals(sequential.size(), index.size());
+            for (int i = sequential.size() - 1; i >= 0; --i) {
+                assertEquals(sequential.get(i), index.get(i).get());
+            }
+            assertEquals("Not keyed.", -1, index.indexOf("0"));
+        }
+    }
+
+    @Test
+    public void testFindByKey() throws Exception {
+        XMLIndex.write(iterable(), indexFile, IDS);
+
+        try (XMLIndex<String> index = XMLIndex.open(iterable(), indexFile)) {
+            assertEquals("0:Item 0 & more", index.find("0").get());
+            assertEquals("4321:Item 321 & more", index.find("4321").get());
+            assertEquals(ITEMS_PER_SECTION + 5, index.indexOf(String.valueOf(ITEMS_PER_SECTION + 5)));
+            assertFalse(index.find("missing").isPresent());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRecordOutOfRange() throws Exception {
+        XMLIndex.write(iterable(), indexFile);
+
+        try (XMLIndex<String> index = XMLIndex.open(iterable(), indexFile)) {
+            index.get(index.size());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedIndex() throws Exception {
+        XMLIndex.write(iterable(), indexFile);
+        try (RandomAccessFile index = new RandomAccessFile(indexFile, "rw")) {
+            index.setLength(index.length() - 1);
+        }
+
+        XMLIndex.open(iterable(), indexFile);
+    }
+
+    @Test(expected = IOException.class)
+    public void testChangedDocument() throws Exception {
+        XMLIndex.write(iterable(), indexFile);
+        Files.append("<!-- changed -->\n", xmlFile, Charsets.UTF_8);
+
+        XMLIndex.open(iterable(), indexFile);
+    }
+}
@@ -0,0 +1,116 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.SymbolTable;
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLPath;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validates the path view passed to transformers and path ids.
+ */
+public class XMLPathTest {
+
+    private static final String XML = "<items><item><name>a</name><fillings><filling><name>b</name></filling>"
+            + "</fillings></item><item><fillings><filling><filling><name>c</name></filling></filling></fillings>"
+            + "</item></items>";
+
+    @Test
+    public void testPathQueries() throws Exception {
+        final SymbolTable symbols = new SymbolTable();
+        final int filling = symbols.id("filling");
+        final int fillingName = symbols.pathId("items/item/fillings/filling/name");
+        final List<String> visits = new ArrayList<>();
+
+        Lists.newArrayList(new XMLObjectIterable.Builder<String>()
+                .from(XML)
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .withSymbols(symbols)
+                .withTransform(new PathTransformer() {
+                    @Override
+                    public void visit(XMLElement node, List<String> list) {
+                        final XMLPath path = (XMLPath) list;
+                        assertEquals(list.size(), path.depth());
+                        assertSame(node.getName(), path.name());
+                        assertSame(path.nameAt(path.depth() - 1), path.get(path.depth() - 1));
+                        assertEquals(node.getNameId(), path.nameIdAt(path.depth() - 1));
+                        assertEquals(symbols.pathId(Joiner.on('/').join(list)), path.id());
+
+                        if (node.getName().equals("name")) {
+                            visits.add(node.getValue() + ":" + path.parentName() + ":" + path.isUnder(filling)
+                                    + ":" + (path.id() == fillingName));
+                        }
+                        if (node.getName().equals("filling")) {
+                            assertEquals(path.isUnder("filling"), path.parentName().equals("filling"));
+                        }
+                    }
+                })
+                .onNodes("items/item")
+                .create());
+
+        assertEquals(Lists.newArrayList("a:item:false:false", "b:filling:true:true", "c:filling:true:false"), visits);
+    }
+
+    @Test
+    public void testIsUnderOtherLists() {
+        assertTrue(XMLPath.isUnder(Lists.newArrayList("items", "item", "name"), "item"));
+        assertFalse(XMLPath.isUnder(Lists.newArrayList("items", "item"), "item"));
+        assertFalse(XMLPath.isUnder(new ArrayList<String>(), "item"));
+    }
+
+    @Test
+    public void testPathIds() {
+        final SymbolTable symbols = new SymbolTable();
+        assertEquals(symbols.pathId("/rss/channel"), symbols.pathId("rss/channel"));
+        assertFalse(symbols.pathId("rss") == symbols.pathId("rss/channel"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() throws Exception {
+        Lists.newArrayList(new XMLObjectIterable.Builder<String>()
+                .from(XML)
+                .withParserFactory(XmlPullParserFactory.newInstance())
+                .withTransform(new PathTransformer() {
+                    @Override
+                    public void visit(XMLElement node, List<String> path) {
+                        assertFalse(XMLPath.isUnder(path, "missing"));
+                        assertTrue(path.contains("item"));
+                        path.add("other");
+                    }
+                })
+                .onNodes("items/item")
+                .create());
+    }
+
+    /**
+     * Transforms nothing, subclasses check the path.
+     */
+    private abstract static class PathTransformer implements XMLTransformer<String> {
+        @Override
+        public Optional<String> transform() {
+            return Optional.absent();
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public boolean canTransform() {
+            return false;
+        }
+    }
+}
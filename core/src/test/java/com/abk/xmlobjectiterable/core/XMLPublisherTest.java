@@ -0,0 +1,188 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLPublisher;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validates demand, completion, cancellation and errors of the publisher.
+ */
+public class XMLPublisherTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Records signals and requests a fixed number of items at a time.
+     */
+    private static class RecordingSubscriber implements XMLPublisher.Subscriber<RSSItem> {
+        final List<String> titles = new ArrayList<>();
+        final CountDownLatch terminated = new CountDownLatch(1);
+        final int batch;
+        XMLPublisher.Subscription subscription;
+        long outstanding;
+        long maxOutstanding;
+        Throwable error;
+        boolean complete;
+
+        RecordingSubscriber(final int batch) {
+            this.batch = batch;
+        }
+
+        void request(final long n) {
+            outstanding += n;
+            maxOutstanding = Math.max(maxOutstanding, outstanding);
+            subscription.request(n);
+        }
+
+        @Override
+        public void onSubscribe(XMLPublisher.Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(RSSItem item) {
+            assertTrue("Delivered within demand.", outstanding > 0);
+            titles.add(item.getTitle());
+            if (--outstanding == 0 && batch > 0) {
+                request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+            terminated.countDown();
+        }
+    }
+
+    private static XMLPublisher<RSSItem> publisher(final Executor executor) throws Exception {
+        return new XMLPublisher<>(new XMLObjectIterable.Builder<RSSItem>()
+                .from(XMLPublisherTest.class, "/rss.xml")
+                .withTransform(RSSItem.SUPPLIER)
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .onNodes(RSSItem.RSS_PATH)
+                .create(), executor);
+    }
+
+    @Test
+    public void testDeliversInBatchesOfDemand() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(7);
+        publisher(DIRECT).subscribe(subscriber);
+
+        assertTrue(subscriber.complete);
+        assertNull(subscriber.error);
+        assertEquals(30, subscriber.titles.size());
+        assertEquals(7, subscriber.maxOutstanding);
+    }
+
+    @Test
+    public void testWaitsForDemand() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher(DIRECT).subscribe(subscriber);
+        assertTrue(subscriber.titles.isEmpty());
+
+        subscriber.outstanding = 2;
+        subscriber.subscription.request(2);
+        assertEquals(2, subscriber.titles.size());
+        assertFalse(subscriber.complete);
+
+        subscriber.outstanding = Long.MAX_VALUE;
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(30, subscriber.titles.size());
+        assertTrue(subscriber.complete);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(1) {
+            @Override
+            public void onNext(RSSItem item) {
+                super.onNext(item);
+                if (titles.size() == 3) {
+                    subscription.cancel();
+                }
+            }
+        };
+        publisher(DIRECT).subscribe(subscriber);
+        subscriber.subscription.request(10);
+
+        assertEquals(3, subscriber.titles.size());
+        assertFalse(subscriber.complete);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testThrowingSubscriberIsNotSignalled() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(0) {
+            @Override
+            public void onNext(RSSItem item) {
+                super.onNext(item);
+                if (titles.size() == 2) {
+                    throw new IllegalStateException("Broken subscriber.");
+                }
+            }
+        };
+        publisher(DIRECT).subscribe(subscriber);
+        subscriber.outstanding = 10;
+        subscriber.subscription.request(10);
+        subscriber.subscription.request(10);
+
+        assertEquals(2, subscriber.titles.size());
+        assertFalse(subscriber.complete);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testInvalidRequest() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher(DIRECT).subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertFalse(subscriber.complete);
+    }
+
+    @Test
+    public void testOnExecutor() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final RecordingSubscriber subscriber = new RecordingSubscriber(4);
+            publisher(executor).subscribe(subscriber);
+
+            assertTrue(subscriber.terminated.await(10, TimeUnit.SECONDS));
+            assertTrue(subscriber.complete);
+            assertEquals(30, subscriber.titles.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLRouter;
+import com.abk.xmlobjectiterable.XMLTransformer;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Several paths of one document parsed in a single pass
+ */
+public class XMLRouterTest {
+
+    /**
+     * Returns the text of the matched element.
+     */
+    private static final class TextTransformer implements XMLTransformer<String> {
+        private String text;
+
+        @Override
+        public Optional<String> transform() {
+            return Optional.fromNullable(text);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            text = node.getValue();
+        }
+
+        @Override
+        public void reset() {
+            text = null;
+        }
+
+        @Override
+        public boolean canTransform() {
+            return text != null;
+        }
+    }
+
+    /**
+     * Counts the elements visited for the matched element, including itself.
+     */
+    private static final class CountTransformer implements XMLTransformer<Integer> {
+        private int count;
+
+        @Override
+        public Optional<Integer> transform() {
+            return Optional.of(count);
+        }
+
+        @Override
+        public void visit(XMLElement node, List<String> path) {
+            count++;
+        }
+
+        @Override
+        public void reset() {
+            count = 0;
+        }
+
+        @Override
+        public boolean canTransform() {
+            return true;
+        }
+    }
+
+    @Test
+    public void testTaggedStream() throws Exception {
+        final List<RSSItem> expected = Lists.newArrayList(new XMLObjectIterable.Builder<RSSItem>()
+                .from(this.getClass(), "/rss.xml")
+                .withTransform(RSSItem.SUPPLIER)
+                .onNodes(RSSItem.RSS_PATH)
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .create());
+
+        final XMLRouter router = new XMLRouter.Builder()
+                .route(RSSItem.RSS_PATH, RSSItem.SUPPLIER.get())
+                .route("rss/channel/title", new TextTransformer())
+                .route("/rss/channel/link", new TextTransformer())
+                .from(this.getClass(), "/rss.xml")
+                .withParser(XmlPullParserFactory.newInstance().newPullParser())
+                .create();
+
+        final List<XMLRouter.Record<?>> records = Lists.newArrayList(router);
+
+        assertEquals(32, records.size());
+        assertEquals(1, records.get(0).getRoute());
+        assertEquals("Hacker News", records.get(0).getValue());
+        assertEquals("/rss/channel/link", records.get(1).getPath());
+        assertEquals("https://news.ycombinator.com/", records.get(1).as(String.class).get());
+        assertFalse(records.get(1).as(RSSItem.class).isPresent());
+        for (int i = 0; i < expected.size(); ++i) {
+            final XMLRouter.Record<?> record = records.get(i + 2);
+            assertEquals(0, record.getRoute());
+            assertEquals(expected.get(i).getTitle(), record.as(RSSItem.class).get().getTitle());
+        }
+    }
+
+    @Test
+    public void testSinksAndNestedRoutes() throws Exception {
+        final List<RSSItem> items = new ArrayList<>();
+        final List<Integer> counts = new ArrayList<>();
+
+        new XMLRouter.Builder()
+                .route(RSSItem.RSS_PATH, RSSItem.SUPPLIER.get(), new XMLRouter.Sink<RSSItem>() {
+                    @Override
+                    public void accept(RSSItem value) {
+                        items.add(value);
+                    }
+                })
+                .route("rss/channel", new CountTransformer(), new XMLRouter.Sink<Integer>() {
+                    @Override
+                    public void accept(Integer value) {
+                        counts.add(value);
+                    }
+                })
+                .from(this.getClass(), "/rss.xml")
+                .withBuiltInParser(false)
+                .create()
+                .drain();
+
+        assertEquals(30, items.size());
+        assertEquals("VNC Roulette", items.get(0).getTitle());
+        // channel, its title, link and description, and 30 items of 5 elements each.
+        assertEquals(Lists.newArrayList(1 + 3 + 30 * 6), counts);
+    }
+
+    @Test
+    public void testSkipsUnroutedSubtrees() throws Exception {
+        final String xml = "<catalog><skip><item><name>no</name></item></skip>"
+                + "<items><item><name>a</name></item><item><name>b</name></item></items>"
+                + "<brands><brand><name>x</name></brand></brands></catalog>";
+
+        final List<XMLRouter.Record<?>> records = Lists.newArrayList(new XMLRouter.Builder()
+                .route("catalog/items/item/name", new TextTransformer())
+                .route("catalog/brands/brand/name", new TextTransformer())
+                .from(xml)
+                .withBuiltInParser(false)
+                .create());
+
+        assertEquals(3, records.size());
+        assertEquals("a", records.get(0).getValue());
+        assertEquals("b", records.get(1).getValue());
+        assertEquals("x", records.get(2).getValue());
+        assertEquals(1, records.get(2).getRoute());
+    }
+
+    @Test
+    public void testCloseBeforeEnd() throws Exception {
+        final boolean[] closed = new boolean[1];
+        final InputStream is = new FilterInputStream(new ByteArrayInputStream(
+                "<items><item>a</item><item>b</item><item>c</item></items>".getBytes())) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        };
+
+        final Iterator<XMLRouter.Record<?>> records = new XMLRouter.Builder()
+                .route("items/item", new TextTransformer())
+                .from(is)
+                .withBuiltInParser(false)
+                .create()
+                .iterator();
+
+        assertEquals("a", records.next().getValue());
+        ((Closeable) records).close();
+        assertTrue("Input closed with the iterator.", closed[0]);
+        assertFalse(records.hasNext());
+    }
+}
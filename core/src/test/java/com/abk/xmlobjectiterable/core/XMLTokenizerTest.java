@@ -0,0 +1,208 @@
+package com.abk.xmlobjectiterable.core;
+
+import com.abk.xmlobjectiterable.XMLObjectIterable;
+import com.abk.xmlobjectiterable.XMLTokenizer;
+import com.abk.xmlobjectiterable.transformers.RSSItem;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Validates that the built-in tokenizer reports the same events as xpp3.
+ */
+public class XMLTokenizerTest {
+
+    private static final String MIXED = "<?xml version=\"1.0\"?>\n"
+            + "<!DOCTYPE root [ <!ELEMENT root ANY> ]>\n"
+            + "<!-- leading comment -->\n"
+            + "<root xmlns=\"urn:default\" xmlns:a=\"urn:a\" a:id='1'>\n"
+            + "  <a:item name=\"x &amp; y\" empty=\"\"/>\n"
+            + "  <text>one &lt;two&gt; <!-- skipped --><![CDATA[<three>]]> &#65;&#x42;</text>\n"
+            + "  <?pi ignored?>\n"
+            + "  <nested><deeper attr=\"line&#10;break\">value</deeper></nested>\n"
+            + "</root>\n";
+
+    @Test
+    public void testMatchesXpp3OnResources() throws Exception {
+        for (String resource : new String[]{"rss.xml", "rss-opml.xml", "books.xml", "donuts.xml"}) {
+            for (boolean namespaceAware : new boolean[]{true, false}) {
+                assertSameEvents(resource, namespaceAware);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesXpp3OnMixedContent() throws Exception {
+        for (boolean namespaceAware : new boolean[]{true, false}) {
+            assertSameEvents(null, namespaceAware);
+        }
+    }
+
+    @Test
+    public void testBuiltInParserReadsRSSItems() throws Exception {
+        XMLObjectIterable<RSSItem> xitr = new XMLObjectIterable.Builder<RSSItem>()
+                .from(this.getClass(), "/rss.xml")
+                .withTransform(RSSItem.SUPPLIER)
+                .onNodes(RSSItem.RSS_PATH)
+                .withBuiltInParser(true)
+                .create();
+
+        List<RSSItem> rssItems = Lists.newArrayList(xitr);
+
+        assertEquals(30, rssItems.size());
+    }
+
+    @Test
+    public void testDeepNesting() throws Exception {
+        StringBuilder xml = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            xml.append("<n").append(i).append('>');
+        }
+        for (int i = 99; i >= 0; --i) {
+            xml.append("</n").append(i).append('>');
+        }
+
+        XmlPullParser parser = new XMLTokenizer();
+        parser.setInput(stream(xml.toString()), null);
+        int maxDepth = 0;
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            maxDepth = Math.max(maxDepth, parser.getDepth());
+        }
+        assertEquals(100, maxDepth);
+    }
+
+    @Test(expected = XmlPullParserException.class)
+    public void testMismatchedEndTag() throws Exception {
+        XmlPullParser parser = new XMLTokenizer();
+        parser.setInput(stream("<a><b></a>"), null);
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            // Until the mismatch throws.
+        }
+    }
+
+    @Test(expected = XmlPullParserException.class)
+    public void testSeveralRootElements() throws Exception {
+        readAll("<a>t</a><b/>");
+    }
+
+    @Test(expected = XmlPullParserException.class)
+    public void testDuplicateAttribute() throws Exception {
+        readAll("<a x='1' x='2'/>");
+    }
+
+    @Test(expected = XmlPullParserException.class)
+    public void testCdataEndInText() throws Exception {
+        readAll("<a>x ]]> y</a>");
+    }
+
+    @Test(expected = XmlPullParserException.class)
+    public void testCommentEndInOpener() throws Exception {
+        readAll("<a><!-->x</a>");
+    }
+
+    @Test(expected = XmlPullParserException.class)
+    public void testProcessingInstructionWithoutTarget() throws Exception {
+        readAll("<a><?>x</a>");
+    }
+
+    @Test
+    public void testShortCommentAndProcessingInstruction() throws Exception {
+        XmlPullParser parser = new XMLTokenizer();
+        parser.setInput(stream("<a>x<!---->y<?pi?>z</a>"), null);
+        parser.next();
+        assertEquals("xyz", parser.nextText());
+    }
+
+    @Test
+    public void testLineAndColumn() throws Exception {
+        XmlPullParser parser = new XMLTokenizer();
+        parser.setInput(stream("<a>\n  <b x='1'/>\n</a>"), null);
+        assertEquals(XmlPullParser.START_TAG, parser.next());
+        assertEquals(1, parser.getLineNumber());
+        assertEquals(4, parser.getColumnNumber());
+
+        assertEquals(XmlPullParser.TEXT, parser.next());
+        assertEquals(XmlPullParser.START_TAG, parser.next());
+        assertEquals(2, parser.getLineNumber());
+        assertEquals(13, parser.getColumnNumber());
+    }
+
+    @Test
+    public void testBracketsInText() throws Exception {
+        XmlPullParser parser = new XMLTokenizer();
+        parser.setInput(stream("<a>[x] ]] ]]]</a>"), null);
+        parser.next();
+        assertEquals("[x] ]] ]]]", parser.nextText());
+    }
+
+    @Test(expected = XmlPullParserException.class)
+    public void testNoRootElement() throws Exception {
+        XmlPullParser parser = new XMLTokenizer();
+        parser.setInput(stream(""), null);
+        parser.next();
+    }
+
+    private void assertSameEvents(String resource, boolean namespaceAware) throws Exception {
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(namespaceAware);
+        XmlPullParser expected = factory.newPullParser();
+
+        XMLTokenizer.Factory builtIn = new XMLTokenizer.Factory();
+        builtIn.setNamespaceAware(namespaceAware);
+        XmlPullParser actual = builtIn.newPullParser();
+
+        expected.setInput(open(resource), null);
+        actual.setInput(open(resource), null);
+
+        int event;
+        do {
+            event = expected.next();
+            String where = resource + " at " + expected.getPositionDescription();
+
+            assertEquals(where, event, actual.next());
+            assertEquals(where, expected.getDepth(), actual.getDepth());
+            assertEquals(where, expected.getName(), actual.getName());
+            if (event == XmlPullParser.TEXT) {
+                assertEquals(where, expected.getText(), actual.getText());
+            }
+
+            if (event == XmlPullParser.START_TAG) {
+                assertEquals(where, expected.getNamespace(), actual.getNamespace());
+                assertEquals(where, expected.getAttributeCount(), actual.getAttributeCount());
+                for (int i = 0; i < expected.getAttributeCount(); ++i) {
+                    assertEquals(where, expected.getAttributeName(i), actual.getAttributeName(i));
+                    assertEquals(where, expected.getAttributeValue(i), actual.getAttributeValue(i));
+                    assertEquals(where, expected.getAttributeNamespace(i), actual.getAttributeNamespace(i));
+                }
+            }
+        } while (event != XmlPullParser.END_DOCUMENT);
+    }
+
+    private InputStream open(String resource) {
+        return resource == null ? stream(MIXED) : this.getClass().getClassLoader().getResourceAsStream(resource);
+    }
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read every event of a document.
+     */
+    private static void readAll(String xml) throws Exception {
+        XmlPullParser parser = new XMLTokenizer();
+        parser.setInput(stream(xml), null);
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            // Until the document ends or the parser throws.
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.abk.xmlobjectiterable.model;
+
+import com.abk.xmlobjectiterable.annotations.XmlAttr;
+import com.abk.xmlobjectiterable.annotations.XmlPath;
+import com.abk.xmlobjectiterable.annotations.XmlText;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Book bound with annotations, transformed by the generated AnnotatedBook_XMLTransformer.
+ */
+@XmlPath("bookstore/book")
+public class AnnotatedBook {
+    @XmlAttr(value = "@category", required = true)
+    String category;
+
+    @XmlText(value = "title", required = true)
+    String title;
+
+    @XmlAttr("title@lang")
+    String language;
+
+    @XmlText("author")
+    List<String> authors;
+
+    @XmlText("year")
+    int year;
+
+    @XmlText("price")
+    BigDecimal price;
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public List<String> getAuthors() {
+        return authors;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+}
@@ -0,0 +1,31 @@
+package com.abk.xmlobjectiterable.model;
+
+import com.abk.xmlobjectiterable.annotations.XmlAttr;
+import com.abk.xmlobjectiterable.annotations.XmlPath;
+
+/**
+ * OPML feed outline bound with annotations; outlines without a feed URL are skipped.
+ */
+@XmlPath("opml/body/outline/outline")
+public class AnnotatedBookmark {
+    @XmlAttr("@title")
+    String title;
+
+    @XmlAttr("@htmlUrl")
+    String htmlUrl;
+
+    @XmlAttr(value = "@xmlUrl", required = true)
+    String xmlUrl;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getHtmlUrl() {
+        return htmlUrl;
+    }
+
+    public String getXmlUrl() {
+        return xmlUrl;
+    }
+}
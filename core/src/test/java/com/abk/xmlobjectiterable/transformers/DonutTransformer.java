@@ -1,6 +1,7 @@
 package com.abk.xmlobjectiterable.transformers;
 
 import com.abk.xmlobjectiterable.XMLElement;
+import com.abk.xmlobjectiterable.XMLPath;
 import com.abk.xmlobjectiterable.XMLTransformer;
 import com.abk.xmlobjectiterable.model.Donut;
 import com.google.common.base.Optional;
@@ -34,32 +35,34 @@ public class DonutTransformer implements XMLTransformer<Donut> {
     @Override
     public void visit(XMLElement node, List<String> path) {
         if (node.getName().equals("item")) {
-            this.id = Integer.parseInt(node.getAttribs().get("id"));
-            this.type = node.getAttribs().get("type");
+            this.id = Integer.parseInt(node.getAttribute("id"));
+            this.type = node.getAttribute("type");
         }
 
-        if (node.getName().equals("name") && !path.contains("filling")) {
+        final boolean inFilling = XMLPath.isUnder(path, "filling");
+
+        if (node.getName().equals("name") && !inFilling) {
             this.name = node.getValue();
         }
 
         if (node.getName().equals("ppu")) {
-            this.ppu = Float.parseFloat(node.getValue());
+            this.ppu = (float) node.getValueAsDouble();
         }
 
         if (node.getName().equals("batter")) {
-            int batterId = Integer.parseInt(node.getAttribs().get("id"));
+            int batterId = Integer.parseInt(node.getAttribute("id"));
             String batterName = node.getValue();
             batters.add(new Donut.Batter(batterId, batterName));
         }
 
         if (node.getName().equals("topping")) {
-            int toppingId = Integer.parseInt(node.getAttribs().get("id"));
+            int toppingId = Integer.parseInt(node.getAttribute("id"));
             String toppingName = node.getValue();
             toppings.add(new Donut.Topping(toppingId, toppingName));
         }
 
         if (node.getName().equals("filling")) {
-            int currentFillingId = Integer.parseInt(node.getAttribs().get("id"));
+            int currentFillingId = Integer.parseInt(node.getAttribute("id"));
             if (currentFillingName == null || currentFillingCost == null) {
                 throw new IllegalStateException("bad filling");
             }
@@ -68,12 +71,12 @@ public class DonutTransformer implements XMLTransformer<Donut> {
             currentFillingCost = null;
         }
 
-        if (node.getName().equals("name") && path.contains("filling")) {
+        if (node.getName().equals("name") && inFilling) {
             currentFillingName = node.getValue();
         }
 
         if (node.getName().equals("addcost")) {
-            currentFillingCost = Float.parseFloat(node.getValue());
+            currentFillingCost = (float) node.getValueAsDouble();
         }
     }
 
@@ -41,7 +41,7 @@ public class RSSBookmarkItemUnitTest {
 
         XMLObjectIterable<RSSBookmarkItem> xitr = new XMLObjectIterable.Builder<RSSBookmarkItem>()
                 .from(is)
-                .withTransform(RSSBookmarkItem.TRANSFORMER)
+                .withTransform(RSSBookmarkItem.SUPPLIER)
                 .withParser(parser)
                 .onNodes(RSSBookmarkItem.PATH)
                 .create();
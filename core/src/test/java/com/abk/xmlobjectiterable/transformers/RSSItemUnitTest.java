@@ -37,7 +37,7 @@ public class RSSItemUnitTest {
 
         XMLObjectIterable<RSSItem> xitr = new XMLObjectIterable.Builder<RSSItem>()
                 .from(is)
-                .withTransform(RSSItem.RSS_TRANSFORMER)
+                .withTransform(RSSItem.SUPPLIER)
                 .onNodes(RSSItem.RSS_PATH)
                 .withParser(parser)
                 .create();
@@ -0,0 +1,488 @@
+package com.abk.xmlobjectiterable.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates an XMLTransformer for each class annotated with XmlPath.
+ * <p/>
+ * The generated {@code <Class>_XMLTransformer} dispatches on the element name with a
+ * String switch, checks the depth and parents of the element against the path of each
+ * bound field, and assigns the converted value straight to the field, so no reflection
+ * is used at runtime.
+ */
+@SupportedAnnotationTypes(XMLTransformerProcessor.XML_PATH)
+public final class XMLTransformerProcessor extends AbstractProcessor {
+
+    static final String XML_PATH = "com.abk.xmlobjectiterable.annotations.XmlPath";
+    static final String XML_TEXT = "com.abk.xmlobjectiterable.annotations.XmlText";
+    static final String XML_ATTR = "com.abk.xmlobjectiterable.annotations.XmlAttr";
+    static final String SUFFIX = "_XMLTransformer";
+
+    /**
+     * Field types and how to convert element text to them.
+     */
+    private enum FieldType {
+        STRING("%s"),
+        INT("Integer.parseInt(%s.trim())"),
+        LONG("Long.parseLong(%s.trim())"),
+        SHORT("Short.parseShort(%s.trim())"),
+        BYTE("Byte.parseByte(%s.trim())"),
+        FLOAT("Float.parseFloat(%s.trim())"),
+        DOUBLE("Double.parseDouble(%s.trim())"),
+        BOOLEAN("Boolean.parseBoolean(%s.trim())"),
+        BIG_DECIMAL("new java.math.BigDecimal(%s.trim())"),
+        STRING_LIST("%s");
+
+        private final String conversion;
+
+        FieldType(final String conversion) {
+            this.conversion = conversion;
+        }
+    }
+
+    /**
+     * A field bound to the text or an attribute of an element.
+     */
+    private static final class Binding {
+        private final String field;
+        private final String[] path;
+        private final String attribute;
+        private final boolean required;
+        private final FieldType type;
+
+        private Binding(final String field, final String[] path, final String attribute,
+                        final boolean required, final FieldType type) {
+            this.field = field;
+            this.path = path;
+            this.attribute = attribute;
+            this.required = required;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Reports an invalid binding on the element that declares it.
+     */
+    private static final class BindingException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Element element;
+
+        private BindingException(final Element element, final String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment round) {
+        final TypeElement xmlPath = processingEnv.getElementUtils().getTypeElement(XML_PATH);
+        if (xmlPath == null) {
+            return false;
+        }
+
+        for (Element element : round.getElementsAnnotatedWith(xmlPath)) {
+            try {
+                generate(element);
+            } catch (final BindingException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch (final IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Failed to write transformer: " + e.getMessage(), element);
+            }
+        }
+
+        return true;
+    }
+
+    private void generate(final Element element) throws BindingException, IOException {
+        if (element.getKind() != ElementKind.CLASS
+                || element.getModifiers().contains(Modifier.ABSTRACT)
+                || element.getModifiers().contains(Modifier.PRIVATE)) {
+            throw new BindingException(element, "@XmlPath must be on a concrete, non-private class.");
+        }
+
+        final TypeElement type = (TypeElement) element;
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new BindingException(element, "@XmlPath classes cannot be generic.");
+        }
+        if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+            throw new BindingException(element, "Nested @XmlPath classes must be static.");
+        }
+        if (!hasDefaultConstructor(type)) {
+            throw new BindingException(element, "@XmlPath classes need a non-private constructor without arguments.");
+        }
+
+        final String[] recordPath = split(element, stringValue(annotation(type, XML_PATH), "value"));
+        if (recordPath.length == 0) {
+            throw new BindingException(element, "@XmlPath must not be empty.");
+        }
+
+        final List<Binding> bindings = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            final AnnotationMirror text = annotation(field, XML_TEXT);
+            final AnnotationMirror attr = annotation(field, XML_ATTR);
+            if (text == null && attr == null) {
+                continue;
+            }
+            if (text != null && attr != null) {
+                throw new BindingException(field, "A field can have only one of @XmlText and @XmlAttr.");
+            }
+            bindings.add(bind(field, text != null ? text : attr, attr != null));
+        }
+
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        final String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        final String typeName = type.getQualifiedName().toString();
+        final String localName = packageName.isEmpty() ? typeName : typeName.substring(packageName.length() + 1);
+        final String transformerName = localName.replace('.', '_') + SUFFIX;
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(packageName.isEmpty() ? transformerName : packageName + "." + transformerName, type)
+                .openWriter())) {
+            write(out, packageName, localName, transformerName, recordPath, bindings);
+        }
+    }
+
+    private Binding bind(final VariableElement field, final AnnotationMirror annotation, final boolean isAttribute)
+            throws BindingException {
+        final Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+            throw new BindingException(field, "Bound fields must not be private, final or static.");
+        }
+
+        final String value = stringValue(annotation, "value");
+        final boolean required = Boolean.TRUE.equals(annotationValue(annotation, "required"));
+        String elementPath = value;
+        String attribute = null;
+
+        if (isAttribute) {
+            final int at = value.lastIndexOf('@');
+            if (at < 0 || at == value.length() - 1) {
+                throw new BindingException(field, "@XmlAttr must name an attribute, such as \"title@lang\" or \"@id\".");
+            }
+            elementPath = value.substring(0, at);
+            attribute = value.substring(at + 1).trim();
+        }
+
+        final FieldType type = fieldType(field);
+        if (type == FieldType.STRING_LIST && isAttribute) {
+            throw new BindingException(field, "List fields can only be bound with @XmlText.");
+        }
+
+        return new Binding(field.getSimpleName().toString(), split(field, elementPath), attribute, required, type);
+    }
+
+    private FieldType fieldType(final VariableElement field) throws BindingException {
+        final TypeMirror type = field.asType();
+        switch (type.getKind()) {
+            case INT:
+                return FieldType.INT;
+            case LONG:
+                return FieldType.LONG;
+            case SHORT:
+                return FieldType.SHORT;
+            case BYTE:
+                return FieldType.BYTE;
+            case FLOAT:
+                return FieldType.FLOAT;
+            case DOUBLE:
+                return FieldType.DOUBLE;
+            case BOOLEAN:
+                return FieldType.BOOLEAN;
+            case DECLARED:
+                break;
+            default:
+                throw new BindingException(field, "Unsupported type for a bound field: " + type);
+        }
+
+        final DeclaredType declared = (DeclaredType) type;
+        final String name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+        switch (name) {
+            case "java.lang.String":
+                return FieldType.STRING;
+            case "java.lang.Integer":
+                return FieldType.INT;
+            case "java.lang.Long":
+                return FieldType.LONG;
+            case "java.lang.Short":
+                return FieldType.SHORT;
+            case "java.lang.Byte":
+                return FieldType.BYTE;
+            case "java.lang.Float":
+                return FieldType.FLOAT;
+            case "java.lang.Double":
+                return FieldType.DOUBLE;
+            case "java.lang.Boolean":
+                return FieldType.BOOLEAN;
+            case "java.math.BigDecimal":
+                return FieldType.BIG_DECIMAL;
+            case "java.util.List":
+                final List<? extends TypeMirror> arguments = declared.getTypeArguments();
+                if (arguments.size() == 1 && arguments.get(0).getKind() == TypeKind.DECLARED
+                        && "java.lang.String".equals(((TypeElement) ((DeclaredType) arguments.get(0)).asElement())
+                        .getQualifiedName().toString())) {
+                    return FieldType.STRING_LIST;
+                }
+                break;
+            default:
+                break;
+        }
+
+        throw new BindingException(field, "Unsupported type for a bound field: " + type);
+    }
+
+    private static void write(final PrintWriter out, final String packageName, final String pojo,
+                              final String transformer, final String[] recordPath, final List<Binding> bindings) {
+        if (!packageName.isEmpty()) {
+            out.println("package " + packageName + ";");
+            out.println();
+        }
+        out.println("import com.abk.xmlobjectiterable.XMLElement;");
+        out.println("import com.abk.xmlobjectiterable.XMLTransformer;");
+        out.println("import com.google.common.base.Optional;");
+        out.println("import com.google.common.base.Supplier;");
+        out.println();
+        out.println("import java.util.List;");
+        out.println();
+        out.println("/**");
+        out.println(" * Transforms the elements at {@link #PATH} into {@link " + pojo + "}.");
+        out.println(" * <p/>");
+        out.println(" * Generated from the annotations of " + pojo + ", do not edit.");
+        out.println(" */");
+        out.println("public final class " + transformer + " implements XMLTransformer<" + pojo + "> {");
+        out.println();
+        out.println("    /** XML Element Path to the records */");
+        out.println("    public static final String PATH = " + literal(join(recordPath)) + ";");
+        out.println();
+        out.println("    /** Creates a transformer per iterator or parallel chunk */");
+        out.println("    public static final Supplier<" + transformer + "> SUPPLIER = new Supplier<" + transformer + ">() {");
+        out.println("        @Override");
+        out.println("        public " + transformer + " get() {");
+        out.println("            return new " + transformer + "();");
+        out.println("        }");
+        out.println("    };");
+        out.println();
+        out.println("    private static final int ROOT_DEPTH = " + recordPath.length + ";");
+        out.println();
+        out.println("    private " + pojo + " target = new " + pojo + "();");
+        out.println("    private boolean complete;");
+        out.println("    private boolean failed;");
+        for (int i = 0; i < bindings.size(); ++i) {
+            if (bindings.get(i).required) {
+                out.println("    private boolean found" + i + ";");
+            }
+        }
+        out.println();
+
+        // transform()
+        out.println("    @Override");
+        out.println("    public Optional<" + pojo + "> transform() {");
+        out.println("        return canTransform() ? Optional.of(target) : Optional.<" + pojo + ">absent();");
+        out.println("    }");
+        out.println();
+
+        // visit(), grouped by the name of the bound element.
+        final String recordName = recordPath[recordPath.length - 1];
+        final Map<String, List<Integer>> byName = new LinkedHashMap<>();
+        for (int i = 0; i < bindings.size(); ++i) {
+            final String[] path = bindings.get(i).path;
+            final String name = path.length == 0 ? recordName : path[path.length - 1];
+            if (!byName.containsKey(name)) {
+                byName.put(name, new ArrayList<Integer>());
+            }
+            byName.get(name).add(i);
+        }
+
+        out.println("    @Override");
+        out.println("    public void visit(XMLElement node, List<String> path) {");
+        out.println("        if (complete) {");
+        out.println("            // The previous record was not transformed.");
+        out.println("            reset();");
+        out.println("        }");
+        out.println();
+        out.println("        final int depth = path.size() - ROOT_DEPTH;");
+        if (!byName.isEmpty()) {
+            out.println("        try {");
+            out.println("            switch (node.getName()) {");
+            for (Map.Entry<String, List<Integer>> entry : byName.entrySet()) {
+                out.println("                case " + literal(entry.getKey()) + ":");
+                for (int index : entry.getValue()) {
+                    writeBinding(out, index, bindings.get(index));
+                }
+                out.println("                    break;");
+            }
+            out.println("                default:");
+            out.println("                    break;");
+            out.println("            }");
+            out.println("        } catch (RuntimeException e) {");
+            out.println("            // A value that does not convert to its field skips the record.");
+            out.println("            failed = true;");
+            out.println("        }");
+            out.println();
+        }
+        out.println("        complete = depth == 0;");
+        out.println("    }");
+        out.println();
+
+        // reset()
+        out.println("    @Override");
+        out.println("    public void reset() {");
+        out.println("        target = new " + pojo + "();");
+        out.println("        complete = false;");
+        out.println("        failed = false;");
+        for (int i = 0; i < bindings.size(); ++i) {
+            if (bindings.get(i).required) {
+                out.println("        found" + i + " = false;");
+            }
+        }
+        out.println("    }");
+        out.println();
+
+        // canTransform()
+        final StringBuilder condition = new StringBuilder("complete && !failed");
+        for (int i = 0; i < bindings.size(); ++i) {
+            if (bindings.get(i).required) {
+                condition.append(" && found").append(i);
+            }
+        }
+        out.println("    @Override");
+        out.println("    public boolean canTransform() {");
+        out.println("        return " + condition + ";");
+        out.println("    }");
+        out.println("}");
+    }
+
+    private static void writeBinding(final PrintWriter out, final int index, final Binding binding) {
+        final StringBuilder match = new StringBuilder("depth == ").append(binding.path.length);
+        for (int i = 0; i < binding.path.length - 1; ++i) {
+            match.append(" && ").append(literal(binding.path[i]))
+                    .append(".equals(path.get(ROOT_DEPTH + ").append(i).append("))");
+        }
+
+        final String value = "value" + index;
+        out.println("                    if (" + match + ") {");
+        out.println("                        final String " + value + " = " + (binding.attribute == null
+                ? "node.getValue()" : "node.getAttribute(" + literal(binding.attribute) + ")") + ";");
+        out.println("                        if (" + value + " != null) {");
+        if (binding.type == FieldType.STRING_LIST) {
+            out.println("                            if (target." + binding.field + " == null) {");
+            out.println("                                target." + binding.field + " = new java.util.ArrayList<String>();");
+            out.println("                            }");
+            out.println("                            target." + binding.field + ".add(" + value + ");");
+        } else {
+            out.println("                            target." + binding.field + " = "
+                    + String.format(binding.type.conversion, value) + ";");
+        }
+        if (binding.required) {
+            out.println("                            found" + index + " = true;");
+        }
+        out.println("                        }");
+        out.println("                    }");
+    }
+
+    private static boolean hasDefaultConstructor(final TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private AnnotationMirror annotation(final Element element, final String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object annotationValue(final AnnotationMirror mirror, final String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private String stringValue(final AnnotationMirror mirror, final String name) {
+        final Object value = annotationValue(mirror, name);
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * @param element element that declares the path, for errors
+     * @return element names of a path, which must not contain '//', wildcards or predicates
+     * @throws BindingException if the path is not a plain sequence of element names
+     */
+    private static String[] split(final Element element, final String path) throws BindingException {
+        if (path.contains("//") || path.indexOf('*') >= 0 || path.indexOf('[') >= 0 || path.indexOf(']') >= 0) {
+            throw new BindingException(element, "Path \"" + path + "\" of " + element.getSimpleName()
+                    + " must be a plain path of element names, without '//', '*' or predicates.");
+        }
+
+        final List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.trim().isEmpty()) {
+                segments.add(segment.trim());
+            }
+        }
+        return segments.toArray(new String[segments.size()]);
+    }
+
+    private static String join(final String[] path) {
+        final StringBuilder joined = new StringBuilder();
+        for (String segment : path) {
+            if (joined.length() > 0) {
+                joined.append('/');
+            }
+            joined.append(segment);
+        }
+        return joined.toString();
+    }
+
+    private static String literal(final String value) {
+        final StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); ++i) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\');
+            }
+            literal.append(c);
+        }
+        return literal.append('"').toString();
+    }
+}